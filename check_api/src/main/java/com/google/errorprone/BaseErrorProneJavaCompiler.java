@@ -268,7 +268,8 @@ public class BaseErrorProneJavaCompiler implements JavaCompiler {
         out.flush();
         return;
       }
-      if (refactoringResult.type() == RefactoringCollection.RefactoringResultType.CHANGED) {
+      if (refactoringResult.type() == RefactoringCollection.RefactoringResultType.CHANGED
+          && !refactoringResult.message().isEmpty()) {
         PrintWriter out = Log.instance(context).getWriter(WriterKind.NOTICE);
         out.println(refactoringResult.message());
         out.flush();
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import javax.annotation.Nullable;
+
+/**
+ * A file of compiled Refaster rules, as written by the {@code RefasterRuleCompiler} and loaded by
+ * {@code -XepPatchChecks:refaster:<path>}.
+ *
+ * <p>A bundle holds each rule in its own record. Loading one reads the file and checks its header;
+ * the rules are deserialized the first time the bundle is applied. Recently loaded bundles are
+ * cached, keyed by path and checked against the file's modification time and size, so builds that
+ * run javac many times in one JVM usually load each bundle once. A cached bundle is shared by every
+ * compilation that loads it, and so may be applied from several threads at once.
+ *
+ * <p>The format is:
+ *
+ * <pre>
+ *   int magic ({@code "EPRB"})
+ *   int version
+ *   int count
+ *   int[count] the length of each record
+ *   the records: the Java serialization of each {@link CodeTransformer}, in order
+ * </pre>
+ *
+ * <p>Files holding a single Java-serialized {@link CodeTransformer}, as written by earlier versions
+ * of the compiler, can still be loaded.
+ */
+public final class CodeTransformerBundle implements CodeTransformer {
+  private static final int MAGIC = 0x45505242; // "EPRB"
+  private static final int VERSION = 2;
+
+  /** Writes the given transformers as a bundle. */
+  public static void write(Iterable<? extends CodeTransformer> transformers, OutputStream out)
+      throws IOException {
+    ImmutableList.Builder<byte[]> builder = ImmutableList.builder();
+    for (CodeTransformer transformer : transformers) {
+      ByteArrayOutputStream record = new ByteArrayOutputStream();
+      try (ObjectOutputStream output = new ObjectOutputStream(record)) {
+        output.writeObject(transformer);
+      }
+      builder.add(record.toByteArray());
+    }
+    ImmutableList<byte[]> records = builder.build();
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(records.size());
+    for (byte[] record : records) {
+      data.writeInt(record.length);
+    }
+    for (byte[] record : records) {
+      data.write(record);
+    }
+    data.flush();
+  }
+
+  /** A loaded bundle, and the attributes of the file it was loaded from. */
+  private static final class CacheEntry {
+    final FileTime lastModified;
+    final long size;
+    final CodeTransformer transformer;
+
+    CacheEntry(BasicFileAttributes attributes, CodeTransformer transformer) {
+      this.lastModified = attributes.lastModifiedTime();
+      this.size = attributes.size();
+      this.transformer = transformer;
+    }
+
+    boolean isCurrent(BasicFileAttributes attributes) {
+      return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+    }
+  }
+
+  /** The number of bundles to keep loaded, as long as memory allows. */
+  private static final int CACHE_SIZE = 16;
+
+  private static final Cache<Path, CacheEntry> CACHE =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).softValues().build();
+
+  /**
+   * Returns the transformer stored in the file at the given path, reusing the one loaded by an
+   * earlier call if the file hasn't changed since.
+   */
+  public static CodeTransformer load(Path path) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    try {
+      return CACHE
+          .asMap()
+          .compute(
+              key,
+              (k, cached) -> {
+                if (cached != null && cached.isCurrent(attributes)) {
+                  return cached;
+                }
+                try {
+                  return new CacheEntry(attributes, read(k));
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              })
+          .transformer;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static CodeTransformer read(Path path) throws IOException {
+    byte[] bytes = Files.readAllBytes(path);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    if (buffer.remaining() < 4 || buffer.getInt(0) != MAGIC) {
+      return readSerialized(new ByteArrayInputStream(bytes));
+    }
+    try {
+      buffer.getInt(); // magic
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException(
+            String.format("Unsupported version %d of Refaster rules in %s", version, path));
+      }
+      int count = buffer.getInt();
+      if (count < 0 || count > buffer.remaining() / 4) {
+        throw new IOException("Truncated or corrupt Refaster rules in " + path);
+      }
+      int[] lengths = new int[count];
+      for (int i = 0; i < count; i++) {
+        lengths[i] = buffer.getInt();
+        if (lengths[i] < 0) {
+          throw new IOException("Truncated or corrupt Refaster rules in " + path);
+        }
+      }
+      int[] offsets = new int[count];
+      long offset = buffer.position();
+      for (int i = 0; i < count; i++) {
+        offsets[i] = (int) offset;
+        offset += lengths[i];
+      }
+      if (offset != bytes.length) {
+        throw new IOException("Truncated or corrupt Refaster rules in " + path);
+      }
+      return new CodeTransformerBundle(path, bytes, offsets, lengths);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated or corrupt Refaster rules in " + path, e);
+    }
+  }
+
+  private static CodeTransformer readSerialized(InputStream in) throws IOException {
+    try {
+      return (CodeTransformer) new ObjectInputStream(in).readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private final Path path;
+
+  /** The contents of the file, until the transformers have been read from it. */
+  @Nullable private byte[] bytes;
+
+  private final int[] offsets;
+  private final int[] lengths;
+  private final Supplier<ImmutableList<CodeTransformer>> transformers =
+      Suppliers.memoize(this::readTransformers);
+  private final Supplier<CodeTransformer> composite =
+      Suppliers.memoize(() -> CompositeCodeTransformer.compose(transformers()));
+
+  private CodeTransformerBundle(Path path, byte[] bytes, int[] offsets, int[] lengths) {
+    this.path = path;
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.lengths = lengths;
+  }
+
+  /** Returns the transformers in this bundle, deserializing them on first use. */
+  public ImmutableList<CodeTransformer> transformers() {
+    return transformers.get();
+  }
+
+  private ImmutableList<CodeTransformer> readTransformers() {
+    ImmutableList.Builder<CodeTransformer> transformers =
+        ImmutableList.builderWithExpectedSize(offsets.length);
+    for (int i = 0; i < offsets.length; i++) {
+      try {
+        transformers.add(readSerialized(new ByteArrayInputStream(bytes, offsets[i], lengths[i])));
+      } catch (IOException e) {
+        throw new UncheckedIOException("Can't load Refaster rule from " + path, e);
+      }
+    }
+    bytes = null;
+    return transformers.build();
+  }
+
+  @Override
+  public void apply(TreePath path, Context context, DescriptionListener listener) {
+    composite.get().apply(path, context, listener);
+  }
+
+  @Override
+  public ImmutableClassToInstanceMap<Annotation> annotations() {
+    return ImmutableClassToInstanceMap.of();
+  }
+
+  @Override
+  public String toString() {
+    return "CodeTransformerBundle{" + path + ", " + offsets.length + " rules}";
+  }
+}
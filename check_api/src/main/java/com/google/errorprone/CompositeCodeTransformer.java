@@ -17,14 +17,22 @@
 package com.google.errorprone;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableClassToInstanceMap;
 import com.google.common.collect.ImmutableList;
 import com.sun.source.util.TreePath;
 import com.sun.tools.javac.util.Context;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
+import java.util.Optional;
 
-/** Combines multiple {@code CodeTransformer}s into one. */
+/**
+ * Combines multiple {@code CodeTransformer}s into one.
+ *
+ * <p>If every transformer is a {@link FusibleCodeTransformer} of the same class, they are fused and
+ * applied in a single pass.
+ */
 @AutoValue
 public abstract class CompositeCodeTransformer implements CodeTransformer, Serializable {
   public static CodeTransformer compose(CodeTransformer... transformers) {
@@ -39,13 +47,39 @@ public abstract class CompositeCodeTransformer implements CodeTransformer, Seria
 
   public abstract ImmutableList<CodeTransformer> transformers();
 
+  private final transient Supplier<Optional<CodeTransformer>> fused =
+      Suppliers.memoize(() -> fuse(transformers()));
+
+  /** Replaces a deserialized instance with a new one, whose transient fields are initialized. */
+  Object readResolve() {
+    return compose(transformers());
+  }
+
   @Override
   public void apply(TreePath path, Context context, DescriptionListener listener) {
+    Optional<CodeTransformer> fused = this.fused.get();
+    if (fused.isPresent()) {
+      fused.get().apply(path, context, listener);
+      return;
+    }
     for (CodeTransformer transformer : transformers()) {
       transformer.apply(path, context, listener);
     }
   }
 
+  private static Optional<CodeTransformer> fuse(ImmutableList<CodeTransformer> transformers) {
+    if (transformers.size() < 2 || !(transformers.get(0) instanceof FusibleCodeTransformer)) {
+      return Optional.empty();
+    }
+    FusibleCodeTransformer first = (FusibleCodeTransformer) transformers.get(0);
+    for (CodeTransformer transformer : transformers) {
+      if (!transformer.getClass().equals(first.getClass())) {
+        return Optional.empty();
+      }
+    }
+    return Optional.of(first.fuse(transformers));
+  }
+
   @Override
   public ImmutableClassToInstanceMap<Annotation> annotations() {
     return ImmutableClassToInstanceMap.of();
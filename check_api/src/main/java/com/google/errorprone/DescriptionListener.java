@@ -30,8 +30,20 @@ public interface DescriptionListener {
   /** Reports a suggested modification to the code. */
   void onDescribed(Description description);
 
+  /**
+   * Called once every description of the compilation unit this listener was created for has been
+   * reported.
+   */
+  default void onCompilationUnitFinished() {}
+
   /** Factory for creating DescriptionListeners while compiling each file. */
   interface Factory {
     DescriptionListener getDescriptionListener(Log log, JCCompilationUnit compilation);
+
+    /**
+     * Called once the compilation has finished, after every listener created by this factory has
+     * been notified that its compilation unit is finished.
+     */
+    default void onCompilationFinished() {}
   }
 }
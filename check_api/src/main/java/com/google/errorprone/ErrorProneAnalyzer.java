@@ -26,7 +26,9 @@ import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.descriptionlistener.DescriptionListeners;
 import com.google.errorprone.hubspot.HubSpotLifecycleManager;
 import com.google.errorprone.hubspot.HubSpotUtils;
+import com.google.errorprone.matchers.Description;
 import com.google.errorprone.scanner.ErrorProneScannerTransformer;
+import com.google.errorprone.scanner.Scanner;
 import com.google.errorprone.scanner.ScannerSupplier;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.CompilationUnitTree;
@@ -77,10 +79,12 @@ public class ErrorProneAnalyzer implements TaskListener {
           // we can't load plugins from the processorpath until the filemanager has been
           // initialized, so do it lazily
           try {
-            return ErrorProneScannerTransformer.create(
+            Scanner scanner =
                 ErrorPronePlugins.loadPlugins(scannerSupplier, errorProneOptions, context)
                     .applyOverrides(errorProneOptions)
-                    .get());
+                    .get();
+            HubSpotUtils.recordMatcherCounts(scanner, errorProneOptions);
+            return ErrorProneScannerTransformer.create(scanner);
           } catch (InvalidCommandLineOptionException e) {
             throw new PropagatedException(e);
           }
@@ -126,7 +130,11 @@ public class ErrorProneAnalyzer implements TaskListener {
   @Override
   public void finished(TaskEvent taskEvent) {
     if (taskEvent.getKind() == Kind.COMPILATION) {
-      HubSpotLifecycleManager.instance(context).handleShutdown();
+      try {
+        descriptionListenerFactory.onCompilationFinished();
+      } finally {
+        HubSpotLifecycleManager.instance(context).handleShutdown();
+      }
     }
     if (taskEvent.getKind() != Kind.ANALYZE) {
       return;
@@ -142,15 +150,6 @@ public class ErrorProneAnalyzer implements TaskListener {
     verify(seen.add(path.getLeaf()), "Duplicate FLOW event for: %s", taskEvent.getTypeElement());
     Log log = Log.instance(context);
     JCCompilationUnit compilation = (JCCompilationUnit) path.getCompilationUnit();
-    DescriptionListener descriptionListener =
-        descriptionListenerFactory.getDescriptionListener(log, compilation);
-    DescriptionListener countingDescriptionListener =
-        d -> {
-          if (d.severity == SeverityLevel.ERROR) {
-            errorProneErrors++;
-          }
-          descriptionListener.onDescribed(d);
-        };
     JavaFileObject originalSource = log.useSource(compilation.getSourceFile());
     try {
       if (shouldExcludeSourceFile(compilation)) {
@@ -160,11 +159,11 @@ public class ErrorProneAnalyzer implements TaskListener {
         // We only get TaskEvents for compilation units if they contain no package declarations
         // (e.g. package-info.java files).  In this case it's safe to analyze the
         // CompilationUnitTree immediately.
-        transformer.get().apply(path, context, countingDescriptionListener);
+        apply(path, descriptionListener(log, compilation));
       } else if (finishedCompilation(path.getCompilationUnit())) {
         // Otherwise this TaskEvent is for a ClassTree, and we can scan the whole
         // CompilationUnitTree once we've seen all the enclosed classes.
-        transformer.get().apply(new TreePath(compilation), context, countingDescriptionListener);
+        apply(new TreePath(compilation), descriptionListener(log, compilation));
       }
     } catch (ErrorProneError e) {
       e.logFatalError(log, context);
@@ -186,7 +185,37 @@ public class ErrorProneAnalyzer implements TaskListener {
       log.error("proc.cant.access", e.sym, getDetailValue(e), getStackTraceAsString(e));
     } finally {
       log.useSource(originalSource);
-      HubSpotUtils.recordTimings(context);
+    }
+  }
+
+  /**
+   * Creates the listener for a compilation unit that is about to be analyzed, counting the errors
+   * reported to it.
+   */
+  private DescriptionListener descriptionListener(Log log, JCCompilationUnit compilation) {
+    DescriptionListener descriptionListener =
+        descriptionListenerFactory.getDescriptionListener(log, compilation);
+    return new DescriptionListener() {
+      @Override
+      public void onDescribed(Description description) {
+        if (description.severity == SeverityLevel.ERROR) {
+          errorProneErrors++;
+        }
+        descriptionListener.onDescribed(description);
+      }
+
+      @Override
+      public void onCompilationUnitFinished() {
+        descriptionListener.onCompilationUnitFinished();
+      }
+    };
+  }
+
+  private void apply(TreePath path, DescriptionListener descriptionListener) {
+    try {
+      transformer.get().apply(path, context, descriptionListener);
+    } finally {
+      descriptionListener.onCompilationUnitFinished();
     }
   }
 
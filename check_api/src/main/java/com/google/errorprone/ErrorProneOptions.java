@@ -26,10 +26,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.apply.ImportOrganizer;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -437,17 +434,15 @@ public class ErrorProneOptions {
           } else if (arg.startsWith(PATCH_CHECKS_PREFIX)) {
             String remaining = arg.substring(PATCH_CHECKS_PREFIX.length());
             if (remaining.startsWith("refaster:")) {
-              // Refaster rule, load from InputStream at file
+              // Refaster rule, load from the bundle at file
               builder
                   .patchingOptionsBuilder()
                   .customRefactorer(
                       () -> {
                         String path = remaining.substring("refaster:".length());
-                        try (InputStream in =
-                                Files.newInputStream(FileSystems.getDefault().getPath(path));
-                            ObjectInputStream ois = new ObjectInputStream(in)) {
-                          return (CodeTransformer) ois.readObject();
-                        } catch (IOException | ClassNotFoundException e) {
+                        try {
+                          return CodeTransformerBundle.load(FileSystems.getDefault().getPath(path));
+                        } catch (IOException e) {
                           throw new RuntimeException("Can't load Refaster rule from " + path, e);
                         }
                       });
@@ -16,16 +16,37 @@
 
 package com.google.errorprone;
 
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.base.Preconditions.checkState;
 
-import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.google.errorprone.matchers.Suppressible;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
 import com.sun.tools.javac.util.Context;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
 
-/** A collection of timing data for the runtime of individual checks. */
+/**
+ * A collection of timing data for the runtime of individual checks.
+ *
+ * <p>Each check is assigned a dense ordinal the first time it is seen, and spans are recorded by a
+ * {@link Profiler} into plain arrays indexed by that ordinal, so opening and closing a span neither
+ * allocates nor looks anything up by name. Spans are recorded on the compiler's thread.
+ *
+ * <p>Besides the totals for each check, the time of each span is attributed to the {@link
+ * Tree.Kind} the check was matching and, while a {@link #setCompilationUnitListener listener} is
+ * set, to the compilation unit being scanned.
+ */
 public final class ErrorProneTimings {
 
   private static final Context.Key<ErrorProneTimings> timingsKey = new Context.Key<>();
@@ -42,18 +63,409 @@ public final class ErrorProneTimings {
     context.put(timingsKey, this);
   }
 
-  private final Map<String, Stopwatch> timers = new HashMap<>();
+  private final Map<String, Integer> ordinals = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+  private final Profiler profiler = new Profiler(this, 16);
+
+  /** Returns the ordinal used to record spans of the given {@link Suppressible}. */
+  public int ordinal(Suppressible suppressible) {
+    return ordinal(suppressible.canonicalName());
+  }
+
+  /** Returns the ordinal used to record spans of the check with the given name. */
+  public int ordinal(String name) {
+    return ordinals.computeIfAbsent(
+        name,
+        k -> {
+          names.add(k);
+          return names.size() - 1;
+        });
+  }
+
+  @Nullable private Consumer<CompilationUnitTiming> compilationUnitListener;
+
+  /**
+   * Sets a listener to be notified of the time spent in each compilation unit once it has been
+   * scanned. Time is only broken down by compilation unit while a listener is set.
+   */
+  public void setCompilationUnitListener(Consumer<CompilationUnitTiming> listener) {
+    this.compilationUnitListener = listener;
+  }
 
-  /** Creates a timing span for the given {@link Suppressible}. */
+  /** Returns the profiler that records the spans of this compilation. */
+  public Profiler profiler() {
+    return profiler;
+  }
+
+  /**
+   * Creates a timing span for the given {@link Suppressible}.
+   *
+   * <p>Prefer {@link #profiler()} on hot paths: this method allocates the returned span.
+   */
   public AutoCloseable span(Suppressible suppressible) {
-    String key = suppressible.canonicalName();
-    Stopwatch sw = timers.computeIfAbsent(key, k -> Stopwatch.createUnstarted()).start();
-    return () -> sw.stop();
+    Profiler profiler = profiler();
+    profiler.enter(ordinal(suppressible));
+    return profiler::exit;
   }
 
   /** Returns the elapsed durations of each timer. */
   public Map<String, Duration> timings() {
-    return timers.entrySet().stream()
-        .collect(toImmutableMap(e -> e.getKey(), e -> e.getValue().elapsed()));
+    return ImmutableMap.copyOf(Maps.transformValues(checkTimings(), CheckTiming::total));
+  }
+
+  /** Returns the timing data recorded for each check that has been run at least once. */
+  public Map<String, CheckTiming> checkTimings() {
+    int size = names.size();
+    long[] invocations = new long[size];
+    long[] hits = new long[size];
+    long[] totalNanos = new long[size];
+    long[] selfNanos = new long[size];
+    profiler.addTo(invocations, hits, totalNanos, selfNanos);
+    ImmutableMap.Builder<String, CheckTiming> result = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      if (invocations[i] > 0) {
+        result.put(
+            names.get(i), new CheckTiming(invocations[i], hits[i], totalNanos[i], selfNanos[i]));
+      }
+    }
+    return result.build();
+  }
+
+  /**
+   * Returns the time spent in spans of checks matching each {@link Tree.Kind}. Only the self time
+   * of each span is counted, so that the time of the kinds adds up to the time spent in checks.
+   */
+  public Map<Tree.Kind, Totals> kindTimings() {
+    ImmutableMap.Builder<Tree.Kind, Totals> result = ImmutableMap.builder();
+    for (int i = 0; i < KINDS.length; i++) {
+      if (profiler.kindInvocations[i] > 0) {
+        result.put(KINDS[i], new Totals(profiler.kindInvocations[i], profiler.kindNanos[i]));
+      }
+    }
+    return result.build();
+  }
+
+  private static final Tree.Kind[] KINDS = Tree.Kind.values();
+
+  private final Map<Tree.Kind, LongAdder> prunedSubtrees = new ConcurrentHashMap<>();
+
+  /**
+   * Records that a subtree rooted at a tree of the given kind was skipped, because every check was
+   * suppressed in it.
+   */
+  public void recordPrunedSubtree(Tree.Kind kind) {
+    prunedSubtrees.computeIfAbsent(kind, k -> new LongAdder()).increment();
+  }
+
+  /** Returns the number of subtrees that were skipped, by the kind of their root. */
+  public Map<Tree.Kind, Long> prunedSubtrees() {
+    return ImmutableMap.copyOf(Maps.transformValues(prunedSubtrees, LongAdder::sum));
+  }
+
+  private final Map<String, CacheCounters> cacheCounters = new ConcurrentHashMap<>();
+
+  /** Returns the counters of the cache with the given name, creating them on first use. */
+  public CacheCounters cacheCounters(String name) {
+    return cacheCounters.computeIfAbsent(name, k -> new CacheCounters());
+  }
+
+  /** Returns the counters of every cache that has been looked up at least once. */
+  public Map<String, CacheCounters> allCacheCounters() {
+    return ImmutableMap.copyOf(
+        Maps.filterValues(cacheCounters, c -> c.hits() > 0 || c.misses() > 0));
+  }
+
+  /**
+   * The outcomes of the lookups in a cache. A rebuild is a miss for an entry that had already been
+   * computed and was evicted since, so rebuilds are also counted as misses.
+   */
+  public static final class CacheCounters {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+
+    CacheCounters() {}
+
+    public void recordHit() {
+      hits.increment();
+    }
+
+    public void recordMiss() {
+      misses.increment();
+    }
+
+    /** Records a miss, and the time it took to compute the missing entry. */
+    public void recordMiss(long nanos) {
+      misses.increment();
+      missNanos.add(nanos);
+    }
+
+    public void recordRebuild() {
+      misses.increment();
+      rebuilds.increment();
+    }
+
+    public long hits() {
+      return hits.sum();
+    }
+
+    public long misses() {
+      return misses.sum();
+    }
+
+    public long rebuilds() {
+      return rebuilds.sum();
+    }
+
+    /** The time spent computing missing entries, for the misses that recorded it. */
+    public Duration missTime() {
+      return Duration.ofNanos(missNanos.sum());
+    }
+  }
+
+  /** The number and duration of a group of spans. */
+  public static final class Totals {
+    private final long invocations;
+    private final long nanos;
+
+    Totals(long invocations, long nanos) {
+      this.invocations = invocations;
+      this.nanos = nanos;
+    }
+
+    /** The number of spans. */
+    public long invocations() {
+      return invocations;
+    }
+
+    /** The time spent in the spans. */
+    public Duration time() {
+      return Duration.ofNanos(nanos);
+    }
+  }
+
+  /**
+   * The time spent by checks in a single compilation unit. Only the self time of each span is
+   * counted.
+   */
+  public static final class CompilationUnitTiming {
+    private final String file;
+    private final Totals total;
+    private final ImmutableMap<String, Totals> checks;
+
+    CompilationUnitTiming(String file, Totals total, ImmutableMap<String, Totals> checks) {
+      this.file = file;
+      this.total = total;
+      this.checks = checks;
+    }
+
+    /** The name of the compilation unit's source file. */
+    public String file() {
+      return file;
+    }
+
+    /** The time spent by all checks in the compilation unit. */
+    public Totals total() {
+      return total;
+    }
+
+    /** The time spent by each check that ran in the compilation unit. */
+    public ImmutableMap<String, Totals> checks() {
+      return checks;
+    }
+  }
+
+  /** The timing data recorded for a single check. */
+  public static final class CheckTiming {
+    private final long invocations;
+    private final long hits;
+    private final long totalNanos;
+    private final long selfNanos;
+
+    CheckTiming(long invocations, long hits, long totalNanos, long selfNanos) {
+      this.invocations = invocations;
+      this.hits = hits;
+      this.totalNanos = totalNanos;
+      this.selfNanos = selfNanos;
+    }
+
+    /** The number of spans recorded for the check. */
+    public long invocations() {
+      return invocations;
+    }
+
+    /** The number of spans that produced a {@link com.google.errorprone.matchers.Description}. */
+    public long hits() {
+      return hits;
+    }
+
+    /**
+     * The time spent in the check's spans. Spans of the check nested inside another of its own
+     * spans are only counted once.
+     */
+    public Duration total() {
+      return Duration.ofNanos(totalNanos);
+    }
+
+    /** The time spent in the check's spans, excluding the time of spans nested inside them. */
+    public Duration self() {
+      return Duration.ofNanos(selfNanos);
+    }
+  }
+
+  /**
+   * Records spans into arrays indexed by check ordinal. Spans must be strictly nested: every {@link
+   * #enter} is matched by an {@link #exit} before the enclosing span is exited.
+   */
+  public static final class Profiler {
+    private final ErrorProneTimings timings;
+
+    private long[] invocations;
+    private long[] hits;
+    private long[] totalNanos;
+    private long[] selfNanos;
+    /** How many spans of each check are currently open, to avoid counting recursion twice. */
+    private int[] open;
+
+    private final long[] kindInvocations = new long[KINDS.length];
+    private final long[] kindNanos = new long[KINDS.length];
+
+    /** The compilation unit being scanned, or null if its time is not being recorded. */
+    @Nullable private String unitFile;
+
+    @Nullable private Consumer<CompilationUnitTiming> unitListener;
+    private long[] unitInvocations;
+    private long[] unitNanos;
+    /** The ordinals of the checks with spans in the current compilation unit. */
+    private int[] unitOrdinals = new int[16];
+
+    private int unitChecks = 0;
+    private int depth = 0;
+    private int[] stackOrdinals = new int[8];
+    private int[] stackKinds = new int[8];
+    private long[] stackStarts = new long[8];
+    private long[] stackChildNanos = new long[8];
+
+    private Profiler(ErrorProneTimings timings, int size) {
+      this.timings = timings;
+      resize(Math.max(size, 16));
+    }
+
+    /**
+     * Starts recording the time spent in the given compilation unit, if the {@link
+     * ErrorProneTimings} has a {@link #setCompilationUnitListener listener}.
+     */
+    public void startCompilationUnit(CompilationUnitTree compilationUnit) {
+      unitListener = timings.compilationUnitListener;
+      unitFile = unitListener != null ? ASTHelpers.getFileName(compilationUnit) : null;
+    }
+
+    /** Finishes recording the current compilation unit and reports it to the listener. */
+    public void finishCompilationUnit() {
+      if (unitFile == null) {
+        return;
+      }
+      ImmutableMap.Builder<String, Totals> checks = ImmutableMap.builder();
+      long invocations = 0;
+      long nanos = 0;
+      for (int i = 0; i < unitChecks; i++) {
+        int ordinal = unitOrdinals[i];
+        checks.put(
+            timings.names.get(ordinal), new Totals(unitInvocations[ordinal], unitNanos[ordinal]));
+        invocations += unitInvocations[ordinal];
+        nanos += unitNanos[ordinal];
+        unitInvocations[ordinal] = 0;
+        unitNanos[ordinal] = 0;
+      }
+      unitChecks = 0;
+      String file = unitFile;
+      unitFile = null;
+      unitListener.accept(
+          new CompilationUnitTiming(file, new Totals(invocations, nanos), checks.build()));
+    }
+
+    /** Opens a span for the check with the given ordinal. */
+    public void enter(int ordinal) {
+      enter(ordinal, null);
+    }
+
+    /** Opens a span for the check with the given ordinal, matching a tree of the given kind. */
+    public void enter(int ordinal, @Nullable Tree.Kind kind) {
+      if (ordinal >= invocations.length) {
+        resize(Math.max(ordinal + 1, invocations.length * 2));
+      }
+      if (depth == stackOrdinals.length) {
+        stackOrdinals = Arrays.copyOf(stackOrdinals, depth * 2);
+        stackKinds = Arrays.copyOf(stackKinds, depth * 2);
+        stackStarts = Arrays.copyOf(stackStarts, depth * 2);
+        stackChildNanos = Arrays.copyOf(stackChildNanos, depth * 2);
+      }
+      open[ordinal]++;
+      stackOrdinals[depth] = ordinal;
+      stackKinds[depth] = kind != null ? kind.ordinal() : -1;
+      stackChildNanos[depth] = 0;
+      stackStarts[depth++] = System.nanoTime();
+    }
+
+    /** Closes the innermost open span. */
+    public void exit() {
+      long now = System.nanoTime();
+      checkState(depth > 0, "no open span");
+      int ordinal = stackOrdinals[--depth];
+      long elapsed = now - stackStarts[depth];
+      long self = elapsed - stackChildNanos[depth];
+      invocations[ordinal]++;
+      selfNanos[ordinal] += self;
+      if (--open[ordinal] == 0) {
+        totalNanos[ordinal] += elapsed;
+      }
+      if (depth > 0) {
+        stackChildNanos[depth - 1] += elapsed;
+      }
+      int kind = stackKinds[depth];
+      if (kind >= 0) {
+        kindInvocations[kind]++;
+        kindNanos[kind] += self;
+      }
+      if (unitFile != null) {
+        if (unitInvocations[ordinal]++ == 0) {
+          if (unitChecks == unitOrdinals.length) {
+            unitOrdinals = Arrays.copyOf(unitOrdinals, unitChecks * 2);
+          }
+          unitOrdinals[unitChecks++] = ordinal;
+        }
+        unitNanos[ordinal] += self;
+      }
+    }
+
+    /** Records that a span of the check with the given ordinal produced a finding. */
+    public void hit(int ordinal) {
+      hits[ordinal]++;
+    }
+
+    private void resize(int size) {
+      invocations = copyOf(invocations, size);
+      hits = copyOf(hits, size);
+      totalNanos = copyOf(totalNanos, size);
+      selfNanos = copyOf(selfNanos, size);
+      open = open == null ? new int[size] : Arrays.copyOf(open, size);
+      unitInvocations = copyOf(unitInvocations, size);
+      unitNanos = copyOf(unitNanos, size);
+    }
+
+    private static long[] copyOf(long[] array, int size) {
+      return array == null ? new long[size] : Arrays.copyOf(array, size);
+    }
+
+    private void addTo(long[] invocations, long[] hits, long[] totalNanos, long[] selfNanos) {
+      int size = Math.min(invocations.length, this.invocations.length);
+      for (int i = 0; i < size; i++) {
+        invocations[i] += this.invocations[i];
+        hits[i] += this.hits[i];
+        totalNanos[i] += this.totalNanos[i];
+        selfNanos[i] += this.selfNanos[i];
+      }
+    }
   }
 }
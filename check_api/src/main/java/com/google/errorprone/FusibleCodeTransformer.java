@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A {@link CodeTransformer} that can be fused with other transformers of the same class into one
+ * that applies them all in a single pass.
+ */
+public interface FusibleCodeTransformer extends CodeTransformer {
+  /**
+   * Returns a transformer that reports the same descriptions, in the same order, as applying each
+   * of the given transformers in turn. Every transformer has the same class as this one.
+   */
+  CodeTransformer fuse(ImmutableList<CodeTransformer> transformers);
+}
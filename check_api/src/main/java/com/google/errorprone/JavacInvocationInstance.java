@@ -15,15 +15,27 @@
  */
 package com.google.errorprone;
 
+import com.google.common.collect.MapMaker;
 import com.sun.tools.javac.util.Context;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A token uniquely identifying a single invocation of javac. Any caches which might otherwise
  * persist indefinitely should be reset if they detect that the JavacInvocationInstance inside their
  * {@link Context} has changed. The only meaningful way to compare JavacInvocationInstance objects
- * is by their object identity, as they have no properties.
+ * is by their object identity.
+ *
+ * <p>Caches that outlive the invocation can hand their entries to {@link #retain} and reference
+ * them weakly, so the entries stay reachable for exactly as long as the invocation.
  */
 public class JavacInvocationInstance {
+  // Keyed by the identity of the cache that owns each entry. The keys are weak, so that caches
+  // created on the fly don't accumulate for the rest of the invocation; the entries of collected
+  // caches are dropped on the next write. Each cache only writes once per invocation, so a single
+  // segment is enough.
+  private final ConcurrentMap<Object, Object> retained =
+      new MapMaker().weakKeys().concurrencyLevel(1).makeMap();
+
   public static JavacInvocationInstance instance(Context context) {
     JavacInvocationInstance instance = context.get(JavacInvocationInstance.class);
     if (instance == null) {
@@ -32,4 +44,15 @@ public class JavacInvocationInstance {
     }
     return instance;
   }
+
+  /**
+   * Keeps {@code value} strongly reachable for as long as both this invocation and {@code owner}
+   * are. Each owner has at most one value: if one has already been retained for {@code owner}, it is
+   * kept and returned instead.
+   */
+  @SuppressWarnings("unchecked") // each owner only retains values of one type
+  <T> T retain(Object owner, T value) {
+    Object previous = retained.putIfAbsent(owner, value);
+    return previous != null ? (T) previous : value;
+  }
 }
@@ -16,10 +16,6 @@
 
 package com.google.errorprone;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.StandardOpenOption.APPEND;
-import static java.nio.file.StandardOpenOption.CREATE;
-
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterables;
@@ -27,29 +23,28 @@ import com.google.common.collect.Multimap;
 import com.google.errorprone.ErrorProneOptions.PatchingOptions;
 import com.google.errorprone.apply.DescriptionBasedDiff;
 import com.google.errorprone.apply.FileDestination;
-import com.google.errorprone.apply.FileSource;
 import com.google.errorprone.apply.FsFileDestination;
-import com.google.errorprone.apply.FsFileSource;
 import com.google.errorprone.apply.ImportOrganizer;
-import com.google.errorprone.apply.PatchFileDestination;
 import com.google.errorprone.apply.SourceFile;
+import com.google.errorprone.apply.StreamingPatchFileDestination;
 import com.google.errorprone.descriptionlistener.DescriptionListeners;
 import com.google.errorprone.hubspot.HubSpotPatchUtils;
 import com.google.errorprone.matchers.Description;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Log.WriterKind;
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.io.PrintWriter;
 import java.net.URI;
 import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.tools.JavaFileObject;
 
 /** A container of fixes that have been collected during a single compilation phase. */
 class RefactoringCollection implements DescriptionListener.Factory {
@@ -57,12 +52,21 @@ class RefactoringCollection implements DescriptionListener.Factory {
   private static final Logger logger = Logger.getLogger(RefactoringCollection.class.getName());
 
   private final Multimap<URI, DelegatingDescriptionListener> foundSources = HashMultimap.create();
-  private final Path rootPath;
+  private final Context context;
   private final FileDestination fileDestination;
   private final Function<URI, RefactoringResult> postProcess;
   private final DescriptionListener.Factory descriptionsFactory;
   private final ImportOrganizer importOrganizer;
 
+  /**
+   * The message to report once the changes have been flushed to the file destination, or null if
+   * each change is reported as it is applied.
+   */
+  @Nullable private final String flushedMessage;
+
+  /** Whether any change has been written to the file destination since it was last flushed. */
+  private boolean changed = false;
+
   @AutoValue
   abstract static class RefactoringResult {
     abstract String message();
@@ -83,6 +87,7 @@ class RefactoringCollection implements DescriptionListener.Factory {
     Path rootPath = buildRootPath();
     FileDestination fileDestination;
     Function<URI, RefactoringResult> postProcess;
+    String flushedMessage = null;
 
     if (patchingOptions.inPlace()) {
       fileDestination = new FsFileDestination(rootPath);
@@ -98,43 +103,31 @@ class RefactoringCollection implements DescriptionListener.Factory {
       Path baseDir = rootPath.resolve(patchingOptions.baseDirectory());
       Path patchFilePath = HubSpotPatchUtils.resolvePatchFile(baseDir);
 
-      PatchFileDestination patchFileDestination = new PatchFileDestination(baseDir, rootPath);
-      postProcess =
-          new Function<URI, RefactoringResult>() {
-            private final AtomicBoolean first = new AtomicBoolean(true);
-
-            @Override
-            public RefactoringResult apply(URI uri) {
-              try {
-                writePatchFile(first, uri, patchFileDestination, patchFilePath);
-                return RefactoringResult.create(
-                    "Changes were written to "
-                        + patchFilePath
-                        + ". Please inspect the file and apply with: "
-                        + "patch -p0 -u -i error-prone.patch",
-                    RefactoringResultType.CHANGED);
-              } catch (IOException e) {
-                throw new RuntimeException("Failed to emit patch file!", e);
-              }
-            }
-          };
-      fileDestination = patchFileDestination;
+      fileDestination = new StreamingPatchFileDestination(baseDir, rootPath, patchFilePath);
+      // The diffs are only known to have been written once the destination has been flushed.
+      postProcess = uri -> RefactoringResult.create("", RefactoringResultType.CHANGED);
+      flushedMessage =
+          "Changes were written to "
+              + patchFilePath
+              + ". Please inspect the file and apply with: "
+              + "patch -p0 -u -i error-prone.patch";
     }
 
     ImportOrganizer importOrganizer = patchingOptions.importOrganizer();
     return new RefactoringCollection(
-        rootPath, fileDestination, postProcess, importOrganizer, context);
+        fileDestination, postProcess, flushedMessage, importOrganizer, context);
   }
 
   private RefactoringCollection(
-      Path rootPath,
       FileDestination fileDestination,
       Function<URI, RefactoringResult> postProcess,
+      @Nullable String flushedMessage,
       ImportOrganizer importOrganizer,
       Context context) {
-    this.rootPath = rootPath;
+    this.context = context;
     this.fileDestination = fileDestination;
     this.postProcess = postProcess;
+    this.flushedMessage = flushedMessage;
     this.descriptionsFactory = DescriptionListeners.factoryForRefactoring(context);
     this.importOrganizer = importOrganizer;
   }
@@ -154,47 +147,52 @@ class RefactoringCollection implements DescriptionListener.Factory {
     DelegatingDescriptionListener delegate =
         new DelegatingDescriptionListener(
             descriptionsFactory.getDescriptionListener(log, compilation),
-            DescriptionBasedDiff.createIgnoringOverlaps(compilation, importOrganizer));
+            DescriptionBasedDiff.createIgnoringOverlaps(compilation, importOrganizer),
+            compilation.getSourceFile());
     foundSources.put(sourceFile, delegate);
     return delegate;
   }
 
+  @Override
+  public void onCompilationFinished() {
+    descriptionsFactory.onCompilationFinished();
+    boolean flushedChanges = changed;
+    changed = false;
+    try {
+      fileDestination.flush();
+    } catch (IOException e) {
+      PrintWriter out = Log.instance(context).getWriter(WriterKind.ERROR);
+      out.println("Failed to emit patch file: " + e.getMessage());
+      out.flush();
+      return;
+    }
+    if (flushedChanges && flushedMessage != null) {
+      PrintWriter out = Log.instance(context).getWriter(WriterKind.NOTICE);
+      out.println(flushedMessage);
+      out.flush();
+    }
+  }
+
   RefactoringResult applyChanges(URI uri) throws Exception {
     Collection<DelegatingDescriptionListener> listeners = foundSources.removeAll(uri);
     if (listeners.isEmpty()) {
       return RefactoringResult.create("", RefactoringResultType.NO_CHANGES);
     }
 
-    doApplyProcess(fileDestination, new FsFileSource(rootPath), listeners);
+    doApplyProcess(fileDestination, listeners);
+    changed = true;
     return postProcess.apply(uri);
   }
 
-  private static void writePatchFile(
-      AtomicBoolean first, URI uri, PatchFileDestination fileDestination, Path patchFilePatch)
-      throws IOException {
-    String patchFile = fileDestination.patchFile(uri);
-    if (patchFile != null) {
-      if (first.compareAndSet(true, false)) {
-        try {
-          Files.deleteIfExists(patchFilePatch);
-        } catch (IOException e) {
-          throw new UncheckedIOException(e);
-        }
-      }
-      Files.createDirectories(patchFilePatch.getParent());
-      Files.write(patchFilePatch, patchFile.getBytes(UTF_8), APPEND, CREATE);
-    }
-  }
-
   private void doApplyProcess(
-      FileDestination fileDestination,
-      FileSource fileSource,
-      Collection<DelegatingDescriptionListener> listeners) {
+      FileDestination fileDestination, Collection<DelegatingDescriptionListener> listeners) {
     for (DelegatingDescriptionListener listener : listeners) {
       try {
-        SourceFile file = fileSource.readFile(listener.base.getRelevantFileName());
+        // Reuse javac's copy of the source rather than reading the file again.
+        CharSequence originalSource = listener.sourceFile.getCharContent(false);
+        SourceFile file = new SourceFile(listener.base.getRelevantFileName(), originalSource);
         listener.base.applyDifferences(file);
-        fileDestination.writeFile(file);
+        fileDestination.writeFile(file, originalSource);
       } catch (IOException e) {
         logger.log(
             Level.WARNING,
@@ -207,10 +205,13 @@ class RefactoringCollection implements DescriptionListener.Factory {
   private static final class DelegatingDescriptionListener implements DescriptionListener {
     final DescriptionBasedDiff base;
     final DescriptionListener listener;
+    final JavaFileObject sourceFile;
 
-    DelegatingDescriptionListener(DescriptionListener listener, DescriptionBasedDiff base) {
+    DelegatingDescriptionListener(
+        DescriptionListener listener, DescriptionBasedDiff base, JavaFileObject sourceFile) {
       this.listener = listener;
       this.base = base;
+      this.sourceFile = sourceFile;
     }
 
     @Override
@@ -218,5 +219,10 @@ class RefactoringCollection implements DescriptionListener.Factory {
       listener.onDescribed(description);
       base.onDescribed(description);
     }
+
+    @Override
+    public void onCompilationUnitFinished() {
+      listener.onCompilationUnitFinished();
+    }
   }
 }
@@ -18,7 +18,10 @@ package com.google.errorprone;
 
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.errorprone.annotations.Immutable;
 import com.google.errorprone.hubspot.HubSpotUtils;
@@ -34,9 +37,13 @@ import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.util.Name;
 import com.sun.tools.javac.util.Pair;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
@@ -52,8 +59,14 @@ import java.util.stream.Stream;
 @Immutable
 @CheckReturnValue
 public class SuppressionInfo {
+  /**
+   * Interns instances, so that the same suppression signals found on different symbols share one
+   * instance, and the suppressed checkers it has computed.
+   */
+  private static final Interner<SuppressionInfo> INTERNER = Interners.newWeakInterner();
+
   public static final SuppressionInfo EMPTY =
-      new SuppressionInfo(ImmutableSet.of(), ImmutableSet.of(), false);
+      create(ImmutableSet.of(), ImmutableSet.of(), false, false);
 
   private static final Supplier<Name> ANDROID_SUPPRESS_LINT =
       VisitorState.memoize(state -> state.getName("android.annotation.SuppressLint"));
@@ -71,11 +84,35 @@ public class SuppressionInfo {
 
   private final boolean inGeneratedCode;
 
+  /**
+   * Whether {@link #inGeneratedCode} already accounts for the compilation unit matching the
+   * generated sources patterns, which is the same for the whole unit and so only checked once.
+   */
+  private final boolean generatedSourceChecked;
+
+  /** The checkers suppressed by the signals of this object, for each list of checkers queried. */
+  @SuppressWarnings("Immutable") /* A cache of values derived from the fields above. */
+  private final Map<Checkers, SuppressedCheckers> suppressedCheckers = new ConcurrentHashMap<>();
+
   private SuppressionInfo(
-      Set<String> suppressWarningsStrings, Set<Name> customSuppressions, boolean inGeneratedCode) {
+      Set<String> suppressWarningsStrings,
+      Set<Name> customSuppressions,
+      boolean inGeneratedCode,
+      boolean generatedSourceChecked) {
     this.suppressWarningsStrings = ImmutableSet.copyOf(suppressWarningsStrings);
     this.customSuppressions = ImmutableSet.copyOf(customSuppressions);
     this.inGeneratedCode = inGeneratedCode;
+    this.generatedSourceChecked = generatedSourceChecked;
+  }
+
+  private static SuppressionInfo create(
+      Set<String> suppressWarningsStrings,
+      Set<Name> customSuppressions,
+      boolean inGeneratedCode,
+      boolean generatedSourceChecked) {
+    return INTERNER.intern(
+        new SuppressionInfo(
+            suppressWarningsStrings, customSuppressions, inGeneratedCode, generatedSourceChecked));
   }
 
   private static boolean isGenerated(Symbol sym, VisitorState state) {
@@ -95,22 +132,55 @@ public class SuppressionInfo {
       return SuppressedState.SUPPRESSED;
     }
 
-    if (HubSpotUtils.isCanonicalSuppressionEnabled(state)) {
-      if (suppressible.supportsSuppressWarnings()
-          && suppressWarningsStrings.contains(suppressible.canonicalName())) {
-        return SuppressedState.SUPPRESSED;
-      }
-    } else {
-      if (suppressible.supportsSuppressWarnings()
-          && !Collections.disjoint(suppressible.allNames(), suppressWarningsStrings)) {
-        return SuppressedState.SUPPRESSED;
-      }
+    if (suppressedBySignals(
+        suppressible, HubSpotUtils.isCanonicalSuppressionEnabled(state), state)) {
+      return SuppressedState.SUPPRESSED;
     }
-    if (suppressible.suppressedByAnyOf(customSuppressions, state)) {
+    return SuppressedState.UNSUPPRESSED;
+  }
+
+  /**
+   * Returns whether the checker at the given index of {@code checkers} should be considered
+   * suppressed given the signals present in this object. Equivalent to {@link
+   * #suppressedState(Suppressible, boolean, VisitorState)}, but the checkers suppressed by these
+   * signals are only computed once per list of checkers, after which this is a single bit test.
+   *
+   * @param checkers The checkers being run
+   * @param index The index of the checker in {@code checkers}
+   * @param suppressedInGeneratedCode true if this checker instance should be considered suppressed
+   */
+  public SuppressedState suppressedState(
+      Checkers checkers, int index, boolean suppressedInGeneratedCode, VisitorState state) {
+    if (inGeneratedCode && suppressedInGeneratedCode) {
       return SuppressedState.SUPPRESSED;
     }
+    if (suppressWarningsStrings.isEmpty() && customSuppressions.isEmpty()) {
+      return SuppressedState.UNSUPPRESSED;
+    }
+    boolean canonicalOnly = HubSpotUtils.isCanonicalSuppressionEnabled(state);
+    SuppressedCheckers suppressed = suppressedCheckers.get(checkers);
+    if (suppressed == null || suppressed.canonicalOnly != canonicalOnly) {
+      BitSet bits = new BitSet(checkers.suppressibles.size());
+      for (int i = 0; i < checkers.suppressibles.size(); i++) {
+        if (suppressedBySignals(checkers.suppressibles.get(i), canonicalOnly, state)) {
+          bits.set(i);
+        }
+      }
+      suppressed = new SuppressedCheckers(canonicalOnly, bits);
+      suppressedCheckers.put(checkers, suppressed);
+    }
+    return suppressed.bits.get(index) ? SuppressedState.SUPPRESSED : SuppressedState.UNSUPPRESSED;
+  }
 
-    return SuppressedState.UNSUPPRESSED;
+  private boolean suppressedBySignals(
+      Suppressible suppressible, boolean canonicalOnly, VisitorState state) {
+    if (suppressible.supportsSuppressWarnings()
+        && (canonicalOnly
+            ? suppressWarningsStrings.contains(suppressible.canonicalName())
+            : !Collections.disjoint(suppressible.allNames(), suppressWarningsStrings))) {
+      return true;
+    }
+    return suppressible.suppressedByAnyOf(customSuppressions, state);
   }
 
   /**
@@ -120,7 +190,8 @@ public class SuppressionInfo {
    */
   public SuppressionInfo forCompilationUnit(CompilationUnitTree tree, VisitorState state) {
     if (HubSpotUtils.isGeneratedCodeInspectionEnabled(state)) {
-      return new SuppressionInfo(suppressWarningsStrings, customSuppressions, HubSpotUtils.isGenerated(state));
+      return create(
+          suppressWarningsStrings, customSuppressions, HubSpotUtils.isGenerated(state), true);
     }
 
     AtomicBoolean generated = new AtomicBoolean(false);
@@ -132,7 +203,8 @@ public class SuppressionInfo {
         return null;
       }
     }.visit(tree.getTypeDecls(), null);
-    return new SuppressionInfo(suppressWarningsStrings, customSuppressions, generated.get());
+    return create(
+        suppressWarningsStrings, customSuppressions, generated.get(), generatedSourceChecked);
   }
 
   /**
@@ -153,13 +225,20 @@ public class SuppressionInfo {
   public SuppressionInfo withExtendedSuppressions(
       Symbol sym, VisitorState state, Set<? extends Name> customSuppressionAnnosToLookFor) {
     boolean newInGeneratedCode;
+    boolean newGeneratedSourceChecked = generatedSourceChecked;
     if (HubSpotUtils.isGeneratedCodeInspectionEnabled(state)) {
-      newInGeneratedCode = inGeneratedCode || HubSpotUtils.isGenerated(state);
+      // Whether the source is generated only depends on its compilation unit, which is usually
+      // checked by forCompilationUnit already.
+      newInGeneratedCode =
+          inGeneratedCode || (!generatedSourceChecked && HubSpotUtils.isGenerated(state));
+      newGeneratedSourceChecked = true;
     } else {
       newInGeneratedCode = inGeneratedCode || isGenerated(sym, state);
     }
 
-    boolean anyModification = newInGeneratedCode != inGeneratedCode;
+    boolean anyModification =
+        newInGeneratedCode != inGeneratedCode
+            || newGeneratedSourceChecked != generatedSourceChecked;
 
     /* Handle custom suppression annotations. */
     Set<Name> lookingFor = new HashSet<>(customSuppressionAnnosToLookFor);
@@ -214,7 +293,49 @@ public class SuppressionInfo {
     if (newSuppressions == null) {
       newSuppressions = suppressWarningsStrings;
     }
-    return new SuppressionInfo(newSuppressions, newCustomSuppressions, newInGeneratedCode);
+    return create(
+        newSuppressions, newCustomSuppressions, newInGeneratedCode, newGeneratedSourceChecked);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof SuppressionInfo)) {
+      return false;
+    }
+    SuppressionInfo that = (SuppressionInfo) obj;
+    return inGeneratedCode == that.inGeneratedCode
+        && generatedSourceChecked == that.generatedSourceChecked
+        && suppressWarningsStrings.equals(that.suppressWarningsStrings)
+        && customSuppressions.equals(that.customSuppressions);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        suppressWarningsStrings, customSuppressions, inGeneratedCode, generatedSourceChecked);
+  }
+
+  /**
+   * A list of checkers whose suppression can be looked up by index with {@link
+   * #suppressedState(Checkers, int, boolean, VisitorState)}. Instances are compared by identity, so
+   * a scanner should create one for its checkers and keep reusing it.
+   */
+  public static final class Checkers {
+    private final ImmutableList<Suppressible> suppressibles;
+
+    public Checkers(Iterable<? extends Suppressible> suppressibles) {
+      this.suppressibles = ImmutableList.copyOf(suppressibles);
+    }
+  }
+
+  private static final class SuppressedCheckers {
+    private final boolean canonicalOnly;
+    private final BitSet bits;
+
+    SuppressedCheckers(boolean canonicalOnly, BitSet bits) {
+      this.canonicalOnly = canonicalOnly;
+      this.bits = bits;
+    }
   }
 
   public enum SuppressedState {
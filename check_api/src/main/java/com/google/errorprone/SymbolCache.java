@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import com.google.errorprone.ErrorProneTimings.CacheCounters;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.comp.Todo;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * The class symbols looked up by name during a javac invocation, shared by the {@link
+ * VisitorState}s of every compilation unit.
+ *
+ * <p>Only successful lookups are cached: a class that fails to resolve while one compilation unit
+ * is analyzed may be completed by a later one, so failed lookups are left to the per-unit cache in
+ * {@link VisitorState}. Names are interned by javac, so keys are hashed and compared cheaply.
+ */
+final class SymbolCache {
+
+  private static final Context.Key<SymbolCache> symbolCacheKey = new Context.Key<>();
+
+  /** A rough guess of how many distinct classes the checks look up per class being compiled. */
+  private static final int SYMBOLS_PER_CLASS = 4;
+
+  private static final int MIN_CAPACITY = 256;
+
+  static SymbolCache instance(Context context) {
+    synchronized (SymbolCache.class) {
+      SymbolCache instance = context.get(symbolCacheKey);
+      if (instance == null) {
+        instance = new SymbolCache(context);
+        context.put(symbolCacheKey, instance);
+      }
+      return instance;
+    }
+  }
+
+  private final Map<Name, ClassSymbol> symbols;
+  private final CacheCounters counters;
+
+  private SymbolCache(Context context) {
+    // The first cache is created while the first class is analyzed, when the todo list still
+    // holds (nearly) every class of the compilation.
+    int classes = Todo.instance(context).size();
+    this.symbols = new ConcurrentHashMap<>(Math.max(MIN_CAPACITY, classes * SYMBOLS_PER_CLASS));
+    this.counters = ErrorProneTimings.instance(context).cacheCounters("symbols");
+  }
+
+  /**
+   * Returns the cached symbol for {@code name}, or looks it up with {@code lookup} and caches the
+   * result if it's not null.
+   */
+  @Nullable
+  ClassSymbol get(Name name, Function<Name, ClassSymbol> lookup) {
+    ClassSymbol symbol = symbols.get(name);
+    if (symbol != null) {
+      counters.recordHit();
+      return symbol;
+    }
+    // Not computeIfAbsent: completing a symbol may look up further symbols.
+    long start = System.nanoTime();
+    symbol = lookup.apply(name);
+    counters.recordMiss(System.nanoTime() - start);
+    if (symbol != null) {
+      symbols.putIfAbsent(name, symbol);
+    }
+    return symbol;
+  }
+}
@@ -18,6 +18,7 @@ package com.google.errorprone;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -32,6 +33,9 @@ import com.google.errorprone.matchers.Suppressible;
 import com.google.errorprone.suppliers.Supplier;
 import com.google.errorprone.util.ErrorProneToken;
 import com.google.errorprone.util.ErrorProneTokens;
+import com.google.errorprone.util.SymbolIndex;
+import com.google.errorprone.util.TokenIndex;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
 import com.sun.tools.javac.code.Kinds.Kind;
@@ -55,7 +59,7 @@ import com.sun.tools.javac.util.Name;
 import com.sun.tools.javac.util.Names;
 import com.sun.tools.javac.util.Options;
 import java.io.IOException;
-import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,8 +72,10 @@ public class VisitorState {
 
   private final SharedState sharedState;
   public final Context context;
-  private final TreePath path;
-  private final SuppressedState suppressedState;
+  // Only reassigned in place if this state is a cursor.
+  private TreePath path;
+  private SuppressedState suppressedState;
+  private final boolean cursor;
 
   // The default no-op implementation of DescriptionListener. We use this instead of null so callers
   // of getDescriptionListener() don't have to do null-checking.
@@ -199,6 +205,7 @@ public class VisitorState {
     this.context = context;
     this.suppressedState = suppressedState;
     this.path = path;
+    this.cursor = false;
 
     this.sharedState =
         new SharedState(
@@ -210,22 +217,68 @@ public class VisitorState {
    * parameters only for the things that can change, and reuses its SharedState.
    */
   private VisitorState(
-      Context context, TreePath path, SuppressedState suppressedState, SharedState sharedState) {
+      Context context,
+      TreePath path,
+      SuppressedState suppressedState,
+      SharedState sharedState,
+      boolean cursor) {
     this.context = context;
     this.path = path;
     this.suppressedState = suppressedState;
     this.sharedState = sharedState;
+    this.cursor = cursor;
   }
 
   public VisitorState withPath(TreePath path) {
-    return new VisitorState(context, path, suppressedState, sharedState);
+    return new VisitorState(context, path, suppressedState, sharedState, /* cursor= */ false);
   }
 
   public VisitorState withSuppression(SuppressedState suppressedState) {
-    if (suppressedState == this.suppressedState) {
+    if (suppressedState == this.suppressedState && !cursor) {
+      return this;
+    }
+    return new VisitorState(context, path, suppressedState, sharedState, /* cursor= */ false);
+  }
+
+  /**
+   * Returns a cursor positioned where this state is, or this state if it's already a cursor.
+   *
+   * <p>A cursor is a state that its owner, typically a scanner, moves through the tree in place
+   * with {@link #moveTo} and {@link #setSuppression}, instead of allocating a new state for every
+   * node it visits. A cursor must not be handed to code that may keep it, since the state it
+   * describes changes under it: {@link com.google.errorprone.scanner.ErrorProneScanner} passes
+   * checks a {@link #snapshot} of its cursor, so the states that checks receive never change.
+   */
+  public VisitorState cursor() {
+    if (cursor) {
       return this;
     }
-    return new VisitorState(context, path, suppressedState, sharedState);
+    return new VisitorState(context, path, suppressedState, sharedState, /* cursor= */ true);
+  }
+
+  /** Moves this cursor to {@code path}, and returns it. */
+  public VisitorState moveTo(TreePath path) {
+    checkState(cursor, "Only a cursor can be moved; use withPath instead");
+    this.path = path;
+    return this;
+  }
+
+  /** Sets the suppression state of this cursor, and returns it. */
+  public VisitorState setSuppression(SuppressedState suppressedState) {
+    checkState(cursor, "Only a cursor can be moved; use withSuppression instead");
+    this.suppressedState = suppressedState;
+    return this;
+  }
+
+  /**
+   * Returns a state with the path and suppression this state has now, which is unaffected by any
+   * later moves of this state if it's a cursor.
+   */
+  public VisitorState snapshot() {
+    if (!cursor) {
+      return this;
+    }
+    return new VisitorState(context, path, suppressedState, sharedState, /* cursor= */ false);
   }
 
   public TreePath getPath() {
@@ -388,6 +441,11 @@ public class VisitorState {
    */
   @Nullable
   public ClassSymbol getSymbolFromName(Name name) {
+    return sharedState.symbolCache.get(name, this::lookUpSymbol);
+  }
+
+  @Nullable
+  private ClassSymbol lookUpSymbol(Name name) {
     boolean modular = sharedState.modules.getDefaultModule() != getSymtab().noModule;
     if (!modular) {
       return getSymbolFromString(getSymtab().noModule, name);
@@ -554,35 +612,53 @@ public class VisitorState {
   /**
    * Returns the list of {@link Token}s for the given {@link JCTree}.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are served from the {@link TokenIndex} of the compilation unit, which is lexed
+   * once, on first use, and shared by every check analyzing the unit.
    */
   public List<ErrorProneToken> getTokensForNode(Tree tree) {
-    return ErrorProneTokens.getTokens(getSourceForNode(tree), context);
+    int end = getEndPosition(tree);
+    if (end < 0) {
+      return ErrorProneTokens.getTokens(null, context);
+    }
+    return tokenIndex().relativeTokens(getStartPosition(tree), end);
   }
 
   /**
    * Returns the list of {@link Token}s for the given {@link JCTree}, offset by the start position
    * of the tree within the overall source.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are served from the {@link TokenIndex} of the compilation unit, which is lexed
+   * once, on first use, and shared by every check analyzing the unit.
    */
   public List<ErrorProneToken> getOffsetTokensForNode(Tree tree) {
     int start = getStartPosition(tree);
-    return ErrorProneTokens.getTokens(getSourceForNode(tree), start, context);
+    int end = getEndPosition(tree);
+    if (end < 0) {
+      // There is no source for the node, e.g. for empty modifiers.
+      return ErrorProneTokens.getTokens(null, start, context);
+    }
+    return tokenIndex().tokens(start, end);
   }
 
   /**
    * Returns the list of {@link Token}s for source code between the given positions, offset by the
    * start position.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are served from the {@link TokenIndex} of the compilation unit, which is lexed
+   * once, on first use, and shared by every check analyzing the unit.
    */
   public List<ErrorProneToken> getOffsetTokens(int start, int end) {
-    return ErrorProneTokens.getTokens(
-        getSourceCode().subSequence(start, end).toString(), start, context);
+    return tokenIndex().tokens(start, end);
+  }
+
+  private TokenIndex tokenIndex() {
+    CompilationUnitTree compilationUnit = getPath().getCompilationUnit();
+    TokenIndex tokenIndex = sharedState.tokenIndex;
+    if (tokenIndex == null || tokenIndex.compilationUnit() != compilationUnit) {
+      tokenIndex = TokenIndex.create(compilationUnit, getSourceCode(), context);
+      sharedState.tokenIndex = tokenIndex;
+    }
+    return tokenIndex;
   }
 
   /** Returns the end position of the node, or -1 if it is not available. */
@@ -648,43 +724,68 @@ public class VisitorState {
     return sharedState.timings.span(suppressible);
   }
 
+  /** Returns the {@link ErrorProneTimings} that checks run with this state are recorded in. */
+  public ErrorProneTimings timings() {
+    return sharedState.timings;
+  }
+
+  /**
+   * Returns the declarations and references of symbols in the current compilation unit. The index
+   * is built on first use and shared by every check analyzing the unit.
+   */
+  public SymbolIndex symbolIndex() {
+    CompilationUnitTree compilationUnit = getPath().getCompilationUnit();
+    SymbolIndex symbolIndex = sharedState.symbolIndex;
+    if (symbolIndex == null || symbolIndex.compilationUnit() != compilationUnit) {
+      symbolIndex = SymbolIndex.create(compilationUnit);
+      sharedState.symbolIndex = symbolIndex;
+    }
+    return symbolIndex;
+  }
+
   private static class Cache<T> implements Supplier<T> {
     private final Supplier<T> impl;
-    /* Uses T instead of Optional<T> because we don't want to cache null results
-    (b/138753468). These inline caches persist between compilation units, and a type that fails to
-    resolve in one may become available in the next; we want to keep looking it up
-    (relying on the per-file cache in typeCache) if we don't have a result. If you want to cache a
-    computation which can return null, wrap it in an Optional at the call site.*/
-
-    private SoftReference<T> cache = new SoftReference<>(null);
-    private JavacInvocationInstance provenance;
+    /* Doesn't cache null results (b/138753468). These inline caches persist between compilation
+    units, and a type that fails to resolve in one may become available in the next; we want to
+    keep looking it up (relying on the per-file cache in typeCache) if we don't have a result. If
+    you want to cache a computation which can return null, wrap it in an Optional at the call
+    site.
+
+    The entry is strongly reachable from the javac invocation that computed it, for as long as this
+    cache is reachable, so it isn't dropped under memory pressure while that invocation runs. It's
+    only weakly reachable from this cache, which is usually a class constant and mustn't keep the
+    invocation alive once it's over. */
+    private volatile WeakReference<Entry<T>> entry = new WeakReference<>(null);
 
     private Cache(Supplier<T> impl) {
       this.impl = impl;
-      // provenance intentionally left null-initialized
     }
 
     @Override
-    public synchronized T get(VisitorState state) {
-      /* javac is single-threaded, so in principle we don't really need to lock.
-      But in practice it's cheap enough to be worth getting peace of mind that this is
-      always correct. */
-      T value = cache.get();
+    public T get(VisitorState state) {
+      JavacInvocationInstance current = state.sharedState.javacInvocationInstance;
+      Entry<T> cached = entry.get();
+      if (cached != null && cached.provenance == current) {
+        return cached.value;
+      }
+      // Racing threads may both compute the value, but only the first one is retained.
+      T value = impl.get(state);
       if (value == null) {
-        value = impl.get(state);
-        if (value != null) {
-          cache = new SoftReference<>(value);
-          provenance = state.sharedState.javacInvocationInstance;
-        }
-      } else {
-        JavacInvocationInstance current = state.sharedState.javacInvocationInstance;
-        if (provenance != current) {
-          value = impl.get(state);
-          cache = new SoftReference<>(value);
-          provenance = current;
-        }
+        return null;
+      }
+      cached = current.retain(this, new Entry<>(current, value));
+      entry = new WeakReference<>(cached);
+      return cached.value;
+    }
+
+    private static final class Entry<T> {
+      private final JavacInvocationInstance provenance;
+      private final T value;
+
+      Entry(JavacInvocationInstance provenance, T value) {
+        this.provenance = provenance;
+        this.value = value;
       }
-      return value;
     }
   }
 
@@ -697,6 +798,12 @@ public class VisitorState {
     return new Cache<>(f);
   }
 
+  /** Clears the weak reference a {@link #memoize} cache holds, as the garbage collector may. */
+  @VisibleForTesting
+  static void clearWeakReference(Supplier<?> memoized) {
+    ((Cache<?>) memoized).entry = new WeakReference<>(null);
+  }
+
   /**
    * Instances that every {@link VisitorState} instance can share.
    *
@@ -717,11 +824,24 @@ public class VisitorState {
     private final Map<String, SeverityLevel> severityMap;
     private final ErrorProneOptions errorProneOptions;
 
-    // TODO(ronshapiro): should we presize this with a reasonable size? We can check for the
-    // smallest build and see how many types are loaded and use that. Or perhaps a heuristic
-    // based on number of files?
+    /**
+     * The types looked up while analyzing the current compilation unit, including the ones that
+     * couldn't be found. Successfully resolved classes are also shared across units by {@link
+     * #symbolCache}.
+     */
     private final Map<String, Optional<Type>> typeCache = new HashMap<>();
 
+    private final SymbolCache symbolCache;
+
+    /**
+     * The index of the compilation unit being analyzed. A shared state is only used for one
+     * compilation unit at a time, so the index is dropped along with it.
+     */
+    @Nullable private SymbolIndex symbolIndex;
+
+    /** The tokens of the compilation unit being analyzed, dropped along with it like the above. */
+    @Nullable private TokenIndex tokenIndex;
+
     SharedState(
         Context context,
         DescriptionListener descriptionListener,
@@ -735,6 +855,7 @@ public class VisitorState {
       this.types = Types.instance(context);
       this.treeMaker = TreeMaker.instance(context);
       this.javacInvocationInstance = JavacInvocationInstance.instance(context);
+      this.symbolCache = SymbolCache.instance(context);
 
       this.descriptionListener = descriptionListener;
       this.statisticsCollector = statisticsCollector;
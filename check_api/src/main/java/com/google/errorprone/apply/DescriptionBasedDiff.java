@@ -123,6 +123,7 @@ public final class DescriptionBasedDiff implements DescriptionListener, Diff {
             Replacements.CoalescePolicy.REPLACEMENT_FIRST);
       }
     }
+    // SourceFile defers edits made in descending order, and applies them all in a single pass.
     for (Replacement replacement : replacements.descending()) {
       sourceFile.replaceChars(
           replacement.startPosition(), replacement.endPosition(), replacement.replaceWith());
@@ -20,14 +20,20 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractService;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -48,28 +54,68 @@ public class DiffApplier extends AbstractService {
   private final AtomicInteger completedFiles;
   private final Stopwatch stopwatch;
 
+  // the number of diffs that have been submitted but haven't started to be applied yet
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final AtomicInteger maxQueueDepth = new AtomicInteger();
+  private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+
   // the number of diffs in flight, plus 1 if the service is in the RUNNING state
   private final AtomicInteger runState = new AtomicInteger();
 
   public DiffApplier(int diffParallelism, FileSource source, FileDestination destination) {
-    Preconditions.checkNotNull(source);
-    Preconditions.checkNotNull(destination);
-    this.diffsFailedPaths = new ConcurrentSkipListSet<>();
-    this.refactoredPaths = Sets.newConcurrentHashSet();
-    this.source = source;
-    this.destination = destination;
-    this.completedFiles = new AtomicInteger(0);
-    this.stopwatch = Stopwatch.createUnstarted();
     // configure a bounded queue and a rejectedexecutionpolicy.
     // In this case CallerRuns may be appropriate.
-    this.workerService =
+    this(
         new ThreadPoolExecutor(
             0,
             diffParallelism,
             5,
             TimeUnit.SECONDS,
             new ArrayBlockingQueue<Runnable>(50),
-            new ThreadPoolExecutor.CallerRunsPolicy());
+            new ThreadPoolExecutor.CallerRunsPolicy()),
+        source,
+        destination);
+  }
+
+  /**
+   * Returns an applier that reads, applies and writes diffs on a work-stealing pool of {@code
+   * diffParallelism} threads.
+   *
+   * <p>Unlike the applier returned by the constructor, whose queue is bounded and which applies
+   * diffs on the calling thread once the queue is full, {@link #put} never blocks or does any work
+   * itself: diffs that can't be applied yet wait in the pool's queues, whose depth is reported by
+   * {@link #maxQueueDepth}.
+   *
+   * <p>Those queues are unbounded. Files are only read once their diff runs, but every queued diff
+   * stays in memory until then, so callers that produce diffs much faster than they can be written
+   * should use the constructor, or watch {@link #maxQueueDepth}.
+   */
+  public static DiffApplier withWorkStealingPool(
+      int diffParallelism, FileSource source, FileDestination destination) {
+    return new DiffApplier(
+        new ForkJoinPool(
+            diffParallelism,
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+            /* handler= */ null,
+            /* asyncMode= */ true),
+        source,
+        destination);
+  }
+
+  private DiffApplier(
+      ExecutorService workerService, FileSource source, FileDestination destination) {
+    Preconditions.checkNotNull(source);
+    Preconditions.checkNotNull(destination);
+    this.diffsFailedPaths = new ConcurrentSkipListSet<>();
+    this.refactoredPaths = Sets.newConcurrentHashSet();
+    this.source = source;
+    this.destination = destination;
+    this.completedFiles = new AtomicInteger(0);
+    this.stopwatch = Stopwatch.createUnstarted();
+    for (Stage stage : Stage.values()) {
+      latencies.put(stage, new LatencyHistogram());
+    }
+    this.workerService = workerService;
   }
 
   @Override
@@ -95,6 +141,14 @@ public class DiffApplier extends AbstractService {
       }
       logger.log(
           Level.INFO, String.format("Completed %d files in %s", completedFiles.get(), stopwatch));
+      logger.log(
+          Level.INFO,
+          String.format(
+              "Diff latencies: read %s, apply %s, write %s; max queue depth %d",
+              latency(Stage.READ),
+              latency(Stage.APPLY),
+              latency(Stage.WRITE),
+              maxQueueDepth()));
       if (!diffsFailedPaths.isEmpty()) {
         logger.log(
             Level.SEVERE,
@@ -114,14 +168,23 @@ public class DiffApplier extends AbstractService {
 
     @Override
     public void run() {
+      queueDepth.decrementAndGet();
       try {
+        long start = System.nanoTime();
         SourceFile file = source.readFile(diff.getRelevantFileName());
+        long read = System.nanoTime();
+        latencies.get(Stage.READ).record(read - start);
         diff.applyDifferences(file);
+        long applied = System.nanoTime();
+        latencies.get(Stage.APPLY).record(applied - read);
         destination.writeFile(file);
-
+        latencies.get(Stage.WRITE).record(System.nanoTime() - applied);
         int completed = completedFiles.incrementAndGet();
         if (completed % 100 == 0) {
-          logger.log(Level.INFO, String.format("Completed %d files in %s", completed, stopwatch));
+          logger.log(
+              Level.INFO,
+              String.format(
+                  "Completed %d files in %s, %d queued", completed, stopwatch, queueDepth.get()));
         }
       } catch (IOException | DiffNotApplicableException e) {
         logger.log(Level.WARNING, "Failed to apply diff to file " + diff.getRelevantFileName(), e);
@@ -136,8 +199,84 @@ public class DiffApplier extends AbstractService {
   public Future<?> put(Diff diff) {
     if (refactoredPaths.add(diff.getRelevantFileName())) {
       runState.incrementAndGet();
+      maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
       return workerService.submit(new Task(diff));
     }
     return null;
   }
+
+  /** The number of diffs that have been submitted but haven't started to be applied yet. */
+  public int queueDepth() {
+    return queueDepth.get();
+  }
+
+  /**
+   * The largest {@link #queueDepth} seen so far. With {@link #withWorkStealingPool}, nothing bounds
+   * the queue, so this is also the largest number of diffs held in memory at once.
+   */
+  public int maxQueueDepth() {
+    return maxQueueDepth.get();
+  }
+
+  /** The latencies of the given stage, for every diff that reached it. */
+  public LatencyHistogram latency(Stage stage) {
+    return latencies.get(stage);
+  }
+
+  /** The stages of applying a diff. */
+  public enum Stage {
+    /** Reading the file from the {@link FileSource}. */
+    READ,
+    /** Applying the diff to the file's contents. */
+    APPLY,
+    /** Writing the file to the {@link FileDestination}. */
+    WRITE,
+  }
+
+  /** A histogram of latencies, with one bucket per power of two nanoseconds. */
+  public static final class LatencyHistogram {
+    // bucket i counts the latencies in [2^i, 2^(i+1)) nanoseconds, and bucket 0 also counts 0
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE - 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    void record(long nanos) {
+      nanos = Math.max(nanos, 0);
+      buckets.incrementAndGet(nanos == 0 ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos));
+      count.increment();
+      totalNanos.add(nanos);
+    }
+
+    public long count() {
+      return count.sum();
+    }
+
+    public Duration total() {
+      return Duration.ofNanos(totalNanos.sum());
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded latencies, which is at most
+     * twice the actual percentile.
+     */
+    public Duration percentile(double percentile) {
+      Preconditions.checkArgument(0 < percentile && percentile <= 100, percentile);
+      long rank = (long) Math.ceil(count() * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+        seen += buckets.get(i);
+        if (seen >= rank && seen > 0) {
+          return Duration.ofNanos(i == Long.SIZE - 2 ? Long.MAX_VALUE : (2L << i) - 1);
+        }
+      }
+      return Duration.ZERO;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "{count=%d, total=%s, p50<=%s, p90<=%s, p99<=%s}",
+          count(), total(), percentile(50), percentile(90), percentile(99));
+    }
+  }
 }
@@ -23,5 +23,13 @@ public interface FileDestination {
 
   void writeFile(SourceFile file) throws IOException;
 
+  /**
+   * Writes an updated file whose content before the update is already known, so destinations that
+   * need it don't have to read it again.
+   */
+  default void writeFile(SourceFile file, CharSequence originalSource) throws IOException {
+    writeFile(file);
+  }
+
   void flush() throws IOException;
 }
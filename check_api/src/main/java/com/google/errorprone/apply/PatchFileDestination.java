@@ -31,6 +31,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import javax.annotation.Nullable;
 
 /**
  * A {@link FileDestination} that writes a unix-patch file to {@code rootPath} containing the
@@ -55,23 +56,42 @@ public final class PatchFileDestination implements FileDestination {
   @Override
   public void writeFile(SourceFile update) throws IOException {
     Path sourceFilePath = rootPath.resolve(update.getPath());
-    String oldSource = new String(Files.readAllBytes(sourceFilePath), UTF_8);
-    String newSource = update.getSourceText();
-    if (!oldSource.equals(newSource)) {
-      List<String> originalLines = LINE_SPLITTER.splitToList(oldSource);
+    writeFile(update, new String(Files.readAllBytes(sourceFilePath), UTF_8));
+  }
+
+  @Override
+  public void writeFile(SourceFile update, CharSequence originalSource) {
+    Path sourceFilePath = rootPath.resolve(update.getPath());
+    String diff =
+        unifiedDiff(
+            baseDir.relativize(sourceFilePath).toString(),
+            originalSource.toString(),
+            update.getSourceText());
+    if (diff != null) {
+      diffByFile.put(sourceFilePath.toUri(), diff);
+    }
+  }
+
+  /**
+   * Returns the unified diff that turns {@code oldSource} into {@code newSource}, or null if they
+   * are identical.
+   */
+  @Nullable
+  static String unifiedDiff(String relativePath, String oldSource, String newSource) {
+    if (oldSource.equals(newSource)) {
+      return null;
+    }
+    List<String> originalLines = LINE_SPLITTER.splitToList(oldSource);
 
-      Patch<String> diff = null;
-      try {
-        diff = DiffUtils.diff(originalLines, LINE_SPLITTER.splitToList(newSource));
-      } catch (DiffException e) {
-        throw new AssertionError("DiffUtils.diff should not fail", e);
-      }
-      String relativePath = baseDir.relativize(sourceFilePath).toString();
-      List<String> unifiedDiff =
-          UnifiedDiffUtils.generateUnifiedDiff(relativePath, relativePath, originalLines, diff, 2);
-      String diffString = Joiner.on("\n").join(unifiedDiff) + "\n";
-      diffByFile.put(sourceFilePath.toUri(), diffString);
+    Patch<String> diff = null;
+    try {
+      diff = DiffUtils.diff(originalLines, LINE_SPLITTER.splitToList(newSource));
+    } catch (DiffException e) {
+      throw new AssertionError("DiffUtils.diff should not fail", e);
     }
+    List<String> unifiedDiff =
+        UnifiedDiffUtils.generateUnifiedDiff(relativePath, relativePath, originalLines, diff, 2);
+    return Joiner.on("\n").join(unifiedDiff) + "\n";
   }
 
   public String patchFile(URI uri) {
@@ -18,18 +18,22 @@ package com.google.errorprone.apply;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
-import com.google.common.io.CharSource;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.io.StringReader;
 import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.tools.JavaFileObject;
 
 /**
  * Representation of a mutable Java source file.
  *
+ * <p>Edits made with {@link #replaceChars} in descending order of position, as {@link
+ * DescriptionBasedDiff} makes them, are recorded without copying the source, and applied all at
+ * once in a single pass the next time the source is read. Line-based accessors use an index of the
+ * starts of the lines, which is computed once per version of the source.
+ *
  * <p>This class is not thread-safe.
  *
  * @author sjnickerson@google.com (Simon Nickerson)
@@ -38,7 +42,17 @@ import javax.tools.JavaFileObject;
 public class SourceFile {
 
   private final String path;
-  private final StringBuilder sourceBuilder;
+  private String source;
+
+  /**
+   * The edits that haven't been applied to {@link #source} yet, from the last to the first in the
+   * source. Each one ends at or before the start of the one before it, so their positions are the
+   * same in {@link #source} and in the edited source.
+   */
+  private final List<Edit> pendingEdits = new ArrayList<>();
+
+  /** The start of each line of {@link #source}, or null if it hasn't been computed yet. */
+  @Nullable private int[] lineStarts;
 
   public static SourceFile create(JavaFileObject fileObject) throws IOException {
     return new SourceFile(fileObject.toUri().getPath(), fileObject.getCharContent(false));
@@ -46,7 +60,7 @@ public class SourceFile {
 
   public SourceFile(String path, CharSequence source) {
     this.path = path;
-    sourceBuilder = new StringBuilder(source);
+    this.source = source.toString();
   }
 
   /** Returns the path for this source file */
@@ -56,26 +70,23 @@ public class SourceFile {
 
   /** Returns a copy of code as a list of lines. */
   public List<String> getLines() {
-    try {
-      return CharSource.wrap(sourceBuilder).readLines();
-    } catch (IOException e) {
-      throw new AssertionError("IOException not possible, as the string is in-memory", e);
-    }
+    return getLines(1, lineCount());
   }
 
   /** Returns a copy of the code as a string. */
   public String getSourceText() {
-    return sourceBuilder.toString();
+    return source();
   }
 
   public CharSequence getAsSequence() {
-    return CharBuffer.wrap(sourceBuilder).asReadOnlyBuffer();
+    return CharBuffer.wrap(source()).asReadOnlyBuffer();
   }
 
   /** Clears the current source test for this SourceFile and resets it to the passed-in value. */
   public void setSourceText(CharSequence source) {
-    sourceBuilder.setLength(0); // clear StringBuilder
-    sourceBuilder.append(source);
+    pendingEdits.clear();
+    this.source = source.toString();
+    lineStarts = null;
   }
 
   /**
@@ -85,7 +96,7 @@ public class SourceFile {
    * and end parameters.
    */
   public String getFragmentByChars(int startPosition, int endPosition) {
-    return sourceBuilder.substring(startPosition, endPosition);
+    return source().substring(startPosition, endPosition);
   }
 
   /**
@@ -99,45 +110,70 @@ public class SourceFile {
     return Joiner.on("\n").join(getLines(startLine, endLine)) + "\n";
   }
 
+  /** Returns the lines between the two given line numbers, inclusive, without line terminators. */
   private List<String> getLines(int startLine, int endLine) {
-    LineNumberReader reader = new LineNumberReader(new StringReader(sourceBuilder.toString()));
-    List<String> lines = new ArrayList<>(endLine - startLine + 1);
-    String line;
-    try {
-      while ((line = reader.readLine()) != null) {
-        if (reader.getLineNumber() >= startLine) {
-          lines.add(line);
-        }
-        if (reader.getLineNumber() >= endLine) {
-          break;
+    String source = source();
+    int[] lineStarts = lineStarts();
+    int first = Math.max(startLine, 1);
+    int last = Math.min(endLine, lineCount());
+    List<String> lines = new ArrayList<>(Math.max(last - first + 1, 0));
+    for (int line = first; line <= last; line++) {
+      int start = lineStarts[line - 1];
+      int end = line < lineStarts.length ? lineStarts[line] : source.length();
+      // Strip the line terminator: \n, \r\n or \r.
+      if (end > start && source.charAt(end - 1) == '\n') {
+        end--;
+      }
+      if (end > start && source.charAt(end - 1) == '\r') {
+        end--;
+      }
+      lines.add(source.substring(start, end));
+    }
+    return lines;
+  }
+
+  /** The number of lines, not counting the empty line after a final line terminator. */
+  private int lineCount() {
+    int[] lineStarts = lineStarts();
+    int count = lineStarts.length;
+    return lineStarts[count - 1] == source.length() ? count - 1 : count;
+  }
+
+  private int[] lineStarts() {
+    String source = source();
+    if (lineStarts == null) {
+      int[] starts = new int[16];
+      int count = 1;
+      for (int i = 0; i < source.length(); i++) {
+        char c = source.charAt(i);
+        if (c == '\n'
+            || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'))) {
+          if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+          }
+          starts[count++] = i + 1;
         }
       }
-      return lines;
-    } catch (IOException e) {
-      throw new AssertionError("Wrapped StringReader should not produce I/O exceptions", e);
+      lineStarts = Arrays.copyOf(starts, count);
     }
+    return lineStarts;
   }
 
   /** Replace the source code with the new lines of code. */
   public void replaceLines(List<String> lines) {
-    sourceBuilder.replace(0, sourceBuilder.length(), Joiner.on("\n").join(lines) + "\n");
+    setSourceText(Joiner.on("\n").join(lines) + "\n");
   }
 
   /** Replace the source code between the start and end lines with some new lines of code. */
   public void replaceLines(int startLine, int endLine, List<String> replacementLines) {
     Preconditions.checkArgument(startLine <= endLine);
-    List<String> originalLines = getLines();
+    int lineCount = lineCount();
     List<String> newLines = new ArrayList<>();
-    for (int i = 0; i < originalLines.size(); i++) {
-      int lineNum = i + 1;
-      if (lineNum == startLine) {
-        newLines.addAll(replacementLines);
-      } else if (lineNum > startLine && lineNum <= endLine) {
-        // Skip
-      } else {
-        newLines.add(originalLines.get(i));
-      }
+    newLines.addAll(getLines(1, Math.min(startLine - 1, lineCount)));
+    if (startLine >= 1 && startLine <= lineCount) {
+      newLines.addAll(replacementLines);
     }
+    newLines.addAll(getLines(endLine + 1, lineCount));
     replaceLines(newLines);
   }
 
@@ -148,14 +184,63 @@ public class SourceFile {
    * and end parameters.
    */
   public void replaceChars(int startPosition, int endPosition, String replacement) {
-    try {
-      sourceBuilder.replace(startPosition, endPosition, replacement);
-    } catch (StringIndexOutOfBoundsException e) {
+    if (!pendingEdits.isEmpty() && endPosition > lastPendingEdit().start) {
+      applyPendingEdits();
+    }
+    int limit = pendingEdits.isEmpty() ? source.length() : lastPendingEdit().start;
+    // Like StringBuilder#replace, an end past the end of the source is clamped to it.
+    endPosition = Math.min(endPosition, limit);
+    if (startPosition < 0 || startPosition > endPosition) {
       throw new IndexOutOfBoundsException(
           String.format(
               "Replacement cannot be made. Source file %s has length %d, requested start "
                   + "position %d, requested end position %d, replacement %s",
-              path, sourceBuilder.length(), startPosition, endPosition, replacement));
+              path, length(), startPosition, endPosition, replacement));
+    }
+    pendingEdits.add(new Edit(startPosition, endPosition, replacement));
+  }
+
+  private Edit lastPendingEdit() {
+    return pendingEdits.get(pendingEdits.size() - 1);
+  }
+
+  private int length() {
+    int length = source.length();
+    for (Edit edit : pendingEdits) {
+      length += edit.replacement.length() - (edit.end - edit.start);
+    }
+    return length;
+  }
+
+  /** Returns the source, with the pending edits applied. */
+  private String source() {
+    if (!pendingEdits.isEmpty()) {
+      applyPendingEdits();
+    }
+    return source;
+  }
+
+  private void applyPendingEdits() {
+    StringBuilder result = new StringBuilder(length());
+    int position = 0;
+    for (int i = pendingEdits.size() - 1; i >= 0; i--) {
+      Edit edit = pendingEdits.get(i);
+      result.append(source, position, edit.start).append(edit.replacement);
+      position = edit.end;
+    }
+    result.append(source, position, source.length());
+    setSourceText(result);
+  }
+
+  private static final class Edit {
+    final int start;
+    final int end;
+    final String replacement;
+
+    Edit(int start, int end, String replacement) {
+      this.start = start;
+      this.end = end;
+      this.replacement = replacement;
     }
   }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.apply;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link FileDestination} that streams the unified diffs of the files written to it into a
+ * single patch file.
+ *
+ * <p>Diffs are computed on background threads, and appended to the patch file in the order in
+ * which the files were written, so the patch file doesn't depend on which diff finishes first.
+ * Finished diffs are appended whenever a file is written, and the rest by {@link #flush()}. The
+ * patch file is replaced when the first non-empty diff is appended.
+ *
+ * <p>The patch file is only open while diffs are appended, and the background threads exit once
+ * they have been idle for a second, so nothing is leaked if {@link #flush()} is never called. A
+ * diff that fails doesn't prevent the following ones from being written; the failures are reported
+ * by {@link #flush()}.
+ */
+public final class StreamingPatchFileDestination implements FileDestination {
+
+  private static final long KEEP_ALIVE_SECONDS = 1;
+
+  private final Path baseDir;
+  private final Path rootPath;
+  private final Path patchFile;
+
+  /** The diffs that haven't been appended yet, in the order in which the files were written. */
+  private final Deque<CompletableFuture<String>> pending = new ArrayDeque<>();
+
+  /** The failures to report from the next {@link #flush()}. */
+  private final List<Throwable> failures = new ArrayList<>();
+
+  /** The threads computing diffs, created when the first file is written. */
+  @Nullable private ThreadPoolExecutor executor;
+
+  /** Whether the patch file has been replaced yet. */
+  private boolean replaced = false;
+
+  public StreamingPatchFileDestination(Path baseDir, Path rootPath, Path patchFile) {
+    this.baseDir = baseDir;
+    this.rootPath = rootPath;
+    this.patchFile = patchFile;
+  }
+
+  @Override
+  public void writeFile(SourceFile update) throws IOException {
+    Path sourceFilePath = rootPath.resolve(update.getPath());
+    writeFile(update, new String(Files.readAllBytes(sourceFilePath), UTF_8));
+  }
+
+  @Override
+  public synchronized void writeFile(SourceFile update, CharSequence originalSource) {
+    String relativePath = baseDir.relativize(rootPath.resolve(update.getPath())).toString();
+    String oldSource = originalSource.toString();
+    // SourceFile isn't thread-safe, and getSourceText() applies any pending edits, so it has to be
+    // called here rather than on the executor.
+    String newSource = update.getSourceText();
+    pending.add(
+        CompletableFuture.supplyAsync(
+            () -> PatchFileDestination.unifiedDiff(relativePath, oldSource, newSource),
+            executor()));
+    appendDiffs(/* wait= */ false);
+  }
+
+  private ThreadPoolExecutor executor() {
+    if (executor == null) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      executor =
+          new ThreadPoolExecutor(
+              threads,
+              threads,
+              KEEP_ALIVE_SECONDS,
+              SECONDS,
+              new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("error-prone-patch-%d")
+                  .build());
+      executor.allowCoreThreadTimeOut(true);
+    }
+    return executor;
+  }
+
+  /**
+   * Appends the pending diffs to the patch file, up to the first one that is still being computed
+   * unless {@code wait} is set.
+   */
+  private void appendDiffs(boolean wait) {
+    List<String> diffs = new ArrayList<>();
+    while (!pending.isEmpty() && (wait || pending.peek().isDone())) {
+      try {
+        String diff = pending.remove().join();
+        if (diff != null) {
+          diffs.add(diff);
+        }
+      } catch (CompletionException e) {
+        failures.add(e.getCause());
+      } catch (CancellationException e) {
+        failures.add(e);
+      }
+    }
+    if (diffs.isEmpty()) {
+      return;
+    }
+    try {
+      if (!replaced) {
+        Files.createDirectories(patchFile.getParent());
+      }
+      try (Writer writer =
+          Files.newBufferedWriter(
+              patchFile, UTF_8, CREATE, WRITE, replaced ? APPEND : TRUNCATE_EXISTING)) {
+        replaced = true;
+        for (String diff : diffs) {
+          writer.write(diff);
+        }
+      }
+    } catch (IOException e) {
+      failures.add(e);
+    }
+  }
+
+  /**
+   * Waits for all pending diffs to be appended to the patch file.
+   *
+   * @throws IOException if any diff written since the last flush could not be computed or appended
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    try {
+      appendDiffs(/* wait= */ true);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+        executor = null;
+      }
+    }
+    if (failures.isEmpty()) {
+      return;
+    }
+    IOException e =
+        new IOException(
+            failures.size() + " diff(s) could not be written to " + patchFile, failures.get(0));
+    for (Throwable failure : failures.subList(1, failures.size())) {
+      e.addSuppressed(failure);
+    }
+    failures.clear();
+    throw e;
+  }
+}
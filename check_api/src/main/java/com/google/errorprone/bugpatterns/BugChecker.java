@@ -27,6 +27,7 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Suppressible;
 import com.google.errorprone.suppliers.Supplier;
 import com.google.errorprone.util.ASTHelpers;
@@ -50,6 +51,7 @@ import com.sun.source.tree.DoWhileLoopTree;
 import com.sun.source.tree.EmptyStatementTree;
 import com.sun.source.tree.EnhancedForLoopTree;
 import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.ForLoopTree;
 import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.IfTree;
@@ -427,6 +429,21 @@ public abstract class BugChecker implements Suppressible, Serializable {
     Description matchNewClass(NewClassTree tree, VisitorState state);
   }
 
+  /**
+   * Implemented by a {@link MethodInvocationTreeMatcher} or {@link NewClassTreeMatcher} that only
+   * reports invocations of methods or constructors matched by one of a fixed set of method
+   * matchers. The scanner indexes these matchers across all enabled checkers by method name and
+   * owner type, and only dispatches an invocation to the checkers whose matchers could match it.
+   *
+   * <p>Every finding of the checker for a method invocation or instance creation must be for a tree
+   * that one of the matchers matches. Matchers that are not built with {@link
+   * com.google.errorprone.matchers.method.MethodMatchers} cannot be indexed, and make the scanner
+   * dispatch every invocation to the checker.
+   */
+  public interface MethodInvocationRules {
+    Iterable<? extends Matcher<ExpressionTree>> methodInvocationRules();
+  }
+
   // Intentionally skip OtherTreeMatcher. It seems to be used only for let expressions, which are
   // generated by javac to implement autoboxing. We are only interested in source-level constructs.
 
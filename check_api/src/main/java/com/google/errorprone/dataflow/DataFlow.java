@@ -16,12 +16,10 @@
 
 package com.google.errorprone.dataflow;
 
-import com.google.auto.value.AutoValue;
 import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.ErrorProneTimings.CacheCounters;
 import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
@@ -31,9 +29,14 @@ import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
-import com.sun.tools.javac.code.Symbol.CompletionFailure;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.util.Context;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import javax.annotation.Nullable;
 import javax.annotation.processing.ProcessingEnvironment;
 import org.checkerframework.shaded.dataflow.analysis.AbstractValue;
@@ -61,72 +64,159 @@ public final class DataFlow {
     ControlFlowGraph getControlFlowGraph();
   }
 
+  /** The name of the flag setting the number of methods to cache results for. */
+  public static final String CACHE_SIZE_FLAG = "DataFlow:CacheSize";
+
+  private static final int DEFAULT_CACHE_SIZE = 64;
+
   /*
-   * We cache both the control flow graph and the analyses that are run on it.
-   * We tuned performance to the following assumptions (which are currently true for error-prone):
+   * We cache both the control flow graph of each method and the analyses that are run on it, for
+   * the most recently analyzed methods of the compilation unit being scanned. Checks commonly ask
+   * for dataflow results of several methods in an interleaved order (e.g. a lambda and the method
+   * that encloses it), so the results of a method outlive the analysis of the next one.
    *
-   * <ul>
-   * <li> all dataflow analyses for a method are finished before another method is analyzed
-   * <li> multiple dataflow analyses for the same method are executed in arbitrary order
-   * </ul>
-   *
-   * TODO(b/158869538): Write a test that checks these assumptions
+   * The cache is kept in the javac context, for one compilation unit at a time: it is replaced when
+   * a different compilation unit is analyzed, and dropped with the context.
    */
-  private static final LoadingCache<AnalysisParams, Analysis<?, ?, ?>> analysisCache =
-      CacheBuilder.newBuilder()
-          .build(
-              new CacheLoader<AnalysisParams, Analysis<?, ?, ?>>() {
-                @Override
-                public Analysis<?, ?, ?> load(AnalysisParams key) {
-                  final ControlFlowGraph cfg = key.cfg();
-                  final ForwardTransferFunction<?, ?> transfer = key.transferFunction();
+  private static final Context.Key<CurrentMethodCache> methodCacheKey = new Context.Key<>();
 
-                  @SuppressWarnings({"unchecked", "rawtypes"})
-                  final Analysis<?, ?, ?> analysis = new ForwardAnalysisImpl(transfer);
-                  analysis.performAnalysis(cfg);
-                  return analysis;
-                }
-              });
+  /** The method cache of the compilation unit being analyzed in a javac context. */
+  private static final class CurrentMethodCache {
+    @Nullable MethodCache cache;
+  }
+
+  /**
+   * Discards the control flow graphs and analyses cached for the compilation unit being analyzed in
+   * the given context.
+   */
+  public static void clearCache(Context context) {
+    CurrentMethodCache current = context.get(methodCacheKey);
+    if (current != null) {
+      current.cache = null;
+    }
+  }
 
-  private static final LoadingCache<CfgParams, ControlFlowGraph> cfgCache =
-      CacheBuilder.newBuilder()
-          .maximumSize(1)
-          .build(
-              new CacheLoader<CfgParams, ControlFlowGraph>() {
-                @Override
-                public ControlFlowGraph load(CfgParams key) {
-                  final TreePath methodPath = key.methodPath();
-                  final UnderlyingAST ast;
-                  ClassTree classTree = null;
-                  MethodTree methodTree = null;
-                  for (Tree parent : methodPath) {
-                    if (parent instanceof MethodTree) {
-                      methodTree = (MethodTree) parent;
-                    }
-                    if (parent instanceof ClassTree) {
-                      classTree = (ClassTree) parent;
-                      break;
-                    }
-                  }
-                  if (methodPath.getLeaf() instanceof LambdaExpressionTree) {
-                    ast =
-                        new UnderlyingAST.CFGLambda(
-                            (LambdaExpressionTree) methodPath.getLeaf(), classTree, methodTree);
-                  } else if (methodPath.getLeaf() instanceof MethodTree) {
-                    methodTree = (MethodTree) methodPath.getLeaf();
-                    ast = new UnderlyingAST.CFGMethod(methodTree, classTree);
-                  } else {
-                    // must be an initializer per findEnclosingMethodOrLambdaOrInitializer
-                    ast = new UnderlyingAST.CFGStatement(methodPath.getLeaf(), classTree);
-                  }
-                  final ProcessingEnvironment env = key.environment();
+  private static MethodCache methodCache(CompilationUnitTree compilationUnit, Context context) {
+    CurrentMethodCache current = context.get(methodCacheKey);
+    if (current == null) {
+      current = new CurrentMethodCache();
+      context.put(methodCacheKey, current);
+    }
+    MethodCache cache = current.cache;
+    if (cache == null || cache.compilationUnit != compilationUnit) {
+      int size =
+          Optional.ofNullable(context.get(ErrorProneFlags.class))
+              .flatMap(f -> f.getInteger(CACHE_SIZE_FLAG))
+              .orElse(DEFAULT_CACHE_SIZE);
+      cache =
+          new MethodCache(
+              compilationUnit,
+              size,
+              ErrorProneTimings.instance(context).cacheCounters("DataFlow"));
+      current.cache = cache;
+    }
+    return cache;
+  }
 
-                  analysisCache.invalidateAll();
-                  CompilationUnitTree root = methodPath.getCompilationUnit();
-                  // TODO(b/158869538): replace with faster build(bodyPath, env, ast, false, false);
-                  return CFGBuilder.build(root, ast, false, false, env);
-                }
-              });
+  /**
+   * The control flow graphs and analyses of the most recently analyzed methods, lambdas and
+   * initializers of a compilation unit, keyed by the identity of their trees.
+   */
+  private static final class MethodCache {
+    final CompilationUnitTree compilationUnit;
+    final CacheCounters counters;
+    final Map<Tree, MethodResults> results;
+    /** The methods whose control flow graph has been built, to tell rebuilds from misses. */
+    final Set<Tree> built = new HashSet<>();
+
+    MethodCache(CompilationUnitTree compilationUnit, int size, CacheCounters counters) {
+      this.compilationUnit = compilationUnit;
+      this.counters = counters;
+      this.results =
+          new LinkedHashMap<Tree, MethodResults>(16, 0.75f, /* accessOrder= */ true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Tree, MethodResults> eldest) {
+              return size() > size;
+            }
+          };
+    }
+
+    /**
+     * Returns the results cached for the method at the given path, building its control flow graph
+     * if necessary. A lookup that finds the analysis already run on the graph counts as a hit.
+     */
+    MethodResults get(
+        TreePath methodPath, ForwardTransferFunction<?, ?> transfer, ProcessingEnvironment env) {
+      Tree method = methodPath.getLeaf();
+      MethodResults methodResults = results.get(method);
+      if (methodResults == null) {
+        if (built.add(method)) {
+          counters.recordMiss();
+        } else {
+          counters.recordRebuild();
+        }
+        methodResults = new MethodResults(buildCfg(methodPath, env));
+        results.put(method, methodResults);
+      } else if (methodResults.analyses.containsKey(transfer)) {
+        counters.recordHit();
+      } else {
+        counters.recordMiss();
+      }
+      return methodResults;
+    }
+  }
+
+  /** The control flow graph of a method, and the analyses that have been run on it. */
+  private static final class MethodResults {
+    final ControlFlowGraph cfg;
+    final Map<ForwardTransferFunction<?, ?>, Analysis<?, ?, ?>> analyses = new HashMap<>();
+
+    MethodResults(ControlFlowGraph cfg) {
+      this.cfg = cfg;
+    }
+
+    Analysis<?, ?, ?> analysis(ForwardTransferFunction<?, ?> transfer) {
+      // Not computeIfAbsent: running an analysis may request other dataflow results of the method.
+      Analysis<?, ?, ?> analysis = analyses.get(transfer);
+      if (analysis == null) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Analysis<?, ?, ?> newAnalysis = new ForwardAnalysisImpl(transfer);
+        newAnalysis.performAnalysis(cfg);
+        analysis = newAnalysis;
+        analyses.put(transfer, analysis);
+      }
+      return analysis;
+    }
+  }
+
+  private static ControlFlowGraph buildCfg(TreePath methodPath, ProcessingEnvironment env) {
+    final UnderlyingAST ast;
+    ClassTree classTree = null;
+    MethodTree methodTree = null;
+    for (Tree parent : methodPath) {
+      if (parent instanceof MethodTree) {
+        methodTree = (MethodTree) parent;
+      }
+      if (parent instanceof ClassTree) {
+        classTree = (ClassTree) parent;
+        break;
+      }
+    }
+    if (methodPath.getLeaf() instanceof LambdaExpressionTree) {
+      ast =
+          new UnderlyingAST.CFGLambda(
+              (LambdaExpressionTree) methodPath.getLeaf(), classTree, methodTree);
+    } else if (methodPath.getLeaf() instanceof MethodTree) {
+      methodTree = (MethodTree) methodPath.getLeaf();
+      ast = new UnderlyingAST.CFGMethod(methodTree, classTree);
+    } else {
+      // must be an initializer per findEnclosingMethodOrLambdaOrInitializer
+      ast = new UnderlyingAST.CFGStatement(methodPath.getLeaf(), classTree);
+    }
+    CompilationUnitTree root = methodPath.getCompilationUnit();
+    // TODO(b/158869538): replace with faster build(bodyPath, env, ast, false, false);
+    return CFGBuilder.build(root, ast, false, false, env);
+  }
 
   // TODO(b/158869538): remove once we merge jdk8 specific's with core
   @Nullable
@@ -161,7 +251,7 @@ public final class DataFlow {
    * Run the {@code transfer} dataflow analysis over the method or lambda which is the leaf of the
    * {@code methodPath}.
    *
-   * <p>For caching, we make the following assumptions: - if two paths to methods are {@code equal},
+   * <p>For caching, we make the following assumptions: - if two paths lead to the same method tree,
    * their control flow graph is the same. - if two transfer functions are {@code equal}, and are
    * run over the same control flow graph, the analysis result is the same. - for all contexts, the
    * analysis result is the same.
@@ -171,15 +261,11 @@ public final class DataFlow {
       Result<A, S, T> methodDataflow(TreePath methodPath, Context context, T transfer) {
     final ProcessingEnvironment env = JavacProcessingEnvironment.instance(context);
 
-    final ControlFlowGraph cfg;
-    try {
-      cfg = cfgCache.getUnchecked(CfgParams.create(methodPath, env));
-    } catch (UncheckedExecutionException e) {
-      throw e.getCause() instanceof CompletionFailure ? (CompletionFailure) e.getCause() : e;
-    }
-    final AnalysisParams aparams = AnalysisParams.create(transfer, cfg, env);
+    final MethodResults methodResults =
+        methodCache(methodPath.getCompilationUnit(), context).get(methodPath, transfer, env);
+    final ControlFlowGraph cfg = methodResults.cfg;
     @SuppressWarnings("unchecked")
-    final Analysis<A, S, T> analysis = (Analysis<A, S, T>) analysisCache.getUnchecked(aparams);
+    final Analysis<A, S, T> analysis = (Analysis<A, S, T>) methodResults.analysis(transfer);
 
     return new Result<A, S, T>() {
       @Override
@@ -235,46 +321,4 @@ public final class DataFlow {
 
     return methodDataflow(enclosingMethodPath, context, transfer).getAnalysis().getValue(expr);
   }
-
-  @AutoValue
-  abstract static class CfgParams {
-    abstract TreePath methodPath();
-
-    // Should not be used for hashCode or equals
-    private ProcessingEnvironment environment;
-
-    private static CfgParams create(TreePath methodPath, ProcessingEnvironment environment) {
-      CfgParams cp = new AutoValue_DataFlow_CfgParams(methodPath);
-      cp.environment = environment;
-      return cp;
-    }
-
-    ProcessingEnvironment environment() {
-      return environment;
-    }
-  }
-
-  @AutoValue
-  abstract static class AnalysisParams {
-
-    abstract ForwardTransferFunction<?, ?> transferFunction();
-
-    abstract ControlFlowGraph cfg();
-
-    // Should not be used for hashCode or equals
-    private ProcessingEnvironment environment;
-
-    private static AnalysisParams create(
-        ForwardTransferFunction<?, ?> transferFunction,
-        ControlFlowGraph cfg,
-        ProcessingEnvironment environment) {
-      AnalysisParams ap = new AutoValue_DataFlow_AnalysisParams(transferFunction, cfg);
-      ap.environment = environment;
-      return ap;
-    }
-
-    ProcessingEnvironment environment() {
-      return environment;
-    }
-  }
 }
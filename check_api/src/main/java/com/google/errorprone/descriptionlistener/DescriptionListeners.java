@@ -3,45 +3,107 @@ package com.google.errorprone.descriptionlistener;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ServiceLoader;
-import java.util.function.Supplier;
 
-import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.DescriptionListener;
 import com.google.errorprone.hubspot.HubSpotUtils;
 import com.google.errorprone.matchers.Description;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
 
 public class DescriptionListeners {
-  private static final Supplier<CustomDescriptionListenerFactory> CUSTOM_DESCRIPTION_LISTENER_FACTORY_SUPPLIER = Suppliers.memoize(DescriptionListeners::getCustomFactory);
-
   private DescriptionListeners() {}
 
   public static DescriptionListener.Factory factory(Context context) {
-    return getFactory(context, true);
+    return new MultiDescriptionListenerFactory(context, true);
   }
 
   public static DescriptionListener.Factory factoryForRefactoring(Context context) {
-    return getFactory(context, false);
+    return new MultiDescriptionListenerFactory(context, false);
   }
 
-  private static DescriptionListener.Factory getFactory(Context context, boolean useErrors) {
-    return (log, compilation) ->
-        CUSTOM_DESCRIPTION_LISTENER_FACTORY_SUPPLIER.get().createFactory(
-            DescriptionListenerResources.create(log, compilation, context, useErrors)
-        );
-  }
+  /**
+   * Creates the listeners of every discovered factory for each compilation unit. The factories are
+   * only discovered once per javac invocation, and so are the listeners of the {@link
+   * LifecycleDescriptionListenerFactory}s, which are then notified of every compilation unit.
+   */
+  private static class MultiDescriptionListenerFactory implements DescriptionListener.Factory {
+    private final Context context;
+    private final boolean useErrors;
+    private ImmutableList<CustomDescriptionListenerFactory> customFactories;
+    private List<LifecycleDescriptionListener> lifecycleListeners;
+
+    private MultiDescriptionListenerFactory(Context context, boolean useErrors) {
+      this.context = context;
+      this.useErrors = useErrors;
+    }
 
-  private static CustomDescriptionListenerFactory getCustomFactory() {
-    ServiceLoader<CustomDescriptionListenerFactory> serviceLoader =
-        ServiceLoader.load(CustomDescriptionListenerFactory.class, DescriptionListeners.class.getClassLoader());
-    return new MultiCustomDescriptionListenerFactory(serviceLoader);
+    @Override
+    public DescriptionListener getDescriptionListener(Log log, JCCompilationUnit compilation) {
+      DescriptionListenerResources resources =
+          DescriptionListenerResources.create(log, compilation, context, useErrors);
+      if (customFactories == null) {
+        load(resources);
+      }
+
+      final List<DescriptionListener> descriptionListeners;
+      if (HubSpotUtils.isErrorHandlingEnabled(resources)) {
+        descriptionListeners = HubSpotUtils.loadDescriptionListeners(customFactories, resources);
+      } else {
+        descriptionListeners = new ArrayList<>();
+        for (CustomDescriptionListenerFactory delegate : customFactories) {
+          descriptionListeners.add(delegate.createFactory(resources));
+        }
+      }
+      for (LifecycleDescriptionListener listener : lifecycleListeners) {
+        listener.onCompilationUnitStarted(resources);
+      }
+      return new MultiDescriptionListener(resources, descriptionListeners, lifecycleListeners);
+    }
+
+    private void load(DescriptionListenerResources resources) {
+      ServiceLoader<CustomDescriptionListenerFactory> customLoader =
+          ServiceLoader.load(
+              CustomDescriptionListenerFactory.class, DescriptionListeners.class.getClassLoader());
+      ServiceLoader<LifecycleDescriptionListenerFactory> lifecycleLoader =
+          ServiceLoader.load(
+              LifecycleDescriptionListenerFactory.class, DescriptionListeners.class.getClassLoader());
+      if (HubSpotUtils.isErrorHandlingEnabled(resources)) {
+        customFactories = HubSpotUtils.loadDescriptionListenerFactories(customLoader);
+        lifecycleListeners =
+            HubSpotUtils.loadLifecycleDescriptionListeners(lifecycleLoader, context, useErrors);
+      } else {
+        customFactories = ImmutableList.copyOf(customLoader);
+        lifecycleListeners = new ArrayList<>();
+        for (LifecycleDescriptionListenerFactory factory : lifecycleLoader) {
+          lifecycleListeners.add(factory.create(context, useErrors));
+        }
+      }
+    }
+
+    @Override
+    public void onCompilationFinished() {
+      if (lifecycleListeners != null) {
+        for (LifecycleDescriptionListener listener : lifecycleListeners) {
+          listener.onCompilationFinished();
+        }
+      }
+    }
   }
 
   private static class MultiDescriptionListener implements DescriptionListener {
-    private List<DescriptionListener> delegates;
+    private final DescriptionListenerResources resources;
+    private final List<DescriptionListener> delegates;
+    private final List<LifecycleDescriptionListener> lifecycleDelegates;
 
-    private MultiDescriptionListener(List<DescriptionListener> delegates) {
+    private MultiDescriptionListener(
+        DescriptionListenerResources resources,
+        List<DescriptionListener> delegates,
+        List<LifecycleDescriptionListener> lifecycleDelegates) {
+      this.resources = resources;
       this.delegates = delegates;
+      this.lifecycleDelegates = lifecycleDelegates;
     }
 
     @Override
@@ -49,28 +111,19 @@ public class DescriptionListeners {
       for (DescriptionListener listener : delegates) {
         listener.onDescribed(description);
       }
-    }
-  }
-
-  private static class MultiCustomDescriptionListenerFactory implements CustomDescriptionListenerFactory {
-    private final Iterable<CustomDescriptionListenerFactory> delegates;
-
-    private MultiCustomDescriptionListenerFactory(Iterable<CustomDescriptionListenerFactory> delegates) {
-      this.delegates = delegates;
+      for (LifecycleDescriptionListener listener : lifecycleDelegates) {
+        listener.onDescribed(resources, description);
+      }
     }
 
     @Override
-    public DescriptionListener createFactory(DescriptionListenerResources resources) {
-      final List<DescriptionListener> descriptionListeners;
-      if (HubSpotUtils.isErrorHandlingEnabled(resources)) {
-        descriptionListeners = HubSpotUtils.loadDescriptionListeners(delegates, resources);
-      } else {
-        descriptionListeners = new ArrayList<>();
-        for (CustomDescriptionListenerFactory delegate : delegates) {
-          descriptionListeners.add(delegate.createFactory(resources));
-        }
+    public void onCompilationUnitFinished() {
+      for (DescriptionListener listener : delegates) {
+        listener.onCompilationUnitFinished();
+      }
+      for (LifecycleDescriptionListener listener : lifecycleDelegates) {
+        listener.onCompilationUnitFinished(resources);
       }
-      return new MultiDescriptionListener(descriptionListeners);
     }
   }
 }
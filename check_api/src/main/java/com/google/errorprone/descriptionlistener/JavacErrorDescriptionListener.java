@@ -27,6 +27,7 @@ import com.google.errorprone.fixes.AppliedFix;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.matchers.Description;
 import com.sun.source.tree.Tree.Kind;
+import com.sun.tools.javac.tree.EndPosTable;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.JCDiagnostic;
 import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
@@ -77,10 +78,16 @@ public class JavacErrorDescriptionListener implements DescriptionListener {
     this.sourceFile = resources.getCompilation().getSourceFile();
     this.context = resources.getContext();
     this.dontUseErrors = !resources.getUseErrors();
-    checkNotNull(resources.getCompilation().endPositions);
+    EndPosTable endPositions = checkNotNull(resources.getCompilation().endPositions);
+    // The source is only loaded, and its lines indexed, once the first fix has to be rendered.
+    Supplier<AppliedFix.Applier> applier =
+        Suppliers.memoize(() -> AppliedFix.fromSource(loadSource(sourceFile), endPositions));
+    fixToAppliedFix = fix -> applier.get().apply(fix);
+  }
+
+  private static CharSequence loadSource(JavaFileObject sourceFile) {
     try {
-      CharSequence sourceFileContent = sourceFile.getCharContent(true);
-      fixToAppliedFix = fix -> AppliedFix.fromSource(sourceFileContent, resources.getCompilation().endPositions).apply(fix);
+      return sourceFile.getCharContent(true);
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
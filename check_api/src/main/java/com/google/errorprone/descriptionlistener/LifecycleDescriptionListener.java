@@ -0,0 +1,30 @@
+package com.google.errorprone.descriptionlistener;
+
+import com.google.errorprone.matchers.Description;
+
+/**
+ * A listener for the descriptions of every compilation unit in a javac invocation.
+ *
+ * <p>Unlike the listeners created by a {@link CustomDescriptionListenerFactory}, which are created
+ * again for each compilation unit, a single instance is created per javac invocation by a {@link
+ * LifecycleDescriptionListenerFactory}. Expensive setup (opening writers, parsing configuration)
+ * therefore only happens once, and output can be batched until {@link #onCompilationFinished()}.
+ *
+ * <p>All callbacks are made on javac's thread. For each compilation unit, {@link
+ * #onCompilationUnitStarted} is called first, then {@link #onDescribed} for each of its
+ * descriptions, then {@link #onCompilationUnitFinished}.
+ */
+public interface LifecycleDescriptionListener {
+
+  /** Called before any description of the given compilation unit is reported. */
+  default void onCompilationUnitStarted(DescriptionListenerResources resources) {}
+
+  /** Reports a description found in the given compilation unit. */
+  void onDescribed(DescriptionListenerResources resources, Description description);
+
+  /** Called once every description of the given compilation unit has been reported. */
+  default void onCompilationUnitFinished(DescriptionListenerResources resources) {}
+
+  /** Called once the compilation has finished; any batched output should be written out. */
+  default void onCompilationFinished() {}
+}
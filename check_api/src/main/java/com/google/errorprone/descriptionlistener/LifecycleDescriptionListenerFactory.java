@@ -0,0 +1,19 @@
+package com.google.errorprone.descriptionlistener;
+
+import com.sun.tools.javac.util.Context;
+
+/**
+ * Creates a {@link LifecycleDescriptionListener} for a javac invocation. Implementations are
+ * discovered with a {@link java.util.ServiceLoader}, like {@link CustomDescriptionListenerFactory}.
+ */
+public interface LifecycleDescriptionListenerFactory {
+
+  /**
+   * Creates the listener for the javac invocation with the given context. Called once per
+   * invocation, before the first compilation unit is reported.
+   *
+   * @param useErrors whether errors may be reported as errors, which is not the case when
+   *     refactoring
+   */
+  LifecycleDescriptionListener create(Context context, boolean useErrors);
+}
@@ -18,11 +18,10 @@ package com.google.errorprone.fixes;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.google.common.collect.ImmutableList;
 import com.sun.tools.javac.tree.EndPosTable;
-import java.io.IOException;
-import java.io.LineNumberReader;
-import java.io.StringReader;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -49,9 +48,16 @@ public class AppliedFix {
     return isRemoveLine;
   }
 
+  /**
+   * Applies fixes to a source file, to render their snippets. The replacements of a fix are never
+   * applied to the whole source: only the line that contains the first of them is rendered, using
+   * an index of the starts of the lines of the source that is computed once, on first use, and
+   * shared by all the fixes applied to the same source.
+   */
   public static class Applier {
     private final CharSequence source;
     private final EndPosTable endPositions;
+    @Nullable private int[] lineStarts;
 
     public Applier(CharSequence source, EndPosTable endPositions) {
       this.source = source;
@@ -64,74 +70,101 @@ public class AppliedFix {
      */
     @Nullable
     public AppliedFix apply(Fix suggestedFix) {
-      StringBuilder replaced = new StringBuilder(source);
-
-      // We have to apply the replacements in descending order, since otherwise the positions in
-      // subsequent replacements are invalidated by earlier replacements.
-      Set<Replacement> replacements = descending(suggestedFix.getReplacements(endPositions));
-
-      Set<Integer> modifiedLines = new HashSet<>();
+      ImmutableList<Replacement> replacements =
+          ascending(suggestedFix.getReplacements(endPositions));
+      // Not sure this is really the right behavior, but otherwise there is no line to show.
+      if (replacements.isEmpty()) {
+        return null;
+      }
       for (Replacement repl : replacements) {
         checkArgument(
             repl.endPosition() <= source.length(),
             "End [%s] should not exceed source length [%s]",
             repl.endPosition(),
             source.length());
-        replaced.replace(repl.startPosition(), repl.endPosition(), repl.replaceWith());
-
-        // Find the line number(s) being modified
-        // TODO: this could be more efficient
-        try {
-          LineNumberReader lineNumberReader =
-              new LineNumberReader(new StringReader(source.toString()));
-          lineNumberReader.skip(repl.startPosition());
-          modifiedLines.add(lineNumberReader.getLineNumber());
-        } catch (IOException e) {
-          // impossible since source is in-memory
-        }
       }
 
-      // Not sure this is really the right behavior, but otherwise we can end up with an infinite
-      // loop below.
-      if (modifiedLines.isEmpty()) {
-        return null;
+      // The lines before the first replacement are unchanged, so the first modified line starts at
+      // the same position in the fixed source as in the original one.
+      String snippet = renderLine(lineStart(replacements.get(0).startPosition()), replacements);
+      boolean isRemoveLine = false;
+      snippet = snippet.trim();
+      // snip comment from line
+      if (snippet.contains("//")) {
+        snippet = snippet.substring(0, snippet.indexOf("//")).trim();
       }
+      if (snippet.isEmpty()) {
+        isRemoveLine = true;
+        snippet = "to remove this line";
+      }
+      return new AppliedFix(snippet, isRemoveLine);
+    }
 
-      LineNumberReader lineNumberReader =
-          new LineNumberReader(new StringReader(replaced.toString()));
-      String snippet = null;
-      boolean isRemoveLine = false;
-      try {
-        while (!modifiedLines.contains(lineNumberReader.getLineNumber())) {
-          lineNumberReader.readLine();
+    /**
+     * Returns the line of the fixed source that starts at the given position, without its line
+     * terminator. Only the parts of the source and of the replacements on that line are copied.
+     */
+    private String renderLine(int lineStart, List<Replacement> replacements) {
+      StringBuilder line = new StringBuilder();
+      int position = lineStart;
+      for (Replacement repl : replacements) {
+        if (appendUntilLineEnd(line, source, position, repl.startPosition())
+            || appendUntilLineEnd(line, repl.replaceWith(), 0, repl.replaceWith().length())) {
+          return line.toString();
         }
-        // TODO: this is over-simplified; need a failing test case
-        snippet = lineNumberReader.readLine();
-        if (snippet == null) {
-          // The file's last line was removed.
-          snippet = "";
-        } else {
-          snippet = snippet.trim();
-          // snip comment from line
-          if (snippet.contains("//")) {
-            snippet = snippet.substring(0, snippet.indexOf("//")).trim();
-          }
+        position = repl.endPosition();
+      }
+      appendUntilLineEnd(line, source, position, source.length());
+      return line.toString();
+    }
+
+    /**
+     * Appends the given range of {@code text} to {@code line}, up to the first line terminator.
+     * Returns true if a line terminator was found.
+     */
+    private static boolean appendUntilLineEnd(
+        StringBuilder line, CharSequence text, int start, int end) {
+      for (int i = start; i < end; i++) {
+        char c = text.charAt(i);
+        if (c == '\n' || c == '\r') {
+          line.append(text, start, i);
+          return true;
         }
-        if (snippet.isEmpty()) {
-          isRemoveLine = true;
-          snippet = "to remove this line";
+      }
+      line.append(text, start, end);
+      return false;
+    }
+
+    /** Returns the start of the line that contains the given position. */
+    private int lineStart(int position) {
+      if (lineStarts == null) {
+        lineStarts = computeLineStarts(source);
+      }
+      int line = Arrays.binarySearch(lineStarts, position);
+      return line >= 0 ? position : lineStarts[-line - 2];
+    }
+
+    private static int[] computeLineStarts(CharSequence source) {
+      int[] starts = new int[16];
+      int count = 1;
+      for (int i = 0; i < source.length(); i++) {
+        char c = source.charAt(i);
+        if (c == '\n'
+            || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'))) {
+          if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+          }
+          starts[count++] = i + 1;
         }
-      } catch (IOException e) {
-        // impossible since source is in-memory
       }
-      return new AppliedFix(snippet, isRemoveLine);
+      return Arrays.copyOf(starts, count);
     }
 
-    /** Get the replacements in an appropriate order to apply correctly. */
-    private static Set<Replacement> descending(Set<Replacement> set) {
+    /** Get the replacements in an appropriate order to render them. */
+    private static ImmutableList<Replacement> ascending(Set<Replacement> set) {
       Replacements replacements = new Replacements();
       set.forEach(replacements::add);
-      return replacements.descending();
+      return ImmutableList.copyOf(replacements.descending()).reverse();
     }
   }
 
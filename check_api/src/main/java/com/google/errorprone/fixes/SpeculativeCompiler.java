@@ -0,0 +1,519 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.fixes;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.tools.JavaFileObject.Kind.SOURCE;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.ErrorProneTimings.CacheCounters;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.sun.source.util.JavacTask;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Kinds.Kind;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.main.Arguments;
+import com.sun.tools.javac.tree.EndPosTable;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCModifiers;
+import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Runs the speculative compilations of {@link SuggestedFixes#compilesWithFix}. One instance is
+ * shared by all the checks of a compilation.
+ *
+ * <p>Verdicts are cached by modified file, fixed source and options, so a fix that several checks
+ * (or several matches of one check) ask about is only compiled once.
+ *
+ * <p>When a fix can't change how other compilation units compile, because it only edits method
+ * bodies, imports or private declarations, only the modified unit is recompiled. The other source
+ * files of the compilation are served from the source path, so javac only enters and attributes
+ * the ones the modified unit depends on, and prefers their class files from the class path when
+ * those are newer (e.g. the class output of a previous build). Other fixes, and fixes checked with
+ * options that could report new diagnostics in other units, recompile every source file.
+ */
+final class SpeculativeCompiler {
+
+  private static final Context.Key<SpeculativeCompiler> speculativeCompilerKey =
+      new Context.Key<>();
+
+  static SpeculativeCompiler instance(BasicJavacTask javacTask) {
+    Context context = javacTask.getContext();
+    synchronized (SpeculativeCompiler.class) {
+      SpeculativeCompiler instance = context.get(speculativeCompilerKey);
+      if (instance == null) {
+        instance = new SpeculativeCompiler(javacTask);
+        context.put(speculativeCompilerKey, instance);
+      }
+      return instance;
+    }
+  }
+
+  /** Options that don't change which diagnostics are reported, only how many are. */
+  private static final ImmutableSet<String> DIAGNOSTIC_LIMIT_OPTIONS =
+      ImmutableSet.of("-Xmaxerrs", "-Xmaxwarns");
+
+  private static final ImmutableSet<String> SOURCE_TARGET_OPTIONS =
+      ImmutableSet.of("-source", "--source", "-target", "--target");
+
+  private final Context context;
+  private final CacheCounters counters;
+  private final Map<VerdictKey, Boolean> verdicts = new ConcurrentHashMap<>();
+  private final Supplier<ImmutableMap<String, String>> options;
+  private final Supplier<SourceIndex> sourceIndex;
+
+  private SpeculativeCompiler(BasicJavacTask javacTask) {
+    this.context = javacTask.getContext();
+    this.counters = ErrorProneTimings.instance(context).cacheCounters("compilesWithFix");
+    this.options = Suppliers.memoize(this::copyOptions);
+    this.sourceIndex = Suppliers.memoize(this::indexSources);
+  }
+
+  /**
+   * Returns whether the compilation succeeds with the given compilation unit replaced by {@code
+   * fixedSource}, as decided by {@code compiles} from the diagnostics of the speculative
+   * compilation.
+   *
+   * @param fix the fix that was applied to produce {@code fixedSource}
+   * @param onlyInSameCompilationUnit whether {@code compiles} ignores the errors reported in other
+   *     compilation units
+   */
+  boolean compilesWithFix(
+      JCCompilationUnit compilationUnit,
+      Fix fix,
+      CharSequence fixedSource,
+      ImmutableList<String> extraOptions,
+      boolean onlyInSameCompilationUnit,
+      Predicate<List<Diagnostic<? extends JavaFileObject>>> compiles) {
+    JavaFileObject modifiedFile = compilationUnit.getSourceFile();
+    VerdictKey key =
+        VerdictKey.create(
+            modifiedFile.toUri(),
+            Hashing.sha256().hashString(fixedSource, UTF_8),
+            extraOptions,
+            onlyInSameCompilationUnit);
+    Boolean verdict = verdicts.get(key);
+    if (verdict != null) {
+      counters.recordHit();
+      return verdict;
+    }
+    long start = System.nanoTime();
+    boolean incremental =
+        !isModularCompilation()
+            && (onlyInSameCompilationUnit
+                || (onlyLimitsDiagnostics(extraOptions) && isLocal(fix, compilationUnit)));
+    JavaFileObject fixedFile =
+        new SimpleJavaFileObject(SuggestedFixes.sourceURI(modifiedFile.toUri()), SOURCE) {
+          @Override
+          public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return fixedSource;
+          }
+        };
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    if (!incremental || !compileIncrementally(modifiedFile, fixedFile, extraOptions, diagnostics)) {
+      diagnostics = new DiagnosticCollector<>();
+      compileAll(modifiedFile, fixedFile, extraOptions, diagnostics);
+    }
+    verdict = compiles.test(diagnostics.getDiagnostics());
+    verdicts.put(key, verdict);
+    counters.recordMiss(System.nanoTime() - start);
+    return verdict;
+  }
+
+  /** Recompiles every source file of the compilation, with the modified file replaced. */
+  private void compileAll(
+      JavaFileObject modifiedFile,
+      JavaFileObject fixedFile,
+      ImmutableList<String> extraOptions,
+      DiagnosticCollector<JavaFileObject> diagnostics) {
+    Arguments arguments = Arguments.instance(context);
+    URI modifiedFileUri = modifiedFile.toUri();
+    ImmutableList<JavaFileObject> fileObjects =
+        arguments.getFileObjects().stream()
+            .map(f -> modifiedFileUri.equals(f.toUri()) ? fixedFile : f)
+            .collect(toImmutableList());
+    analyze(
+        context.get(JavaFileManager.class),
+        extraOptions,
+        arguments.getClassNames(),
+        fileObjects,
+        diagnostics);
+  }
+
+  /**
+   * Recompiles the modified file, and the files it can't be compiled without. The other source
+   * files of the compilation are only read if the modified file depends on them. Returns false if
+   * javac failed to run the compilation, which then has to be retried with every source file.
+   */
+  private boolean compileIncrementally(
+      JavaFileObject modifiedFile,
+      JavaFileObject fixedFile,
+      ImmutableList<String> extraOptions,
+      DiagnosticCollector<JavaFileObject> diagnostics) {
+    SourceIndex index = sourceIndex.get();
+    URI modifiedFileUri = modifiedFile.toUri();
+    ImmutableList.Builder<JavaFileObject> fileObjects =
+        ImmutableList.<JavaFileObject>builder().add(fixedFile);
+    index.rootFiles.values().stream()
+        .filter(f -> !modifiedFileUri.equals(f.toUri()))
+        .forEach(fileObjects::add);
+    ImmutableList.Builder<String> options = ImmutableList.<String>builder().addAll(extraOptions);
+    // The other sources were already processed by the original compilation, and its generated
+    // sources are on the source path along with them.
+    options.add("-proc:none");
+    if (!this.options.get().containsKey("-implicit:")) {
+      options.add("-implicit:class");
+    }
+    return analyze(
+        new SourcePathFileManager(context.get(JavaFileManager.class), index, modifiedFileUri),
+        options.build(),
+        ImmutableList.of(),
+        fileObjects.build(),
+        diagnostics);
+  }
+
+  /**
+   * Runs a speculative compilation, and returns false if javac printed anything other than
+   * diagnostics, which it only does when it crashes.
+   */
+  @CanIgnoreReturnValue
+  private boolean analyze(
+      JavaFileManager fileManager,
+      ImmutableList<String> extraOptions,
+      Collection<String> classNames,
+      List<JavaFileObject> fileObjects,
+      DiagnosticCollector<JavaFileObject> diagnostics) {
+    Context newContext = new Context();
+    Options newOptions = Options.instance(newContext);
+    options.get().forEach(newOptions::put);
+    StringWriter output = new StringWriter();
+    JavacTask newTask =
+        JavacTool.create()
+            .getTask(
+                output,
+                fileManager,
+                diagnostics,
+                extraOptions,
+                classNames,
+                fileObjects,
+                newContext);
+    try {
+      newTask.analyze();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return output.getBuffer().length() == 0;
+  }
+
+  private ImmutableMap<String, String> copyOptions() {
+    Options originalOptions = Options.instance(context);
+    ImmutableMap.Builder<String, String> result = ImmutableMap.builder();
+    for (String key : originalOptions.keySet()) {
+      String value = originalOptions.get(key);
+      if (key.equals("-Xplugin:") && value.startsWith("ErrorProne")) {
+        // When using the -Xplugin Error Prone integration, disable Error Prone for speculative
+        // recompiles to avoid infinite recursion.
+        continue;
+      }
+      if (SOURCE_TARGET_OPTIONS.contains(key) && originalOptions.isSet("--release")) {
+        // javac does not allow -source and -target to be specified explicitly when --release is,
+        // but does add them in response to passing --release. Here we invert that operation.
+        continue;
+      }
+      result.put(key, value);
+    }
+    return result.build();
+  }
+
+  private boolean isModularCompilation() {
+    return Arguments.instance(context).getFileObjects().stream()
+        .anyMatch(f -> f.isNameCompatible("module-info", SOURCE));
+  }
+
+  private static boolean onlyLimitsDiagnostics(ImmutableList<String> extraOptions) {
+    for (int i = 0; i < extraOptions.size(); i += 2) {
+      if (!DIAGNOSTIC_LIMIT_OPTIONS.contains(extraOptions.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if applying the given fix can't change how other compilation units compile. Every
+   * replacement must be in the imports, strictly inside a method body, or inside a private
+   * declaration without touching its {@code private} modifier.
+   */
+  static boolean isLocal(Fix fix, JCCompilationUnit compilationUnit) {
+    CharSequence source;
+    try {
+      source = compilationUnit.getSourceFile().getCharContent(false);
+    } catch (IOException e) {
+      return false;
+    }
+    for (Replacement replacement : fix.getReplacements(compilationUnit.endPositions)) {
+      if (!isLocal(replacement, compilationUnit, source)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLocal(
+      Replacement replacement, JCCompilationUnit compilationUnit, CharSequence source) {
+    Range<Integer> range = replacement.range();
+    EndPosTable endPositions = compilationUnit.endPositions;
+    int importsStart =
+        compilationUnit.getPackage() == null
+            ? 0
+            : TreeInfo.getEndPos(compilationUnit.getPackage(), endPositions);
+    int importsEnd =
+        compilationUnit.getTypeDecls().stream()
+            .mapToInt(JCTree::getStartPosition)
+            .min()
+            .orElse(source.length());
+    if (importsStart <= range.lowerEndpoint() && range.upperEndpoint() <= importsEnd) {
+      return true;
+    }
+    boolean[] local = {false};
+    new TreeScanner() {
+      @Override
+      public void scan(JCTree tree) {
+        if (!local[0] && tree != null && contains(tree, range, endPositions)) {
+          super.scan(tree);
+        }
+      }
+
+      @Override
+      public void visitClassDef(JCClassDecl tree) {
+        checkPrivate(tree, tree.mods);
+        super.visitClassDef(tree);
+      }
+
+      @Override
+      public void visitMethodDef(JCMethodDecl tree) {
+        if (tree.body != null
+            && tree.body.getStartPosition() < range.lowerEndpoint()
+            && range.upperEndpoint() < TreeInfo.getEndPos(tree.body, endPositions)) {
+          local[0] = true;
+        }
+        checkPrivate(tree, tree.mods);
+        super.visitMethodDef(tree);
+      }
+
+      @Override
+      public void visitVarDef(JCVariableDecl tree) {
+        checkPrivate(tree, tree.mods);
+        super.visitVarDef(tree);
+      }
+
+      private void checkPrivate(JCTree tree, JCModifiers modifiers) {
+        if ((modifiers.flags & Flags.PRIVATE) == 0) {
+          return;
+        }
+        String replaced =
+            source.subSequence(range.lowerEndpoint(), range.upperEndpoint()).toString();
+        if (!replaced.contains("private")
+            || (replacement.replaceWith().isEmpty()
+                && range.lowerEndpoint() <= tree.getStartPosition()
+                && TreeInfo.getEndPos(tree, endPositions) <= range.upperEndpoint())) {
+          local[0] = true;
+        }
+      }
+    }.scan(compilationUnit);
+    return local[0];
+  }
+
+  private static boolean contains(JCTree tree, Range<Integer> range, EndPosTable endPositions) {
+    return tree.getStartPosition() <= range.lowerEndpoint()
+        && range.upperEndpoint() <= TreeInfo.getEndPos(tree, endPositions);
+  }
+
+  /**
+   * Indexes the source files of the compilation by the top-level classes they declare, as entered
+   * by the original compilation. This includes the sources generated by annotation processors.
+   */
+  private SourceIndex indexSources() {
+    Map<URI, JavaFileObject> files = new HashMap<>();
+    Map<URI, String> binaryNames = new HashMap<>();
+    Set<URI> rootFiles = new HashSet<>();
+    ImmutableListMultimap.Builder<String, JavaFileObject> byPackage =
+        ImmutableListMultimap.builder();
+    for (ClassSymbol sym : ImmutableList.copyOf(Symtab.instance(context).getAllClasses())) {
+      if (sym.owner.kind != Kind.PCK
+          || sym.sourcefile == null
+          || sym.sourcefile.getKind() != SOURCE
+          // Classes read from class files only know the name of their source file.
+          || (sym.classfile != null && sym.classfile.getKind() != SOURCE)) {
+        continue;
+      }
+      JavaFileObject file = sym.sourcefile;
+      URI uri = file.toUri();
+      if (!file.isNameCompatible(sym.getSimpleName().toString(), SOURCE)) {
+        // javac only finds classes on the source path in files named after them.
+        rootFiles.add(uri);
+      } else if (files.putIfAbsent(uri, file) == null) {
+        binaryNames.put(uri, sym.flatName().toString());
+        byPackage.put(sym.packge().getQualifiedName().toString(), file);
+      }
+    }
+    ImmutableMap<URI, JavaFileObject> roots =
+        Arguments.instance(context).getFileObjects().stream()
+            .filter(f -> rootFiles.contains(f.toUri()))
+            .collect(toImmutableMap(JavaFileObject::toUri, f -> f, (a, b) -> a));
+    return new SourceIndex(byPackage.build(), ImmutableMap.copyOf(binaryNames), roots);
+  }
+
+  private static final class SourceIndex {
+    final ImmutableListMultimap<String, JavaFileObject> byPackage;
+    final ImmutableMap<URI, String> binaryNames;
+    final ImmutableSet<String> indexedNames;
+
+    /** The files that can't be found on the source path, and have to be compiled explicitly. */
+    final ImmutableMap<URI, JavaFileObject> rootFiles;
+
+    SourceIndex(
+        ImmutableListMultimap<String, JavaFileObject> byPackage,
+        ImmutableMap<URI, String> binaryNames,
+        ImmutableMap<URI, JavaFileObject> rootFiles) {
+      this.byPackage = byPackage;
+      this.binaryNames = binaryNames;
+      this.indexedNames = ImmutableSet.copyOf(binaryNames.values());
+      this.rootFiles = rootFiles;
+    }
+  }
+
+  /**
+   * Serves the indexed sources from the source path, other than the modified file and the files
+   * compiled explicitly.
+   */
+  private static final class SourcePathFileManager
+      extends ForwardingJavaFileManager<JavaFileManager> {
+    private final SourceIndex index;
+    private final URI modifiedFileUri;
+
+    SourcePathFileManager(JavaFileManager fileManager, SourceIndex index, URI modifiedFileUri) {
+      super(fileManager);
+      this.index = index;
+      this.modifiedFileUri = modifiedFileUri;
+    }
+
+    @Override
+    public boolean hasLocation(Location location) {
+      return location == StandardLocation.SOURCE_PATH || super.hasLocation(location);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(
+        Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse)
+        throws IOException {
+      if (location != StandardLocation.SOURCE_PATH) {
+        return super.list(location, packageName, kinds, recurse);
+      }
+      ImmutableList.Builder<JavaFileObject> result = ImmutableList.builder();
+      if (kinds.contains(SOURCE)) {
+        index.byPackage.asMap().entrySet().stream()
+            .filter(
+                e ->
+                    e.getKey().equals(packageName)
+                        || (recurse && e.getKey().startsWith(packageName + ".")))
+            .flatMap(e -> e.getValue().stream())
+            .filter(
+                f ->
+                    !modifiedFileUri.equals(f.toUri())
+                        && !index.rootFiles.containsKey(f.toUri()))
+            .forEach(result::add);
+      }
+      if (super.hasLocation(StandardLocation.SOURCE_PATH)) {
+        // Sources of the compilation shadow the same sources on the original source path.
+        for (JavaFileObject file : super.list(location, packageName, kinds, recurse)) {
+          if (!index.indexedNames.contains(super.inferBinaryName(location, file))) {
+            result.add(file);
+          }
+        }
+      }
+      return result.build();
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+      String binaryName = index.binaryNames.get(file.toUri());
+      return binaryName != null ? binaryName : super.inferBinaryName(location, file);
+    }
+  }
+
+  @AutoValue
+  abstract static class VerdictKey {
+    abstract URI file();
+
+    abstract HashCode fixedSource();
+
+    abstract ImmutableList<String> extraOptions();
+
+    abstract boolean onlyInSameCompilationUnit();
+
+    static VerdictKey create(
+        URI file,
+        HashCode fixedSource,
+        ImmutableList<String> extraOptions,
+        boolean onlyInSameCompilationUnit) {
+      return new AutoValue_SpeculativeCompiler_VerdictKey(
+          file, fixedSource, extraOptions, onlyInSameCompilationUnit);
+    }
+  }
+}
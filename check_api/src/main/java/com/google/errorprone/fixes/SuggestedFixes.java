@@ -47,7 +47,6 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
-import com.google.common.io.CharStreams;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.apply.DescriptionBasedDiff;
 import com.google.errorprone.apply.ImportOrganizer;
@@ -82,7 +81,6 @@ import com.sun.source.util.JavacTask;
 import com.sun.source.util.TreePath;
 import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.api.BasicJavacTask;
-import com.sun.tools.javac.api.JavacTool;
 import com.sun.tools.javac.api.JavacTrees;
 import com.sun.tools.javac.code.BoundKind;
 import com.sun.tools.javac.code.Flags;
@@ -92,7 +90,6 @@ import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Types.DefaultTypeVisitor;
-import com.sun.tools.javac.main.Arguments;
 import com.sun.tools.javac.parser.Tokens;
 import com.sun.tools.javac.parser.Tokens.Comment;
 import com.sun.tools.javac.parser.Tokens.TokenKind;
@@ -100,8 +97,6 @@ import com.sun.tools.javac.tree.DCTree;
 import com.sun.tools.javac.tree.DCTree.DCDocComment;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
-import com.sun.tools.javac.util.Context;
-import com.sun.tools.javac.util.Options;
 import com.sun.tools.javac.util.Position;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -135,11 +130,7 @@ import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.SimpleTypeVisitor8;
 import javax.tools.Diagnostic;
-import javax.tools.DiagnosticCollector;
-import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
-import javax.tools.JavaFileObject.Kind;
-import javax.tools.SimpleJavaFileObject;
 
 /** Factories for constructing {@link Fix}es. */
 public class SuggestedFixes {
@@ -1174,8 +1165,9 @@ public class SuggestedFixes {
 
   /**
    * Returns true if the current compilation would succeed with the given fix applied. Note that
-   * calling this method is very expensive as it requires rerunning the entire compile, so it should
-   * be used with restraint.
+   * calling this method is expensive as it requires recompiling the modified compilation unit, or
+   * rerunning the entire compile if the fix could affect other compilation units, so it should be
+   * used with restraint. Verdicts are cached for the rest of the compilation.
    */
   public static boolean compilesWithFix(Fix fix, VisitorState state) {
     return compilesWithFix(fix, state, ImmutableList.of(), false);
@@ -1184,8 +1176,9 @@ public class SuggestedFixes {
   /**
    * Returns true if the current compilation would succeed with the given fix applied, using the
    * given additional compiler options, optionally limiting the checking of compilation failures to
-   * the compilation unit in which the fix is applied. Note that calling this method is very
-   * expensive as it requires rerunning the entire compile, so it should be used with restraint.
+   * the compilation unit in which the fix is applied. Note that calling this method is expensive as
+   * it requires recompiling the modified compilation unit, or rerunning the entire compile if the
+   * fix or the options could affect other compilation units, so it should be used with restraint.
    */
   public static boolean compilesWithFix(
       Fix fix,
@@ -1235,70 +1228,41 @@ public class SuggestedFixes {
     if (javacTask == null) {
       throw new IllegalArgumentException("No JavacTask in context.");
     }
-    Arguments arguments = Arguments.instance(javacTask.getContext());
-    List<JavaFileObject> fileObjects = new ArrayList<>(arguments.getFileObjects());
-    URI modifiedFileUri = modifiedFile.toUri();
-    for (int i = 0; i < fileObjects.size(); i++) {
-      final JavaFileObject oldFile = fileObjects.get(i);
-      if (modifiedFileUri.equals(oldFile.toUri())) {
-        DescriptionBasedDiff diff =
-            DescriptionBasedDiff.create(compilationUnit, ImportOrganizer.STATIC_FIRST_ORGANIZER);
-        diff.handleFix(fix);
-        SourceFile fixSource;
-        try {
-          fixSource =
-              new SourceFile(
-                  modifiedFile.getName(),
-                  modifiedFile.getCharContent(false /*ignoreEncodingErrors*/));
-        } catch (IOException e) {
-          return false;
-        }
-        diff.applyDifferences(fixSource);
-        fileObjects.set(
-            i,
-            new SimpleJavaFileObject(sourceURI(modifiedFile.toUri()), Kind.SOURCE) {
-              @Override
-              public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
-                return fixSource.getAsSequence();
-              }
-            });
-        break;
-      }
-    }
-    DiagnosticCollector<JavaFileObject> diagnosticListener = new DiagnosticCollector<>();
-    Context context = new Context();
-    Options options = Options.instance(context);
-    Options originalOptions = Options.instance(javacTask.getContext());
-    for (String key : originalOptions.keySet()) {
-      String value = originalOptions.get(key);
-      if (key.equals("-Xplugin:") && value.startsWith("ErrorProne")) {
-        // When using the -Xplugin Error Prone integration, disable Error Prone for speculative
-        // recompiles to avoid infinite recursion.
-        continue;
-      }
-      if (SOURCE_TARGET_OPTIONS.contains(key) && originalOptions.isSet("--release")) {
-        // javac does not allow -source and -target to be specified explicitly when --release is,
-        // but does add them in response to passing --release. Here we invert that operation.
-        continue;
-      }
-      options.put(key, value);
-    }
-    JavacTask newTask =
-        JavacTool.create()
-            .getTask(
-                CharStreams.nullWriter(),
-                state.context.get(JavaFileManager.class),
-                diagnosticListener,
-                extraOptions,
-                arguments.getClassNames(),
-                fileObjects,
-                context);
+    DescriptionBasedDiff diff =
+        DescriptionBasedDiff.create(compilationUnit, ImportOrganizer.STATIC_FIRST_ORGANIZER);
+    diff.handleFix(fix);
+    SourceFile fixSource;
     try {
-      newTask.analyze();
+      fixSource =
+          new SourceFile(
+              modifiedFile.getName(), modifiedFile.getCharContent(false /*ignoreEncodingErrors*/));
     } catch (IOException e) {
-      throw new UncheckedIOException(e);
+      return false;
     }
+    diff.applyDifferences(fixSource);
+    URI modifiedFileUri = modifiedFile.toUri();
+    return SpeculativeCompiler.instance(javacTask)
+        .compilesWithFix(
+            compilationUnit,
+            fix,
+            fixSource.getSourceText(),
+            extraOptions,
+            onlyInSameCompilationUnit,
+            diagnostics ->
+                compiles(
+                    diagnostics,
+                    modifiedFileUri,
+                    onlyInSameCompilationUnit,
+                    maxErrors,
+                    maxWarnings));
+  }
 
+  private static boolean compiles(
+      List<Diagnostic<? extends JavaFileObject>> diagnostics,
+      URI modifiedFileUri,
+      boolean onlyInSameCompilationUnit,
+      int maxErrors,
+      int maxWarnings) {
     // If we reached the maximum number of diagnostics of a given kind without finding one in the
     // modified compilation unit, we won't find any more diagnostics, but we can't be sure that
     // there isn't an diagnostic, as the diagnostic may simply be the (max+1)-th diagnostic, and
@@ -1307,7 +1271,7 @@ public class SuggestedFixes {
     int countWarnings = 0;
     boolean warningIsError = false;
     boolean warningInSameCompilationUnit = false;
-    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnosticListener.getDiagnostics()) {
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
       warningIsError |= diagnostic.getCode().equals("compiler.err.warnings.and.werror");
       JavaFileObject diagnosticSource = diagnostic.getSource();
       // If the source's origin is unknown, assume that new diagnostics are due to a modification.
@@ -1337,9 +1301,6 @@ public class SuggestedFixes {
     return true;
   }
 
-  private static final ImmutableSet<String> SOURCE_TARGET_OPTIONS =
-      ImmutableSet.of("-source", "--source", "-target", "--target");
-
   /** Create a plausible URI to use in {@link #compilesWithFix}. */
   @VisibleForTesting
   static URI sourceURI(URI uri) {
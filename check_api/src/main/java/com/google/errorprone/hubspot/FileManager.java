@@ -18,11 +18,20 @@ package com.google.errorprone.hubspot;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 
@@ -30,6 +39,8 @@ class FileManager {
   private static final ObjectMapper MAPPER = new ObjectMapper();
   private static final String OVERWATCH_DIR_ENV_VAR = "MAVEN_PROJECTBASEDIR";
   private static final String BLAZAR_DIR_ENV_VAR = "VIEWABLE_BUILD_ARTIFACTS_DIR";
+  /** File locks are held by the whole JVM, so threads in it also need to take turns. */
+  private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
 
   static Optional<Path> getErrorOutputPath() {
     return getDataDir(OVERWATCH_DIR_ENV_VAR, "target/overwatch-metadata")
@@ -41,6 +52,16 @@ class FileManager {
         .map(o -> o.resolve("error-prone-timings.json"));
   }
 
+  static Optional<Path> getTimingDetailsOutputPath() {
+    return getDataDir(BLAZAR_DIR_ENV_VAR, "error-prone")
+        .map(o -> o.resolve("error-prone-timings.jsonl"));
+  }
+
+  static Optional<Path> getMatcherCountsOutputPath() {
+    return getDataDir(BLAZAR_DIR_ENV_VAR, "error-prone")
+        .map(o -> o.resolve("error-prone-matcher-counts.json"));
+  }
+
   static Optional<Path> getLifeCycleCanaryPath(String id) {
     return getDataDir(OVERWATCH_DIR_ENV_VAR, "target/overwatch-metadata")
         .map(o -> o.resolve(String.format("lifecycle-canary-%s.json", id)));
@@ -56,6 +77,48 @@ class FileManager {
     }
   }
 
+  static void append(Object data, Path path) {
+    try (OutputStream stream =
+        Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      // A single write per record, so that records appended concurrently are not interleaved
+      stream.write((MAPPER.writeValueAsString(data) + "\n").getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format("Failed to append errorprone metadata to %s", path)
+      );
+    }
+  }
+
+  /**
+   * Replaces the data in {@code path} with the result of merging it into {@code data}, which is
+   * then written back. Compilations in this and other JVMs may merge into the same file
+   * concurrently: they are serialized by an exclusive lock on a sibling {@code .lock} file, and the
+   * data is written to a temporary file that atomically replaces {@code path}, so readers never see
+   * a partial file.
+   */
+  static <T> void merge(Path path, JavaType type, Function<T, ?> merge) {
+    Path lockPath = path.resolveSibling(path.getFileName() + ".lock");
+    synchronized (LOCKS.computeIfAbsent(lockPath.toAbsolutePath(), k -> new Object())) {
+      try (FileChannel channel =
+              FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+          FileLock lock = channel.lock()) {
+        T existing = Files.exists(path) ? MAPPER.readValue(path.toFile(), type) : null;
+        Object merged = merge.apply(existing);
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+          write(merged, temp);
+          Files.move(
+              temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+          Files.deleteIfExists(temp);
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(
+            String.format("Failed to merge errorprone metadata into %s", path), e);
+      }
+    }
+  }
+
   private static Optional<Path> getDataDir(String envVar, String pathToAppend) {
     String dir = System.getenv(envVar);
     if (Strings.isNullOrEmpty(dir)) {
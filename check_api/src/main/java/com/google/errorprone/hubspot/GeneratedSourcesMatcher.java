@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.hubspot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Matches source file paths against a comma-separated list of patterns, each in the {@code
+ * glob:} or {@code regex:} syntax of {@link java.nio.file.FileSystem#getPathMatcher}.
+ *
+ * <p>Globs are translated to regular expressions, and all the patterns are compiled into a single
+ * {@link Pattern}, so matching a path against several patterns costs a single match. The list is
+ * only split at commas that start another {@code glob:} or {@code regex:} pattern, so a single
+ * pattern containing commas means what it did before lists were accepted.
+ *
+ * <p>As with the default file system, globs use the platform's name separator: on Windows, {@code
+ * /} in a glob matches {@code \}, and wildcards don't match across either. Regular expressions
+ * are matched against the path as it is, so they have to spell out the separator themselves.
+ */
+final class GeneratedSourcesMatcher {
+  private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+  /** A comma followed by the syntax of the next pattern. */
+  private static final Pattern NEXT_PATTERN = Pattern.compile(",(?=\\s*(?:glob|regex):)");
+
+  private final Pattern pattern;
+
+  private GeneratedSourcesMatcher(Pattern pattern) {
+    this.pattern = pattern;
+  }
+
+  static GeneratedSourcesMatcher compile(String patterns) {
+    return compile(patterns, File.separatorChar);
+  }
+
+  static GeneratedSourcesMatcher compile(String patterns, char separator) {
+    List<String> regexes = new ArrayList<>();
+    for (String syntaxAndPattern : split(patterns)) {
+      int colon = syntaxAndPattern.indexOf(':');
+      if (colon <= 0) {
+        throw new IllegalArgumentException(
+            "Expected glob:<pattern> or regex:<pattern>, got " + syntaxAndPattern);
+      }
+      String syntax = syntaxAndPattern.substring(0, colon);
+      String pattern = syntaxAndPattern.substring(colon + 1);
+      switch (syntax) {
+        case "glob":
+          regexes.add(globToRegex(pattern, separator));
+          break;
+        case "regex":
+          regexes.add(pattern);
+          break;
+        default:
+          throw new UnsupportedOperationException("Syntax '" + syntax + "' not recognized");
+      }
+    }
+    return new GeneratedSourcesMatcher(
+        Pattern.compile(regexes.stream().collect(Collectors.joining(")|(?:", "(?:", ")"))));
+  }
+
+  boolean matches(String path) {
+    return pattern.matcher(path).matches();
+  }
+
+  /** Splits the given patterns on the commas that are followed by another pattern's syntax. */
+  private static List<String> split(String patterns) {
+    List<String> result = new ArrayList<>();
+    for (String pattern : NEXT_PATTERN.split(patterns)) {
+      result.add(pattern.trim());
+    }
+    return result;
+  }
+
+  /**
+   * Translates a glob to a regular expression, following the rules of a file system whose name
+   * separator is {@code separator}.
+   */
+  static String globToRegex(String glob, char separator) {
+    // '/' is accepted as a separator on every platform, as paths on Windows may use either.
+    String separators = separator == '/' ? "/" : "/\\" + separator;
+    String notSeparator = "[^" + separators + "]";
+    StringBuilder regex = new StringBuilder();
+    boolean inGroup = false;
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      switch (c) {
+        case '\\':
+          if (++i == glob.length()) {
+            throw new IllegalArgumentException("No character to escape in " + glob);
+          }
+          appendLiteral(regex, glob.charAt(i));
+          break;
+        case '*':
+          if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+            regex.append(".*");
+            i++;
+          } else {
+            regex.append(notSeparator).append('*');
+          }
+          break;
+        case '?':
+          regex.append(notSeparator);
+          break;
+        case '/':
+          regex.append(separator == '/' ? "/" : "[" + separators + "]");
+          break;
+        case '{':
+          if (inGroup) {
+            throw new IllegalArgumentException("Cannot nest groups in " + glob);
+          }
+          regex.append("(?:(?:");
+          inGroup = true;
+          break;
+        case '}':
+          if (inGroup) {
+            regex.append("))");
+            inGroup = false;
+          } else {
+            regex.append("\\}");
+          }
+          break;
+        case ',':
+          regex.append(inGroup ? ")|(?:" : ",");
+          break;
+        case '[':
+          int end = glob.indexOf(']', i + 2);
+          if (end < 0) {
+            throw new IllegalArgumentException("Missing ']' in " + glob);
+          }
+          String chars = glob.substring(i + 1, end);
+          // Bracket expressions never match the name separator.
+          regex.append('[').append(notSeparator).append("&&[");
+          if (chars.startsWith("!")) {
+            regex.append('^');
+            chars = chars.substring(1);
+          }
+          for (int j = 0; j < chars.length(); j++) {
+            char ch = chars.charAt(j);
+            if (ch == '[' || ch == '\\' || ch == '&' || (ch == '^' && j == 0)) {
+              regex.append('\\');
+            }
+            regex.append(ch);
+          }
+          regex.append("]]");
+          i = end;
+          break;
+        default:
+          appendLiteral(regex, c);
+      }
+    }
+    if (inGroup) {
+      throw new IllegalArgumentException("Missing '}' in " + glob);
+    }
+    return regex.toString();
+  }
+
+  private static void appendLiteral(StringBuilder regex, char c) {
+    if (REGEX_META_CHARS.indexOf(c) >= 0) {
+      regex.append('\\');
+    }
+    regex.append(c);
+  }
+}
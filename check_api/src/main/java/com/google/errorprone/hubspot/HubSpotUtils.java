@@ -16,11 +16,6 @@
 
 package com.google.errorprone.hubspot;
 
-import java.io.IOException;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -29,6 +24,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
@@ -45,7 +42,11 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.descriptionlistener.CustomDescriptionListenerFactory;
 import com.google.errorprone.descriptionlistener.DescriptionListenerResources;
+import com.google.errorprone.descriptionlistener.LifecycleDescriptionListener;
+import com.google.errorprone.descriptionlistener.LifecycleDescriptionListenerFactory;
 import com.google.errorprone.matchers.Suppressible;
+import com.google.errorprone.scanner.ErrorProneScanner;
+import com.google.errorprone.scanner.Scanner;
 import com.google.errorprone.scanner.ScannerSupplier;
 import com.google.errorprone.suppliers.Supplier;
 import com.google.errorprone.util.ASTHelpers;
@@ -70,11 +71,20 @@ public class HubSpotUtils {
   private static final String INIT_ERROR = "errorProneInitErrors";
   private static final String LISTENER_INIT_ERRORS = "errorProneListenerInitErrors";
   private static final String ERROR_REPORTING_FLAG = "hubspot:error-reporting";
+  /**
+   * Patterns of the source files that hold generated code, as {@code glob:} or {@code regex:}
+   * patterns of {@link java.nio.file.FileSystem#getPathMatcher}. Several patterns can be given
+   * separated by commas; the value is only split at a comma followed by another {@code glob:} or
+   * {@code regex:}, so commas within a pattern keep their meaning.
+   */
   private static final String GENERATED_SOURCES_FLAG = "hubspot:generated-sources-pattern";
-  private static final Map<String, Set<String>> DATA = loadExistingData();
-  private static final Map<String, Long> PREVIOUS_TIMING_DATA = loadExistingTimings();
-  private static final Map<String, Long> TIMING_DATA = new ConcurrentHashMap<>();
-  private static final Supplier<PathMatcher> GENERATED_PATTERN = VisitorState.memoize(getGeneratedPathsMatcher());
+  private static final String MATCHER_COUNTS_FLAG = "hubspot:matcher-counts";
+  /**
+   * Errors recorded by every compilation in this JVM. Merging is a set union, so each compilation
+   * can merge all of them into the output file, whichever compilations ran before.
+   */
+  private static final Map<String, Set<String>> DATA = new ConcurrentHashMap<>();
+  private static final Supplier<GeneratedSourcesMatcher> GENERATED_PATTERN = VisitorState.memoize(getGeneratedPathsMatcher());
 
   public static ScannerSupplier createScannerSupplier(Iterable<BugChecker> extraBugCheckers) {
     ImmutableList.Builder<BugCheckerInfo> builder = ImmutableList.builder();
@@ -105,8 +115,42 @@ public class HubSpotUtils {
     return listeners.build();
   }
 
+  public static ImmutableList<CustomDescriptionListenerFactory> loadDescriptionListenerFactories(
+      Iterable<CustomDescriptionListenerFactory> factories) {
+    Iterator<CustomDescriptionListenerFactory> iter = factories.iterator();
+    ImmutableList.Builder<CustomDescriptionListenerFactory> loaded = ImmutableList.builder();
+    while (iter.hasNext()) {
+      try {
+        loaded.add(iter.next());
+      } catch (Throwable t) {
+        recordListenerInitError(t);
+      }
+    }
+
+    return loaded.build();
+  }
+
+  public static List<LifecycleDescriptionListener> loadLifecycleDescriptionListeners(
+      Iterable<LifecycleDescriptionListenerFactory> factories, Context context, boolean useErrors) {
+    Iterator<LifecycleDescriptionListenerFactory> iter = factories.iterator();
+    ImmutableList.Builder<LifecycleDescriptionListener> listeners = ImmutableList.builder();
+    while (iter.hasNext()) {
+      try {
+        listeners.add(iter.next().create(context, useErrors));
+      } catch (Throwable t) {
+        recordListenerInitError(t);
+      }
+    }
+
+    return listeners.build();
+  }
+
   public static boolean isErrorHandlingEnabled(DescriptionListenerResources resources) {
-    return isFlagEnabled(ERROR_REPORTING_FLAG, resources.getContext().get(ErrorProneFlags.class));
+    return isErrorHandlingEnabled(resources.getContext());
+  }
+
+  public static boolean isErrorHandlingEnabled(Context context) {
+    return isFlagEnabled(ERROR_REPORTING_FLAG, context.get(ErrorProneFlags.class));
   }
 
   public static boolean isErrorHandlingEnabled(ErrorProneOptions options) {
@@ -121,10 +165,15 @@ public class HubSpotUtils {
     return isFlagEnabled("hubspot:generated-code-inspection", visitorState.errorProneOptions());
   }
 
+  /**
+   * Returns whether the compilation unit being scanned matches the patterns of {@code
+   * hubspot:generated-sources-pattern}. The answer is the same for every tree in a compilation
+   * unit, so callers should compute it once per unit.
+   */
   public static boolean isGenerated(VisitorState state) {
     return GENERATED_PATTERN
         .get(state)
-        .matches(Paths.get(ASTHelpers.getFileName(state.getPath().getCompilationUnit())));
+        .matches(Paths.get(ASTHelpers.getFileName(state.getPath().getCompilationUnit())).toString());
   }
 
   public static void recordError(Suppressible s) {
@@ -137,24 +186,45 @@ public class HubSpotUtils {
         .add(checkName);
   }
 
-  public static void recordTimings(Context context) {
-    ErrorProneTimings.instance(context)
-        .timings()
-        .forEach((k, v) -> TIMING_DATA.put(k, v.toMillis()));
+  /**
+   * Writes the number of enabled matchers for each tree kind when {@code hubspot:matcher-counts} is
+   * set, showing which node kinds the enabled checks pay for.
+   */
+  public static void recordMatcherCounts(Scanner scanner, ErrorProneOptions options) {
+    if (!isFlagEnabled(MATCHER_COUNTS_FLAG, options) || !(scanner instanceof ErrorProneScanner)) {
+      return;
+    }
+
+    Map<String, Long> counts = new HashMap<>();
+    ((ErrorProneScanner) scanner)
+        .matcherCountsByKind()
+        .forEach((kind, count) -> counts.put(kind.name(), (long) count));
+    FileManager.getMatcherCountsOutputPath()
+        .ifPresent(p -> FileManager.write(sortTimings(counts), p));
   }
 
   public static void init(JavacTask task) {
     Context context = ((BasicJavacTask) task).getContext();
+    Optional<TimingsReport> timingsReport = FileManager.getTimingDetailsOutputPath()
+        .map(p -> new TimingsReport(p, context));
+    timingsReport.ifPresent(r -> ErrorProneTimings.instance(context)
+        .setCompilationUnitListener(r::recordCompilationUnit));
     HubSpotLifecycleManager.instance(context).addShutdownListener(() -> {
-      FileManager.getErrorOutputPath().ifPresent(p -> FileManager.write(DATA, p));
-      FileManager.getTimingsOutputPath().ifPresent(p -> FileManager.write(computeFinalTimings(), p));
+      FileManager.getErrorOutputPath()
+          .ifPresent(p -> FileManager.merge(p, ERROR_DATA_TYPE, HubSpotUtils::mergeErrors));
+      FileManager.getTimingsOutputPath()
+          .ifPresent(p -> FileManager.merge(
+              p,
+              TIMINGS_DATA_TYPE,
+              (Map<String, Long> existing) -> mergeTimings(existing, getTimings(context))));
+      timingsReport.ifPresent(r -> r.finish(ErrorProneTimings.instance(context)));
     });
   }
 
-  private static Supplier<PathMatcher> getGeneratedPathsMatcher() {
+  private static Supplier<GeneratedSourcesMatcher> getGeneratedPathsMatcher() {
     return visitorState -> Optional.ofNullable(visitorState.errorProneOptions().getFlags())
         .flatMap(f -> f.get(GENERATED_SOURCES_FLAG))
-        .map(s -> FileSystems.getDefault().getPathMatcher(s))
+        .map(GeneratedSourcesMatcher::compile)
         .orElseThrow(() -> new IllegalStateException("Must specify flag " + GENERATED_SOURCES_FLAG));
   }
 
@@ -190,12 +260,31 @@ public class HubSpotUtils {
     }
   }
 
-  private static Map<String, Long> computeFinalTimings() {
-    Map<String, Long> res = new HashMap<>(PREVIOUS_TIMING_DATA);
-    TIMING_DATA.forEach(
-        (k, newValue) -> res.compute(
-            k,
-            (key, oldValue) -> oldValue == null ? newValue : oldValue + newValue));
+  private static Map<String, Set<String>> mergeErrors(Map<String, Set<String>> existing) {
+    Map<String, Set<String>> res = new TreeMap<>();
+    if (existing != null) {
+      existing.forEach((k, v) -> res.computeIfAbsent(k, ignored -> new TreeSet<>()).addAll(v));
+    }
+    DATA.forEach((k, v) -> res.computeIfAbsent(k, ignored -> new TreeSet<>()).addAll(v));
+    return res;
+  }
+
+  private static Map<String, Long> getTimings(Context context) {
+    Map<String, Long> res = new HashMap<>();
+    ErrorProneTimings.instance(context)
+        .timings()
+        .forEach((k, v) -> res.put(k, v.toMillis()));
+    return res;
+  }
+
+  private static Map<String, Long> mergeTimings(
+      Map<String, Long> existing,
+      Map<String, Long> timings) {
+    Map<String, Long> res = new HashMap<>();
+    if (existing != null) {
+      res.putAll(existing);
+    }
+    timings.forEach((k, v) -> res.merge(k, v, Long::sum));
 
     res.put(
         "total",
@@ -205,7 +294,11 @@ public class HubSpotUtils {
             .mapToLong(Map.Entry::getValue)
             .sum());
 
-    return res.entrySet()
+    return sortTimings(res);
+  }
+
+  private static Map<String, Long> sortTimings(Map<String, Long> data) {
+    return data.entrySet()
         .stream()
         .sorted(TIMING_COMPARATOR)
         .collect(ImmutableMap.toImmutableMap(
@@ -213,50 +306,6 @@ public class HubSpotUtils {
             Map.Entry::getValue));
   }
 
-  private static Map<String, Set<String>> loadExistingData() {
-    return FileManager.getErrorOutputPath()
-        .map(HubSpotUtils::loadData)
-        .map(HubSpotUtils::toDataSet)
-        .orElseGet(ConcurrentHashMap::new);
-  }
-
-  private static Map<String, Long> loadExistingTimings() {
-    return FileManager.getTimingsOutputPath()
-        .map(HubSpotUtils::loadTimingData)
-        .orElseGet(ImmutableMap::of);
-  }
-
-  private static Map<String, Set<String>> toDataSet(Map<String, Set<String>> data) {
-    ConcurrentHashMap<String, Set<String>> map = new ConcurrentHashMap<>(data.size());
-    data.forEach((k, v) -> {
-      Set<String> set = ConcurrentHashMap.newKeySet(v.size());
-      set.addAll(v);
-      map.put(k, set);
-    });
-
-    return map;
-  }
-
-  private static Map<String, Set<String>> loadData(Path path) {
-    return loadData(path, ERROR_DATA_TYPE);
-  }
-
-  private static Map<String, Long> loadTimingData(Path path) {
-    return loadData(path, TIMINGS_DATA_TYPE);
-  }
-
-  private static <T, U> Map<T, U> loadData(Path path, JavaType type) {
-    if (!Files.exists(path)) {
-      return ImmutableMap.of();
-    }
-
-    try {
-      return JsonUtils.getMapper().readValue(path.toFile(), type);
-    } catch (IOException e) {
-      throw new RuntimeException("Failed to read existing file to load data", e);
-    }
-  }
-
   private static Comparator<Map.Entry<String, Long>> buildTimingComparator() {
     Comparator<Map.Entry<String, Long>> comp = Comparator.comparing(Map.Entry::getValue);
     return comp.reversed().thenComparing(Map.Entry::getKey);
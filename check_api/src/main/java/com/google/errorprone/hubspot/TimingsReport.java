@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.hubspot;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.ErrorProneTimings.CacheCounters;
+import com.google.errorprone.ErrorProneTimings.CheckTiming;
+import com.google.errorprone.ErrorProneTimings.CompilationUnitTiming;
+import com.google.errorprone.ErrorProneTimings.Totals;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * Appends a breakdown of check timings to a JSON lines file: one {@code file} record per
+ * compilation unit as soon as it has been scanned, followed at the end of the compilation by a
+ * {@code kinds} record with the time spent per tree kind, a {@code checks} record with the data of
+ * each check, a {@code caches} record with the lookup counters of each cache, a {@code pruned}
+ * record with the number of subtrees skipped because every check was suppressed in them, and a
+ * {@code slowest} record with the slowest (check, file) pairs.
+ *
+ * <p>Records are only ever appended, so consecutive compilations writing to the same file don't
+ * need to read or rewrite it.
+ */
+class TimingsReport {
+  private static final String TOP_N_FLAG = "hubspot:timings-top-n";
+  private static final int DEFAULT_TOP_N = 25;
+  private static final Comparator<Map.Entry<String, Totals>> SLOWEST_FIRST =
+      Comparator.comparing((Map.Entry<String, Totals> e) -> e.getValue().time())
+          .reversed()
+          .thenComparing(Map.Entry::getKey);
+
+  private final Path path;
+  private final Context context;
+  /** The slowest (check, file) pairs seen so far, with the fastest of them at the head. */
+  private final PriorityQueue<SlowCheck> slowest =
+      new PriorityQueue<>(Comparator.comparingLong(s -> s.nanos));
+  private int topN = -1;
+
+  TimingsReport(Path path, Context context) {
+    this.path = path;
+    this.context = context;
+  }
+
+  synchronized void recordCompilationUnit(CompilationUnitTiming timing) {
+    List<Map.Entry<String, Totals>> checks =
+        timing.checks().entrySet().stream()
+            .sorted(SLOWEST_FIRST)
+            .limit(topN())
+            .collect(ImmutableList.toImmutableList());
+
+    ImmutableMap.Builder<String, Object> slowestChecks = ImmutableMap.builder();
+    for (Map.Entry<String, Totals> check : checks) {
+      slowestChecks.put(check.getKey(), toMap(check.getValue()));
+      offer(new SlowCheck(check.getKey(), timing.file(), check.getValue()));
+    }
+
+    FileManager.append(
+        ImmutableMap.of(
+            "type", "file",
+            "file", timing.file(),
+            "nanos", timing.total().time().toNanos(),
+            "invocations", timing.total().invocations(),
+            "slowestChecks", slowestChecks.build()),
+        path);
+  }
+
+  synchronized void finish(ErrorProneTimings timings) {
+    ImmutableMap.Builder<String, Object> kinds = ImmutableMap.builder();
+    timings.kindTimings().entrySet().stream()
+        .sorted(Comparator.comparing((Map.Entry<?, Totals> e) -> e.getValue().time()).reversed())
+        .forEach(e -> kinds.put(e.getKey().name(), toMap(e.getValue())));
+    FileManager.append(ImmutableMap.of("type", "kinds", "kinds", kinds.build()), path);
+
+    ImmutableMap.Builder<String, Object> checks = ImmutableMap.builder();
+    timings.checkTimings().entrySet().stream()
+        .sorted(
+            Comparator.comparing((Map.Entry<String, CheckTiming> e) -> e.getValue().total())
+                .reversed()
+                .thenComparing(Map.Entry::getKey))
+        .forEach(e -> checks.put(e.getKey(), toMap(e.getValue())));
+    FileManager.append(ImmutableMap.of("type", "checks", "checks", checks.build()), path);
+
+    ImmutableMap.Builder<String, Object> caches = ImmutableMap.builder();
+    timings.allCacheCounters().entrySet().stream()
+        .sorted(Map.Entry.comparingByKey())
+        .forEach(e -> caches.put(e.getKey(), toMap(e.getValue())));
+    FileManager.append(ImmutableMap.of("type", "caches", "caches", caches.build()), path);
+
+    ImmutableMap.Builder<String, Object> pruned = ImmutableMap.builder();
+    timings.prunedSubtrees().entrySet().stream()
+        .sorted(Map.Entry.comparingByKey())
+        .forEach(e -> pruned.put(e.getKey().name(), e.getValue()));
+    FileManager.append(ImmutableMap.of("type", "pruned", "subtrees", pruned.build()), path);
+
+    ImmutableList<ImmutableMap<String, Object>> entries =
+        slowest.stream()
+            .sorted(Comparator.comparingLong((SlowCheck s) -> s.nanos).reversed())
+            .map(SlowCheck::toMap)
+            .collect(ImmutableList.toImmutableList());
+    FileManager.append(ImmutableMap.of("type", "slowest", "entries", entries), path);
+  }
+
+  private void offer(SlowCheck check) {
+    if (slowest.size() < topN()) {
+      slowest.add(check);
+    } else if (slowest.peek().nanos < check.nanos) {
+      slowest.poll();
+      slowest.add(check);
+    }
+  }
+
+  private int topN() {
+    if (topN < 0) {
+      topN =
+          Optional.ofNullable(context.get(ErrorProneFlags.class))
+              .flatMap(f -> f.getInteger(TOP_N_FLAG))
+              .orElse(DEFAULT_TOP_N);
+    }
+    return topN;
+  }
+
+  private static ImmutableMap<String, Object> toMap(Totals totals) {
+    return ImmutableMap.of(
+        "nanos", totals.time().toNanos(),
+        "invocations", totals.invocations());
+  }
+
+  private static ImmutableMap<String, Object> toMap(CheckTiming timing) {
+    return ImmutableMap.of(
+        "totalNanos", timing.total().toNanos(),
+        "selfNanos", timing.self().toNanos(),
+        "invocations", timing.invocations(),
+        "hits", timing.hits());
+  }
+
+  private static ImmutableMap<String, Object> toMap(CacheCounters counters) {
+    return ImmutableMap.of(
+        "hits", counters.hits(),
+        "misses", counters.misses(),
+        "rebuilds", counters.rebuilds(),
+        "missNanos", counters.missTime().toNanos());
+  }
+
+  private static final class SlowCheck {
+    private final String check;
+    private final String file;
+    private final long nanos;
+    private final long invocations;
+
+    SlowCheck(String check, String file, Totals totals) {
+      this.check = check;
+      this.file = file;
+      this.nanos = totals.time().toNanos();
+      this.invocations = totals.invocations();
+    }
+
+    ImmutableMap<String, Object> toMap() {
+      return ImmutableMap.of(
+          "check", check,
+          "file", file,
+          "nanos", nanos,
+          "invocations", invocations);
+    }
+  }
+}
@@ -17,13 +17,17 @@
 package com.google.errorprone.scanner;
 
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.ErrorProneError;
 import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.ErrorProneTimings;
 import com.google.errorprone.hubspot.HubSpotUtils;
+import com.google.errorprone.SuppressionInfo;
 import com.google.errorprone.SuppressionInfo.SuppressedState;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
@@ -101,6 +105,7 @@ import com.sun.source.tree.DoWhileLoopTree;
 import com.sun.source.tree.EmptyStatementTree;
 import com.sun.source.tree.EnhancedForLoopTree;
 import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.ForLoopTree;
 import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.IfTree;
@@ -139,11 +144,14 @@ import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
 import com.sun.tools.javac.util.Name;
 
 import java.lang.annotation.Annotation;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Scans the parsed AST, looking for violations of any of the enabled checks.
@@ -157,6 +165,7 @@ public class ErrorProneScanner extends Scanner {
 
   private final Map<String, SeverityLevel> severities;
   private final ImmutableSet<BugChecker> bugCheckers;
+  private final SuppressionInfo.Checkers suppressionCheckers;
 
   /**
    * Create an error-prone scanner for the given checkers.
@@ -184,11 +193,19 @@ public class ErrorProneScanner extends Scanner {
    */
   public ErrorProneScanner(Iterable<BugChecker> checkers, Map<String, SeverityLevel> severities) {
     this.bugCheckers = ImmutableSet.copyOf(checkers);
+    this.suppressionCheckers = new SuppressionInfo.Checkers(this.bugCheckers);
     this.severities = severities;
+    this.matchersByKind = buildMatchersByKind(this.bugCheckers);
+    this.matchingCheckers = new BitSet(this.bugCheckers.size());
+    for (KindMatchers kindMatchers : matchersByKind.values()) {
+      for (int index : kindMatchers.checkerIndices) {
+        matchingCheckers.set(index);
+      }
+    }
     ImmutableSet.Builder<Class<? extends Annotation>> annotationClassesBuilder =
         ImmutableSet.builder();
     for (BugChecker checker : this.bugCheckers) {
-      registerNodeTypes(checker, annotationClassesBuilder);
+      annotationClassesBuilder.addAll(checker.customSuppressionAnnotations());
     }
     ImmutableSet<Class<? extends Annotation>> annotationClasses = annotationClassesBuilder.build();
     this.customSuppressionAnnotations =
@@ -216,218 +233,171 @@ public class ErrorProneScanner extends Scanner {
     return customSuppressionAnnotations.get(state);
   }
 
-  private final List<AnnotationTreeMatcher> annotationMatchers = new ArrayList<>();
-  private final List<AnnotatedTypeTreeMatcher> annotatedTypeMatchers = new ArrayList<>();
-  private final List<ArrayAccessTreeMatcher> arrayAccessMatchers = new ArrayList<>();
-  private final List<ArrayTypeTreeMatcher> arrayTypeMatchers = new ArrayList<>();
-  private final List<AssertTreeMatcher> assertMatchers = new ArrayList<>();
-  private final List<AssignmentTreeMatcher> assignmentMatchers = new ArrayList<>();
-  private final List<BinaryTreeMatcher> binaryMatchers = new ArrayList<>();
-  private final List<BlockTreeMatcher> blockMatchers = new ArrayList<>();
-  private final List<BreakTreeMatcher> breakMatchers = new ArrayList<>();
-  private final List<CaseTreeMatcher> caseMatchers = new ArrayList<>();
-  private final List<CatchTreeMatcher> catchMatchers = new ArrayList<>();
-  private final List<ClassTreeMatcher> classMatchers = new ArrayList<>();
-  private final List<CompilationUnitTreeMatcher> compilationUnitMatchers = new ArrayList<>();
-  private final List<CompoundAssignmentTreeMatcher> compoundAssignmentMatchers = new ArrayList<>();
-  private final List<ConditionalExpressionTreeMatcher> conditionalExpressionMatchers =
-      new ArrayList<>();
-  private final List<ContinueTreeMatcher> continueMatchers = new ArrayList<>();
-  private final List<DoWhileLoopTreeMatcher> doWhileLoopMatchers = new ArrayList<>();
-  private final List<EmptyStatementTreeMatcher> emptyStatementMatchers = new ArrayList<>();
-  private final List<EnhancedForLoopTreeMatcher> enhancedForLoopMatchers = new ArrayList<>();
-  private final List<ExpressionStatementTreeMatcher> expressionStatementMatchers =
-      new ArrayList<>();
-  private final List<ForLoopTreeMatcher> forLoopMatchers = new ArrayList<>();
-  private final List<IdentifierTreeMatcher> identifierMatchers = new ArrayList<>();
-  private final List<IfTreeMatcher> ifMatchers = new ArrayList<>();
-  private final List<ImportTreeMatcher> importMatchers = new ArrayList<>();
-  private final List<InstanceOfTreeMatcher> instanceOfMatchers = new ArrayList<>();
-  private final List<IntersectionTypeTreeMatcher> intersectionTypeMatchers = new ArrayList<>();
-  private final List<LabeledStatementTreeMatcher> labeledStatementMatchers = new ArrayList<>();
-  private final List<LambdaExpressionTreeMatcher> lambdaExpressionMatchers = new ArrayList<>();
-  private final List<LiteralTreeMatcher> literalMatchers = new ArrayList<>();
-  private final List<MemberReferenceTreeMatcher> memberReferenceMatchers = new ArrayList<>();
-  private final List<MemberSelectTreeMatcher> memberSelectMatchers = new ArrayList<>();
-  private final List<MethodTreeMatcher> methodMatchers = new ArrayList<>();
-  private final List<MethodInvocationTreeMatcher> methodInvocationMatchers = new ArrayList<>();
-  private final List<ModifiersTreeMatcher> modifiersMatchers = new ArrayList<>();
-  private final List<NewArrayTreeMatcher> newArrayMatchers = new ArrayList<>();
-  private final List<NewClassTreeMatcher> newClassMatchers = new ArrayList<>();
-  private final List<ParameterizedTypeTreeMatcher> parameterizedTypeMatchers = new ArrayList<>();
-  private final List<ParenthesizedTreeMatcher> parenthesizedMatchers = new ArrayList<>();
-  private final List<PrimitiveTypeTreeMatcher> primitiveTypeMatchers = new ArrayList<>();
-  private final List<ReturnTreeMatcher> returnMatchers = new ArrayList<>();
-  private final List<SwitchTreeMatcher> switchMatchers = new ArrayList<>();
-  private final List<SynchronizedTreeMatcher> synchronizedMatchers = new ArrayList<>();
-  private final List<ThrowTreeMatcher> throwMatchers = new ArrayList<>();
-  private final List<TryTreeMatcher> tryMatchers = new ArrayList<>();
-  private final List<TypeCastTreeMatcher> typeCastMatchers = new ArrayList<>();
-  private final List<TypeParameterTreeMatcher> typeParameterMatchers = new ArrayList<>();
-  private final List<UnaryTreeMatcher> unaryMatchers = new ArrayList<>();
-  private final List<UnionTypeTreeMatcher> unionTypeMatchers = new ArrayList<>();
-  private final List<VariableTreeMatcher> variableMatchers = new ArrayList<>();
-  private final List<WhileLoopTreeMatcher> whileLoopMatchers = new ArrayList<>();
-  private final List<WildcardTreeMatcher> wildcardMatchers = new ArrayList<>();
-
-  private void registerNodeTypes(
-      BugChecker checker,
-      ImmutableSet.Builder<Class<? extends Annotation>> customSuppressionAnnotationClasses) {
-    customSuppressionAnnotationClasses.addAll(checker.customSuppressionAnnotations());
-
-    if (checker instanceof AnnotationTreeMatcher) {
-      annotationMatchers.add((AnnotationTreeMatcher) checker);
-    }
-    if (checker instanceof AnnotatedTypeTreeMatcher) {
-      annotatedTypeMatchers.add((AnnotatedTypeTreeMatcher) checker);
-    }
-    if (checker instanceof ArrayAccessTreeMatcher) {
-      arrayAccessMatchers.add((ArrayAccessTreeMatcher) checker);
-    }
-    if (checker instanceof ArrayTypeTreeMatcher) {
-      arrayTypeMatchers.add((ArrayTypeTreeMatcher) checker);
-    }
-    if (checker instanceof AssertTreeMatcher) {
-      assertMatchers.add((AssertTreeMatcher) checker);
-    }
-    if (checker instanceof AssignmentTreeMatcher) {
-      assignmentMatchers.add((AssignmentTreeMatcher) checker);
-    }
-    if (checker instanceof BinaryTreeMatcher) {
-      binaryMatchers.add((BinaryTreeMatcher) checker);
-    }
-    if (checker instanceof BlockTreeMatcher) {
-      blockMatchers.add((BlockTreeMatcher) checker);
-    }
-    if (checker instanceof BreakTreeMatcher) {
-      breakMatchers.add((BreakTreeMatcher) checker);
-    }
-    if (checker instanceof CaseTreeMatcher) {
-      caseMatchers.add((CaseTreeMatcher) checker);
-    }
-    if (checker instanceof CatchTreeMatcher) {
-      catchMatchers.add((CatchTreeMatcher) checker);
-    }
-    if (checker instanceof ClassTreeMatcher) {
-      classMatchers.add((ClassTreeMatcher) checker);
-    }
-    if (checker instanceof CompilationUnitTreeMatcher) {
-      compilationUnitMatchers.add((CompilationUnitTreeMatcher) checker);
-    }
-    if (checker instanceof CompoundAssignmentTreeMatcher) {
-      compoundAssignmentMatchers.add((CompoundAssignmentTreeMatcher) checker);
-    }
-    if (checker instanceof ConditionalExpressionTreeMatcher) {
-      conditionalExpressionMatchers.add((ConditionalExpressionTreeMatcher) checker);
-    }
-    if (checker instanceof ContinueTreeMatcher) {
-      continueMatchers.add((ContinueTreeMatcher) checker);
-    }
-    if (checker instanceof DoWhileLoopTreeMatcher) {
-      doWhileLoopMatchers.add((DoWhileLoopTreeMatcher) checker);
-    }
-    if (checker instanceof EmptyStatementTreeMatcher) {
-      emptyStatementMatchers.add((EmptyStatementTreeMatcher) checker);
-    }
-    if (checker instanceof EnhancedForLoopTreeMatcher) {
-      enhancedForLoopMatchers.add((EnhancedForLoopTreeMatcher) checker);
-    }
-    if (checker instanceof ExpressionStatementTreeMatcher) {
-      expressionStatementMatchers.add((ExpressionStatementTreeMatcher) checker);
-    }
-    if (checker instanceof ForLoopTreeMatcher) {
-      forLoopMatchers.add((ForLoopTreeMatcher) checker);
-    }
-    if (checker instanceof IdentifierTreeMatcher) {
-      identifierMatchers.add((IdentifierTreeMatcher) checker);
-    }
-    if (checker instanceof IfTreeMatcher) {
-      ifMatchers.add((IfTreeMatcher) checker);
-    }
-    if (checker instanceof ImportTreeMatcher) {
-      importMatchers.add((ImportTreeMatcher) checker);
-    }
-    if (checker instanceof InstanceOfTreeMatcher) {
-      instanceOfMatchers.add((InstanceOfTreeMatcher) checker);
-    }
-    if (checker instanceof IntersectionTypeTreeMatcher) {
-      intersectionTypeMatchers.add((IntersectionTypeTreeMatcher) checker);
-    }
-    if (checker instanceof LabeledStatementTreeMatcher) {
-      labeledStatementMatchers.add((LabeledStatementTreeMatcher) checker);
-    }
-    if (checker instanceof LambdaExpressionTreeMatcher) {
-      lambdaExpressionMatchers.add((LambdaExpressionTreeMatcher) checker);
-    }
-    if (checker instanceof LiteralTreeMatcher) {
-      literalMatchers.add((LiteralTreeMatcher) checker);
-    }
-    if (checker instanceof MemberReferenceTreeMatcher) {
-      memberReferenceMatchers.add((MemberReferenceTreeMatcher) checker);
-    }
-    if (checker instanceof MemberSelectTreeMatcher) {
-      memberSelectMatchers.add((MemberSelectTreeMatcher) checker);
-    }
-    if (checker instanceof MethodTreeMatcher) {
-      methodMatchers.add((MethodTreeMatcher) checker);
-    }
-    if (checker instanceof MethodInvocationTreeMatcher) {
-      methodInvocationMatchers.add((MethodInvocationTreeMatcher) checker);
-    }
-    if (checker instanceof ModifiersTreeMatcher) {
-      modifiersMatchers.add((ModifiersTreeMatcher) checker);
-    }
-    if (checker instanceof NewArrayTreeMatcher) {
-      newArrayMatchers.add((NewArrayTreeMatcher) checker);
-    }
-    if (checker instanceof NewClassTreeMatcher) {
-      newClassMatchers.add((NewClassTreeMatcher) checker);
-    }
-    if (checker instanceof ParameterizedTypeTreeMatcher) {
-      parameterizedTypeMatchers.add((ParameterizedTypeTreeMatcher) checker);
-    }
-    if (checker instanceof ParenthesizedTreeMatcher) {
-      parenthesizedMatchers.add((ParenthesizedTreeMatcher) checker);
-    }
-    if (checker instanceof PrimitiveTypeTreeMatcher) {
-      primitiveTypeMatchers.add((PrimitiveTypeTreeMatcher) checker);
-    }
-    if (checker instanceof ReturnTreeMatcher) {
-      returnMatchers.add((ReturnTreeMatcher) checker);
-    }
-    if (checker instanceof SwitchTreeMatcher) {
-      switchMatchers.add((SwitchTreeMatcher) checker);
-    }
-    if (checker instanceof SynchronizedTreeMatcher) {
-      synchronizedMatchers.add((SynchronizedTreeMatcher) checker);
-    }
-    if (checker instanceof ThrowTreeMatcher) {
-      throwMatchers.add((ThrowTreeMatcher) checker);
-    }
-    if (checker instanceof TryTreeMatcher) {
-      tryMatchers.add((TryTreeMatcher) checker);
-    }
-    if (checker instanceof TypeCastTreeMatcher) {
-      typeCastMatchers.add((TypeCastTreeMatcher) checker);
-    }
-    if (checker instanceof TypeParameterTreeMatcher) {
-      typeParameterMatchers.add((TypeParameterTreeMatcher) checker);
-    }
-    if (checker instanceof UnaryTreeMatcher) {
-      unaryMatchers.add((UnaryTreeMatcher) checker);
+  /**
+   * The indices in {@link #bugCheckers} of the checkers that match at least one kind of tree, and so
+   * could report something in a subtree.
+   */
+  private final BitSet matchingCheckers;
+
+  @Override
+  protected boolean everyCheckSuppressed(VisitorState state) {
+    ErrorProneOptions errorProneOptions = state.errorProneOptions();
+    if (errorProneOptions.isIgnoreSuppressionAnnotations()) {
+      return false;
     }
-    if (checker instanceof UnionTypeTreeMatcher) {
-      unionTypeMatchers.add((UnionTypeTreeMatcher) checker);
+    ImmutableList<BugChecker> checkers = bugCheckers.asList();
+    for (int i = matchingCheckers.nextSetBit(0); i >= 0; i = matchingCheckers.nextSetBit(i + 1)) {
+      if (isSuppressed(suppressionCheckers, i, checkers.get(i), errorProneOptions, state)
+          == SuppressedState.UNSUPPRESSED) {
+        return false;
+      }
     }
-    if (checker instanceof VariableTreeMatcher) {
-      variableMatchers.add((VariableTreeMatcher) checker);
+    return true;
+  }
+
+  /**
+   * The matchers registered for each {@link Tree.Kind}, in the order their checkers were given to
+   * the scanner. Kinds that no enabled checker matches are absent from the table.
+   */
+  private final ImmutableMap<Tree.Kind, KindMatchers> matchersByKind;
+
+  /** The matchers for one {@link Tree.Kind}, with the index of each in {@link #bugCheckers}. */
+  private static final class KindMatchers {
+    private final ImmutableList<Suppressible> matchers;
+    private final int[] checkerIndices;
+
+    /**
+     * For method invocations and instance creations, the matchers that could report a given
+     * invocation; null if every matcher has to see every tree of this kind.
+     */
+    @Nullable private final MethodInvocationIndex methodInvocationIndex;
+
+    KindMatchers(
+        Tree.Kind kind, ImmutableList<Suppressible> matchers, ImmutableList<BugChecker> checkers) {
+      this.matchers = matchers;
+      this.methodInvocationIndex =
+          kind == Tree.Kind.METHOD_INVOCATION || kind == Tree.Kind.NEW_CLASS
+              ? MethodInvocationIndex.create(matchers)
+              : null;
+      this.checkerIndices = new int[matchers.size()];
+      for (int i = 0; i < checkerIndices.length; i++) {
+        checkerIndices[i] = checkers.indexOf(matchers.get(i));
+      }
     }
-    if (checker instanceof WhileLoopTreeMatcher) {
-      whileLoopMatchers.add((WhileLoopTreeMatcher) checker);
+  }
+
+  /** The {@link ErrorProneTimings} that {@link #timingOrdinals} were assigned by. */
+  private ErrorProneTimings timings;
+
+  /** The timing ordinal of each checker, indexed by its position in {@link #bugCheckers}. */
+  private int[] timingOrdinals;
+
+  private int[] timingOrdinals(ErrorProneTimings timings) {
+    if (timings != this.timings) {
+      ImmutableList<BugChecker> checkers = bugCheckers.asList();
+      int[] ordinals = new int[checkers.size()];
+      for (int i = 0; i < ordinals.length; i++) {
+        ordinals[i] = timings.ordinal(checkers.get(i));
+      }
+      this.timingOrdinals = ordinals;
+      this.timings = timings;
     }
-    if (checker instanceof WildcardTreeMatcher) {
-      wildcardMatchers.add((WildcardTreeMatcher) checker);
+    return timingOrdinals;
+  }
+
+  /**
+   * The type of tree handled by each matcher interface. A checker implementing one of these is
+   * registered for every {@link Tree.Kind} whose {@link Tree.Kind#asInterface()} is that type.
+   */
+  private static final ImmutableMap<Class<? extends Suppressible>, Class<? extends Tree>>
+      MATCHER_TREE_TYPES =
+          ImmutableMap.<Class<? extends Suppressible>, Class<? extends Tree>>builder()
+              .put(AnnotatedTypeTreeMatcher.class, AnnotatedTypeTree.class)
+              .put(AnnotationTreeMatcher.class, AnnotationTree.class)
+              .put(ArrayAccessTreeMatcher.class, ArrayAccessTree.class)
+              .put(ArrayTypeTreeMatcher.class, ArrayTypeTree.class)
+              .put(AssertTreeMatcher.class, AssertTree.class)
+              .put(AssignmentTreeMatcher.class, AssignmentTree.class)
+              .put(BinaryTreeMatcher.class, BinaryTree.class)
+              .put(BlockTreeMatcher.class, BlockTree.class)
+              .put(BreakTreeMatcher.class, BreakTree.class)
+              .put(CaseTreeMatcher.class, CaseTree.class)
+              .put(CatchTreeMatcher.class, CatchTree.class)
+              .put(ClassTreeMatcher.class, ClassTree.class)
+              .put(CompilationUnitTreeMatcher.class, CompilationUnitTree.class)
+              .put(CompoundAssignmentTreeMatcher.class, CompoundAssignmentTree.class)
+              .put(ConditionalExpressionTreeMatcher.class, ConditionalExpressionTree.class)
+              .put(ContinueTreeMatcher.class, ContinueTree.class)
+              .put(DoWhileLoopTreeMatcher.class, DoWhileLoopTree.class)
+              .put(EmptyStatementTreeMatcher.class, EmptyStatementTree.class)
+              .put(EnhancedForLoopTreeMatcher.class, EnhancedForLoopTree.class)
+              .put(ExpressionStatementTreeMatcher.class, ExpressionStatementTree.class)
+              .put(ForLoopTreeMatcher.class, ForLoopTree.class)
+              .put(IdentifierTreeMatcher.class, IdentifierTree.class)
+              .put(IfTreeMatcher.class, IfTree.class)
+              .put(ImportTreeMatcher.class, ImportTree.class)
+              .put(InstanceOfTreeMatcher.class, InstanceOfTree.class)
+              .put(IntersectionTypeTreeMatcher.class, IntersectionTypeTree.class)
+              .put(LabeledStatementTreeMatcher.class, LabeledStatementTree.class)
+              .put(LambdaExpressionTreeMatcher.class, LambdaExpressionTree.class)
+              .put(LiteralTreeMatcher.class, LiteralTree.class)
+              .put(MemberReferenceTreeMatcher.class, MemberReferenceTree.class)
+              .put(MemberSelectTreeMatcher.class, MemberSelectTree.class)
+              .put(MethodInvocationTreeMatcher.class, MethodInvocationTree.class)
+              .put(MethodTreeMatcher.class, MethodTree.class)
+              .put(ModifiersTreeMatcher.class, ModifiersTree.class)
+              .put(NewArrayTreeMatcher.class, NewArrayTree.class)
+              .put(NewClassTreeMatcher.class, NewClassTree.class)
+              .put(ParameterizedTypeTreeMatcher.class, ParameterizedTypeTree.class)
+              .put(ParenthesizedTreeMatcher.class, ParenthesizedTree.class)
+              .put(PrimitiveTypeTreeMatcher.class, PrimitiveTypeTree.class)
+              .put(ReturnTreeMatcher.class, ReturnTree.class)
+              .put(SwitchTreeMatcher.class, SwitchTree.class)
+              .put(SynchronizedTreeMatcher.class, SynchronizedTree.class)
+              .put(ThrowTreeMatcher.class, ThrowTree.class)
+              .put(TryTreeMatcher.class, TryTree.class)
+              .put(TypeCastTreeMatcher.class, TypeCastTree.class)
+              .put(TypeParameterTreeMatcher.class, TypeParameterTree.class)
+              .put(UnaryTreeMatcher.class, UnaryTree.class)
+              .put(UnionTypeTreeMatcher.class, UnionTypeTree.class)
+              .put(VariableTreeMatcher.class, VariableTree.class)
+              .put(WhileLoopTreeMatcher.class, WhileLoopTree.class)
+              .put(WildcardTreeMatcher.class, WildcardTree.class)
+              .build();
+
+  private static ImmutableMap<Tree.Kind, KindMatchers> buildMatchersByKind(
+      ImmutableSet<BugChecker> checkers) {
+    Map<Class<? extends Tree>, ImmutableList.Builder<Suppressible>> byTreeType = new HashMap<>();
+    for (BugChecker checker : checkers) {
+      MATCHER_TREE_TYPES.forEach(
+          (matcherType, treeType) -> {
+            if (matcherType.isInstance(checker)) {
+              byTreeType.computeIfAbsent(treeType, k -> ImmutableList.builder()).add(checker);
+            }
+          });
+    }
+    ImmutableMap<Class<? extends Tree>, ImmutableList<Suppressible>> matchersByTreeType =
+        ImmutableMap.copyOf(Maps.transformValues(byTreeType, ImmutableList.Builder::build));
+    Map<Class<? extends Tree>, KindMatchers> kindMatchersByTreeType = new HashMap<>();
+    Map<Tree.Kind, KindMatchers> table = new EnumMap<>(Tree.Kind.class);
+    for (Tree.Kind kind : Tree.Kind.values()) {
+      ImmutableList<Suppressible> matchers = matchersByTreeType.get(kind.asInterface());
+      if (matchers != null) {
+        table.put(
+            kind,
+            kindMatchersByTreeType.computeIfAbsent(
+                kind.asInterface(), k -> new KindMatchers(kind, matchers, checkers.asList())));
+      }
     }
+    return Maps.immutableEnumMap(table);
+  }
+
+  /**
+   * Returns the number of matchers registered for each {@link Tree.Kind}. Kinds without any
+   * matchers are omitted.
+   */
+  public ImmutableMap<Tree.Kind, Integer> matcherCountsByKind() {
+    return ImmutableMap.copyOf(Maps.transformValues(matchersByKind, m -> m.matchers.size()));
   }
 
   @FunctionalInterface
@@ -436,21 +406,61 @@ public class ErrorProneScanner extends Scanner {
   }
 
   private <M extends Suppressible, T extends Tree> VisitorState processMatchers(
-      Iterable<M> matchers, T tree, TreeProcessor<M, T> processingFunction, VisitorState oldState) {
+      T tree, TreeProcessor<M, T> processingFunction, VisitorState oldState) {
+    KindMatchers kindMatchers = matchersByKind.get(tree.getKind());
+    if (kindMatchers == null) {
+      // No enabled checker is interested in this kind of tree, so skip moving the state to it. The
+      // children of this tree move the state to their own paths as needed.
+      return oldState;
+    }
+    // matchersByKind only maps a kind to checkers implementing the matcher for its tree type.
+    @SuppressWarnings("unchecked")
+    List<M> matchers = (List<M>) kindMatchers.matchers;
+    int[] ordinals = timingOrdinals(oldState.timings());
+    ErrorProneTimings.Profiler profiler = oldState.timings().profiler();
     ErrorProneOptions errorProneOptions = oldState.errorProneOptions();
-    // A VisitorState with our new path, but without mentioning the suppression of any matcher.
-    VisitorState newState = oldState.withPath(getCurrentPath());
-    for (M matcher : matchers) {
-      SuppressedState suppressed = isSuppressed(matcher, errorProneOptions, newState);
+    // The state is a cursor shared with the rest of the traversal, moved in place to our path.
+    // Matchers may keep the state they are given, so they get an immutable snapshot of it instead.
+    VisitorState newState = oldState.cursor().moveTo(getCurrentPath());
+    VisitorState matcherState = null;
+    BitSet candidates =
+        kindMatchers.methodInvocationIndex != null
+            ? kindMatchers.methodInvocationIndex.candidates((ExpressionTree) tree, newState)
+            : null;
+    for (int i = 0; i < matchers.size(); i++) {
+      if (candidates != null && !candidates.get(i)) {
+        // None of the matcher's method invocation rules can match this invocation.
+        continue;
+      }
+      M matcher = matchers.get(i);
+      SuppressedState suppressed =
+          isSuppressed(
+              suppressionCheckers,
+              kindMatchers.checkerIndices[i],
+              matcher,
+              errorProneOptions,
+              newState);
       // If the ErrorProneOptions say to visit suppressed code, we still visit it
       if (suppressed == SuppressedState.UNSUPPRESSED
           || errorProneOptions.isIgnoreSuppressionAnnotations()) {
-        try (AutoCloseable unused = oldState.timingSpan(matcher)) {
-          // We create a new VisitorState with the suppression info specific to this matcher.
-          VisitorState stateWithSuppressionInformation = newState.withSuppression(suppressed);
-          reportMatch(
-              processingFunction.process(matcher, tree, stateWithSuppressionInformation),
-              stateWithSuppressionInformation);
+        try {
+          if (matcherState == null) {
+            matcherState = newState.snapshot();
+          }
+          VisitorState stateWithSuppressionInformation = matcherState.withSuppression(suppressed);
+          int ordinal = ordinals[kindMatchers.checkerIndices[i]];
+          Description description;
+          profiler.enter(ordinal, tree.getKind());
+          try {
+            description =
+                processingFunction.process(matcher, tree, stateWithSuppressionInformation);
+          } finally {
+            profiler.exit();
+          }
+          if (description != null && description != Description.NO_MATCH) {
+            profiler.hit(ordinal);
+          }
+          reportMatch(description, stateWithSuppressionInformation);
         } catch (Throwable t) {
           handleError(matcher, t, errorProneOptions);
         }
@@ -462,92 +472,76 @@ public class ErrorProneScanner extends Scanner {
   @Override
   public Void visitAnnotation(AnnotationTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            annotationMatchers, tree, AnnotationTreeMatcher::matchAnnotation, visitorState);
+        processMatchers(tree, AnnotationTreeMatcher::matchAnnotation, visitorState);
     return super.visitAnnotation(tree, state);
   }
 
   @Override
   public Void visitAnnotatedType(AnnotatedTypeTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            annotatedTypeMatchers,
-            tree,
-            AnnotatedTypeTreeMatcher::matchAnnotatedType,
-            visitorState);
+        processMatchers(tree, AnnotatedTypeTreeMatcher::matchAnnotatedType, visitorState);
     return super.visitAnnotatedType(tree, state);
   }
 
   @Override
   public Void visitArrayAccess(ArrayAccessTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            arrayAccessMatchers, tree, ArrayAccessTreeMatcher::matchArrayAccess, visitorState);
+        processMatchers(tree, ArrayAccessTreeMatcher::matchArrayAccess, visitorState);
     return super.visitArrayAccess(tree, state);
   }
 
   @Override
   public Void visitArrayType(ArrayTypeTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(
-            arrayTypeMatchers, tree, ArrayTypeTreeMatcher::matchArrayType, visitorState);
+    VisitorState state = processMatchers(tree, ArrayTypeTreeMatcher::matchArrayType, visitorState);
     return super.visitArrayType(tree, state);
   }
 
   @Override
   public Void visitAssert(AssertTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(assertMatchers, tree, AssertTreeMatcher::matchAssert, visitorState);
+    VisitorState state = processMatchers(tree, AssertTreeMatcher::matchAssert, visitorState);
     return super.visitAssert(tree, state);
   }
 
   @Override
   public Void visitAssignment(AssignmentTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            assignmentMatchers, tree, AssignmentTreeMatcher::matchAssignment, visitorState);
+        processMatchers(tree, AssignmentTreeMatcher::matchAssignment, visitorState);
     return super.visitAssignment(tree, state);
   }
 
   @Override
   public Void visitBinary(BinaryTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(binaryMatchers, tree, BinaryTreeMatcher::matchBinary, visitorState);
+    VisitorState state = processMatchers(tree, BinaryTreeMatcher::matchBinary, visitorState);
     return super.visitBinary(tree, state);
   }
 
   @Override
   public Void visitBlock(BlockTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(blockMatchers, tree, BlockTreeMatcher::matchBlock, visitorState);
+    VisitorState state = processMatchers(tree, BlockTreeMatcher::matchBlock, visitorState);
     return super.visitBlock(tree, state);
   }
 
   @Override
   public Void visitBreak(BreakTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(breakMatchers, tree, BreakTreeMatcher::matchBreak, visitorState);
+    VisitorState state = processMatchers(tree, BreakTreeMatcher::matchBreak, visitorState);
     return super.visitBreak(tree, state);
   }
 
   @Override
   public Void visitCase(CaseTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(caseMatchers, tree, CaseTreeMatcher::matchCase, visitorState);
+    VisitorState state = processMatchers(tree, CaseTreeMatcher::matchCase, visitorState);
     return super.visitCase(tree, state);
   }
 
   @Override
   public Void visitCatch(CatchTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(catchMatchers, tree, CatchTreeMatcher::matchCatch, visitorState);
+    VisitorState state = processMatchers(tree, CatchTreeMatcher::matchCatch, visitorState);
     return super.visitCatch(tree, state);
   }
 
   @Override
   public Void visitClass(ClassTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(classMatchers, tree, ClassTreeMatcher::matchClass, visitorState);
+    VisitorState state = processMatchers(tree, ClassTreeMatcher::matchClass, visitorState);
     return super.visitClass(tree, state);
   }
 
@@ -555,22 +549,14 @@ public class ErrorProneScanner extends Scanner {
   public Void visitCompilationUnit(CompilationUnitTree tree, VisitorState visitorState) {
 
     VisitorState state =
-        processMatchers(
-            compilationUnitMatchers,
-            tree,
-            CompilationUnitTreeMatcher::matchCompilationUnit,
-            visitorState);
+        processMatchers(tree, CompilationUnitTreeMatcher::matchCompilationUnit, visitorState);
     return super.visitCompilationUnit(tree, state);
   }
 
   @Override
   public Void visitCompoundAssignment(CompoundAssignmentTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            compoundAssignmentMatchers,
-            tree,
-            CompoundAssignmentTreeMatcher::matchCompoundAssignment,
-            visitorState);
+        processMatchers(tree, CompoundAssignmentTreeMatcher::matchCompoundAssignment, visitorState);
     return super.visitCompoundAssignment(tree, state);
   }
 
@@ -579,47 +565,34 @@ public class ErrorProneScanner extends Scanner {
       ConditionalExpressionTree tree, VisitorState visitorState) {
     VisitorState state =
         processMatchers(
-            conditionalExpressionMatchers,
-            tree,
-            ConditionalExpressionTreeMatcher::matchConditionalExpression,
-            visitorState);
+            tree, ConditionalExpressionTreeMatcher::matchConditionalExpression, visitorState);
     return super.visitConditionalExpression(tree, state);
   }
 
   @Override
   public Void visitContinue(ContinueTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(continueMatchers, tree, ContinueTreeMatcher::matchContinue, visitorState);
+    VisitorState state = processMatchers(tree, ContinueTreeMatcher::matchContinue, visitorState);
     return super.visitContinue(tree, state);
   }
 
   @Override
   public Void visitDoWhileLoop(DoWhileLoopTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            doWhileLoopMatchers, tree, DoWhileLoopTreeMatcher::matchDoWhileLoop, visitorState);
+        processMatchers(tree, DoWhileLoopTreeMatcher::matchDoWhileLoop, visitorState);
     return super.visitDoWhileLoop(tree, state);
   }
 
   @Override
   public Void visitEmptyStatement(EmptyStatementTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            emptyStatementMatchers,
-            tree,
-            EmptyStatementTreeMatcher::matchEmptyStatement,
-            visitorState);
+        processMatchers(tree, EmptyStatementTreeMatcher::matchEmptyStatement, visitorState);
     return super.visitEmptyStatement(tree, state);
   }
 
   @Override
   public Void visitEnhancedForLoop(EnhancedForLoopTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            enhancedForLoopMatchers,
-            tree,
-            EnhancedForLoopTreeMatcher::matchEnhancedForLoop,
-            visitorState);
+        processMatchers(tree, EnhancedForLoopTreeMatcher::matchEnhancedForLoop, visitorState);
     return super.visitEnhancedForLoop(tree, state);
   }
 
@@ -629,105 +602,80 @@ public class ErrorProneScanner extends Scanner {
   public Void visitExpressionStatement(ExpressionStatementTree tree, VisitorState visitorState) {
     VisitorState state =
         processMatchers(
-            expressionStatementMatchers,
-            tree,
-            ExpressionStatementTreeMatcher::matchExpressionStatement,
-            visitorState);
+            tree, ExpressionStatementTreeMatcher::matchExpressionStatement, visitorState);
     return super.visitExpressionStatement(tree, state);
   }
 
   @Override
   public Void visitForLoop(ForLoopTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(forLoopMatchers, tree, ForLoopTreeMatcher::matchForLoop, visitorState);
+    VisitorState state = processMatchers(tree, ForLoopTreeMatcher::matchForLoop, visitorState);
     return super.visitForLoop(tree, state);
   }
 
   @Override
   public Void visitIdentifier(IdentifierTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            identifierMatchers, tree, IdentifierTreeMatcher::matchIdentifier, visitorState);
+        processMatchers(tree, IdentifierTreeMatcher::matchIdentifier, visitorState);
     return super.visitIdentifier(tree, state);
   }
 
   @Override
   public Void visitIf(IfTree tree, VisitorState visitorState) {
-    VisitorState state = processMatchers(ifMatchers, tree, IfTreeMatcher::matchIf, visitorState);
+    VisitorState state = processMatchers(tree, IfTreeMatcher::matchIf, visitorState);
     return super.visitIf(tree, state);
   }
 
   @Override
   public Void visitImport(ImportTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(importMatchers, tree, ImportTreeMatcher::matchImport, visitorState);
+    VisitorState state = processMatchers(tree, ImportTreeMatcher::matchImport, visitorState);
     return super.visitImport(tree, state);
   }
 
   @Override
   public Void visitInstanceOf(InstanceOfTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            instanceOfMatchers, tree, InstanceOfTreeMatcher::matchInstanceOf, visitorState);
+        processMatchers(tree, InstanceOfTreeMatcher::matchInstanceOf, visitorState);
     return super.visitInstanceOf(tree, state);
   }
 
   @Override
   public Void visitIntersectionType(IntersectionTypeTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            intersectionTypeMatchers,
-            tree,
-            IntersectionTypeTreeMatcher::matchIntersectionType,
-            visitorState);
+        processMatchers(tree, IntersectionTypeTreeMatcher::matchIntersectionType, visitorState);
     return super.visitIntersectionType(tree, state);
   }
 
   @Override
   public Void visitLabeledStatement(LabeledStatementTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            labeledStatementMatchers,
-            tree,
-            LabeledStatementTreeMatcher::matchLabeledStatement,
-            visitorState);
+        processMatchers(tree, LabeledStatementTreeMatcher::matchLabeledStatement, visitorState);
     return super.visitLabeledStatement(tree, state);
   }
 
   @Override
   public Void visitLambdaExpression(LambdaExpressionTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            lambdaExpressionMatchers,
-            tree,
-            LambdaExpressionTreeMatcher::matchLambdaExpression,
-            visitorState);
+        processMatchers(tree, LambdaExpressionTreeMatcher::matchLambdaExpression, visitorState);
     return super.visitLambdaExpression(tree, state);
   }
 
   @Override
   public Void visitLiteral(LiteralTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(literalMatchers, tree, LiteralTreeMatcher::matchLiteral, visitorState);
+    VisitorState state = processMatchers(tree, LiteralTreeMatcher::matchLiteral, visitorState);
     return super.visitLiteral(tree, state);
   }
 
   @Override
   public Void visitMemberReference(MemberReferenceTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            memberReferenceMatchers,
-            tree,
-            MemberReferenceTreeMatcher::matchMemberReference,
-            visitorState);
+        processMatchers(tree, MemberReferenceTreeMatcher::matchMemberReference, visitorState);
     return super.visitMemberReference(tree, state);
   }
 
   @Override
   public Void visitMemberSelect(MemberSelectTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            memberSelectMatchers, tree, MemberSelectTreeMatcher::matchMemberSelect, visitorState);
+        processMatchers(tree, MemberSelectTreeMatcher::matchMemberSelect, visitorState);
     return super.visitMemberSelect(tree, state);
   }
 
@@ -738,42 +686,33 @@ public class ErrorProneScanner extends Scanner {
       return null;
     }
 
-    VisitorState state =
-        processMatchers(methodMatchers, tree, MethodTreeMatcher::matchMethod, visitorState);
+    VisitorState state = processMatchers(tree, MethodTreeMatcher::matchMethod, visitorState);
     return super.visitMethod(tree, state);
   }
 
   @Override
   public Void visitMethodInvocation(MethodInvocationTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            methodInvocationMatchers,
-            tree,
-            MethodInvocationTreeMatcher::matchMethodInvocation,
-            visitorState);
+        processMatchers(tree, MethodInvocationTreeMatcher::matchMethodInvocation, visitorState);
     return super.visitMethodInvocation(tree, state);
   }
 
   @Override
   public Void visitModifiers(ModifiersTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(
-            modifiersMatchers, tree, ModifiersTreeMatcher::matchModifiers, visitorState);
+    VisitorState state = processMatchers(tree, ModifiersTreeMatcher::matchModifiers, visitorState);
 
     return super.visitModifiers(tree, state);
   }
 
   @Override
   public Void visitNewArray(NewArrayTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(newArrayMatchers, tree, NewArrayTreeMatcher::matchNewArray, visitorState);
+    VisitorState state = processMatchers(tree, NewArrayTreeMatcher::matchNewArray, visitorState);
     return super.visitNewArray(tree, state);
   }
 
   @Override
   public Void visitNewClass(NewClassTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(newClassMatchers, tree, NewClassTreeMatcher::matchNewClass, visitorState);
+    VisitorState state = processMatchers(tree, NewClassTreeMatcher::matchNewClass, visitorState);
     return super.visitNewClass(tree, state);
   }
 
@@ -783,123 +722,95 @@ public class ErrorProneScanner extends Scanner {
   @Override
   public Void visitParameterizedType(ParameterizedTypeTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            parameterizedTypeMatchers,
-            tree,
-            ParameterizedTypeTreeMatcher::matchParameterizedType,
-            visitorState);
+        processMatchers(tree, ParameterizedTypeTreeMatcher::matchParameterizedType, visitorState);
     return super.visitParameterizedType(tree, state);
   }
 
   @Override
   public Void visitParenthesized(ParenthesizedTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            parenthesizedMatchers,
-            tree,
-            ParenthesizedTreeMatcher::matchParenthesized,
-            visitorState);
+        processMatchers(tree, ParenthesizedTreeMatcher::matchParenthesized, visitorState);
     return super.visitParenthesized(tree, state);
   }
 
   @Override
   public Void visitPrimitiveType(PrimitiveTypeTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            primitiveTypeMatchers,
-            tree,
-            PrimitiveTypeTreeMatcher::matchPrimitiveType,
-            visitorState);
+        processMatchers(tree, PrimitiveTypeTreeMatcher::matchPrimitiveType, visitorState);
     return super.visitPrimitiveType(tree, state);
   }
 
   @Override
   public Void visitReturn(ReturnTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(returnMatchers, tree, ReturnTreeMatcher::matchReturn, visitorState);
+    VisitorState state = processMatchers(tree, ReturnTreeMatcher::matchReturn, visitorState);
     return super.visitReturn(tree, state);
   }
 
   @Override
   public Void visitSwitch(SwitchTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(switchMatchers, tree, SwitchTreeMatcher::matchSwitch, visitorState);
+    VisitorState state = processMatchers(tree, SwitchTreeMatcher::matchSwitch, visitorState);
     return super.visitSwitch(tree, state);
   }
 
   @Override
   public Void visitSynchronized(SynchronizedTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            synchronizedMatchers, tree, SynchronizedTreeMatcher::matchSynchronized, visitorState);
+        processMatchers(tree, SynchronizedTreeMatcher::matchSynchronized, visitorState);
     return super.visitSynchronized(tree, state);
   }
 
   @Override
   public Void visitThrow(ThrowTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(throwMatchers, tree, ThrowTreeMatcher::matchThrow, visitorState);
+    VisitorState state = processMatchers(tree, ThrowTreeMatcher::matchThrow, visitorState);
     return super.visitThrow(tree, state);
   }
 
   @Override
   public Void visitTry(TryTree tree, VisitorState visitorState) {
-    VisitorState state = processMatchers(tryMatchers, tree, TryTreeMatcher::matchTry, visitorState);
+    VisitorState state = processMatchers(tree, TryTreeMatcher::matchTry, visitorState);
     return super.visitTry(tree, state);
   }
 
   @Override
   public Void visitTypeCast(TypeCastTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(typeCastMatchers, tree, TypeCastTreeMatcher::matchTypeCast, visitorState);
+    VisitorState state = processMatchers(tree, TypeCastTreeMatcher::matchTypeCast, visitorState);
     return super.visitTypeCast(tree, state);
   }
 
   @Override
   public Void visitTypeParameter(TypeParameterTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            typeParameterMatchers,
-            tree,
-            TypeParameterTreeMatcher::matchTypeParameter,
-            visitorState);
+        processMatchers(tree, TypeParameterTreeMatcher::matchTypeParameter, visitorState);
     return super.visitTypeParameter(tree, state);
   }
 
   @Override
   public Void visitUnary(UnaryTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(unaryMatchers, tree, UnaryTreeMatcher::matchUnary, visitorState);
+    VisitorState state = processMatchers(tree, UnaryTreeMatcher::matchUnary, visitorState);
     return super.visitUnary(tree, state);
   }
 
   @Override
   public Void visitUnionType(UnionTypeTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(
-            unionTypeMatchers, tree, UnionTypeTreeMatcher::matchUnionType, visitorState);
+    VisitorState state = processMatchers(tree, UnionTypeTreeMatcher::matchUnionType, visitorState);
     return super.visitUnionType(tree, state);
   }
 
   @Override
   public Void visitVariable(VariableTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(variableMatchers, tree, VariableTreeMatcher::matchVariable, visitorState);
+    VisitorState state = processMatchers(tree, VariableTreeMatcher::matchVariable, visitorState);
     return super.visitVariable(tree, state);
   }
 
   @Override
   public Void visitWhileLoop(WhileLoopTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(
-            whileLoopMatchers, tree, WhileLoopTreeMatcher::matchWhileLoop, visitorState);
+    VisitorState state = processMatchers(tree, WhileLoopTreeMatcher::matchWhileLoop, visitorState);
     return super.visitWhileLoop(tree, state);
   }
 
   @Override
   public Void visitWildcard(WildcardTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(wildcardMatchers, tree, WildcardTreeMatcher::matchWildcard, visitorState);
+    VisitorState state = processMatchers(tree, WildcardTreeMatcher::matchWildcard, visitorState);
     return super.visitWildcard(tree, state);
   }
 
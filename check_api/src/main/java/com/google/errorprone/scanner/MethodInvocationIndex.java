@@ -0,0 +1,234 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.scanner;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Suppressible;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.MethodKind;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Rule;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Token;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.TokenType;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
+import com.google.errorprone.suppliers.Supplier;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Name;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * An index of the {@link MethodInvocationRules} of the matchers registered for method invocations
+ * or instance creations, keyed by method name and then by owner type.
+ *
+ * <p>For each invocation, the invoked symbol is resolved once and the index returns the positions
+ * of the matchers that could report it: those whose rules could match the invocation, and those
+ * that declare no indexable rules at all. Owner types are taken from {@link TokenType#DEFINED_IN}
+ * or {@link TokenType#RECEIVER_TYPE} tokens; rules constraining neither are only keyed by name.
+ *
+ * <p>Instances are not thread-safe: the returned set is reused for every invocation.
+ */
+final class MethodInvocationIndex {
+
+  /** The positions of matchers that need to see every invocation. */
+  private final BitSet unindexed = new BitSet();
+
+  /** Method name, then owner type, to the positions of the matchers with a rule for it. */
+  private final Map<String, Node> byName = new HashMap<>();
+
+  /** The matchers with rules that don't constrain the method name, keyed by owner type. */
+  private final Node anyName = new Node();
+
+  /** {@link #byName} and {@link #anyName} with their keys converted to {@link Name}s. */
+  private final Supplier<Compiled> compiled;
+
+  private final BitSet candidates = new BitSet();
+
+  /**
+   * Returns an index of the given matchers, or null if none of them declares any rules, in which
+   * case every invocation has to be dispatched to all of them anyway.
+   */
+  @Nullable
+  static MethodInvocationIndex create(List<? extends Suppressible> matchers) {
+    if (matchers.stream().noneMatch(m -> m instanceof MethodInvocationRules)) {
+      return null;
+    }
+    return new MethodInvocationIndex(matchers);
+  }
+
+  private MethodInvocationIndex(List<? extends Suppressible> matchers) {
+    for (int i = 0; i < matchers.size(); i++) {
+      Optional<ImmutableSet<Rule>> rules = rules(matchers.get(i));
+      if (!rules.isPresent()) {
+        unindexed.set(i);
+        continue;
+      }
+      for (Rule rule : rules.get()) {
+        for (Optional<String> name : names(rule)) {
+          Node node =
+              name.isPresent() ? byName.computeIfAbsent(name.get(), k -> new Node()) : anyName;
+          add(rule.required().get(TokenType.DEFINED_IN), node.byDefinedIn, i);
+          add(rule.required().get(TokenType.RECEIVER_TYPE), node.byReceiverType, i);
+          if (!rule.required().containsKey(TokenType.DEFINED_IN)
+              && !rule.required().containsKey(TokenType.RECEIVER_TYPE)) {
+            node.any.set(i);
+          }
+        }
+      }
+    }
+    this.compiled = VisitorState.memoize(this::compile);
+  }
+
+  /**
+   * Returns the rules of the given matcher, or empty if its invocations can't be filtered by the
+   * index.
+   */
+  private static Optional<ImmutableSet<Rule>> rules(Suppressible matcher) {
+    if (!(matcher instanceof MethodInvocationRules)) {
+      return Optional.empty();
+    }
+    ImmutableSet.Builder<Rule> rules = ImmutableSet.builder();
+    for (Matcher<ExpressionTree> methodMatcher :
+        ((MethodInvocationRules) matcher).methodInvocationRules()) {
+      Optional<Rule> rule =
+          methodMatcher instanceof MethodMatcher
+              ? ((MethodMatcher) methodMatcher).asRule()
+              : Optional.empty();
+      if (!rule.isPresent()) {
+        return Optional.empty();
+      }
+      rules.add(rule.get());
+    }
+    return Optional.of(rules.build());
+  }
+
+  /** Returns the method names a rule can match, or empty if it can match any name. */
+  private static ImmutableSet<Optional<String>> names(Rule rule) {
+    Set<Token> names = rule.required().get(TokenType.METHOD_NAME);
+    if (names != null) {
+      return names.stream()
+          .map(t -> Optional.of((String) t.comparisonKey()))
+          .collect(ImmutableSet.toImmutableSet());
+    }
+    Set<Token> kinds = rule.required().get(TokenType.KIND);
+    if (kinds != null
+        && kinds.stream().allMatch(t -> t.comparisonKey() == MethodKind.CONSTRUCTOR)) {
+      return ImmutableSet.of(Optional.of("<init>"));
+    }
+    return ImmutableSet.of(Optional.empty());
+  }
+
+  private static void add(@Nullable Set<Token> owners, Map<Object, BitSet> index, int position) {
+    if (owners != null) {
+      for (Token owner : owners) {
+        String name = (String) owner.comparisonKey();
+        index.computeIfAbsent(name, k -> new BitSet()).set(position);
+        // Owners are looked up by qualified name, but rules may name nested classes by their binary
+        // name. A '$' may also be part of a class's own name, so the rule is keyed both ways.
+        if (name.indexOf('$') >= 0) {
+          index.computeIfAbsent(name.replace('$', '.'), k -> new BitSet()).set(position);
+        }
+      }
+    }
+  }
+
+  private Compiled compile(VisitorState state) {
+    Map<Name, Node> compiledByName = new HashMap<>();
+    byName.forEach((name, node) -> compiledByName.put(state.getName(name), node.compile(state)));
+    return new Compiled(compiledByName, anyName.compile(state));
+  }
+
+  /**
+   * Returns the positions of the matchers that could report an invocation of the given tree. The
+   * returned set is only valid until the next call.
+   */
+  BitSet candidates(ExpressionTree tree, VisitorState state) {
+    candidates.clear();
+    candidates.or(unindexed);
+    Symbol sym = ASTHelpers.getSymbol(tree);
+    if (!(sym instanceof MethodSymbol)) {
+      // Rules only ever match resolved methods.
+      return candidates;
+    }
+    Compiled index = compiled.get(state);
+    addCandidates(index.byName.get(sym.getSimpleName()), tree, sym);
+    addCandidates(index.anyName, tree, sym);
+    return candidates;
+  }
+
+  private void addCandidates(@Nullable Node node, ExpressionTree tree, Symbol sym) {
+    if (node == null) {
+      return;
+    }
+    candidates.or(node.any);
+    or(node.byDefinedIn.get(sym.owner.getQualifiedName()));
+    // Instance creations have no receiver, and only constructor rules can match them.
+    if (!node.byReceiverType.isEmpty() && !(tree instanceof NewClassTree)) {
+      Type receiverType = ASTHelpers.getReceiverType(tree);
+      if (receiverType != null) {
+        or(node.byReceiverType.get(receiverType.tsym.getQualifiedName()));
+      }
+    }
+  }
+
+  private void or(@Nullable BitSet positions) {
+    if (positions != null) {
+      candidates.or(positions);
+    }
+  }
+
+  /**
+   * The matchers with rules for one method name, keyed by owner type. Keys are qualified names as
+   * {@link String}s while the index is built, and {@link Name}s once it is compiled.
+   */
+  private static final class Node {
+    /** The positions of matchers with a rule for this name that don't constrain the owner. */
+    final BitSet any = new BitSet();
+
+    final Map<Object, BitSet> byDefinedIn = new HashMap<>();
+    final Map<Object, BitSet> byReceiverType = new HashMap<>();
+
+    Node compile(VisitorState state) {
+      Node result = new Node();
+      result.any.or(any);
+      byDefinedIn.forEach((k, v) -> result.byDefinedIn.put(state.getName((String) k), v));
+      byReceiverType.forEach((k, v) -> result.byReceiverType.put(state.getName((String) k), v));
+      return result;
+    }
+  }
+
+  private static final class Compiled {
+    final Map<Name, Node> byName;
+    final Node anyName;
+
+    Compiled(Map<Name, Node> byName, Node anyName) {
+      this.byName = byName;
+      this.anyName = anyName;
+    }
+  }
+}
@@ -56,6 +56,9 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
   public Void scan(TreePath path, VisitorState state) {
     SuppressionInfo prevSuppressionInfo = updateSuppressions(path.getLeaf(), state);
     try {
+      if (canSkipSubtree(path.getLeaf(), prevSuppressionInfo, state)) {
+        return null;
+      }
       return super.scan(path, state);
     } finally {
       // Restore old suppression state.
@@ -72,6 +75,9 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
 
     SuppressionInfo prevSuppressionInfo = updateSuppressions(tree, state);
     try {
+      if (canSkipSubtree(tree, prevSuppressionInfo, state)) {
+        return null;
+      }
       return super.scan(tree, state);
     } finally {
       // Restore old suppression state.
@@ -99,6 +105,29 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
     return prevSuppressionInfo;
   }
 
+  /**
+   * Returns true if the suppressions just added for {@code tree} suppress every check, in which
+   * case nothing in the subtree rooted at {@code tree} can be reported and the subtree is skipped.
+   * Subtrees can only become skippable where the suppressions change, so this isn't checked
+   * anywhere else.
+   */
+  private boolean canSkipSubtree(
+      Tree tree, SuppressionInfo prevSuppressionInfo, VisitorState state) {
+    if (currentSuppressions == prevSuppressionInfo || !everyCheckSuppressed(state)) {
+      return false;
+    }
+    state.timings().recordPrunedSubtree(tree.getKind());
+    return true;
+  }
+
+  /**
+   * Returns true if every check run by this scanner should be suppressed on the current tree path.
+   * Scanners that return true allow the subtrees in which this happens to be skipped.
+   */
+  protected boolean everyCheckSuppressed(VisitorState state) {
+    return false;
+  }
+
   /**
    * Returns if this checker should be suppressed on the current tree path.
    *
@@ -107,19 +136,38 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
    */
   protected SuppressedState isSuppressed(
       Suppressible suppressible, ErrorProneOptions errorProneOptions, VisitorState state) {
+    return currentSuppressions.suppressedState(
+        suppressible, suppressedInGeneratedCode(suppressible, errorProneOptions, state), state);
+  }
 
-    final boolean suppressedInGeneratedCode;
+  /**
+   * Returns if the checker at the given index of {@code checkers} should be suppressed on the
+   * current tree path. Equivalent to {@link #isSuppressed(Suppressible, ErrorProneOptions,
+   * VisitorState)}, but cheaper when called repeatedly with the same {@code checkers}.
+   */
+  protected SuppressedState isSuppressed(
+      SuppressionInfo.Checkers checkers,
+      int index,
+      Suppressible suppressible,
+      ErrorProneOptions errorProneOptions,
+      VisitorState state) {
+    return currentSuppressions.suppressedState(
+        checkers,
+        index,
+        suppressedInGeneratedCode(suppressible, errorProneOptions, state),
+        state);
+  }
+
+  private boolean suppressedInGeneratedCode(
+      Suppressible suppressible, ErrorProneOptions errorProneOptions, VisitorState state) {
     if (HubSpotUtils.isGeneratedCodeInspectionEnabled(state)) {
-      suppressedInGeneratedCode = !suppressible.inspectGeneratedCode()
+      return !suppressible.inspectGeneratedCode()
           || (errorProneOptions.disableWarningsInGeneratedCode()
           && severityMap().get(suppressible.canonicalName()) != SeverityLevel.ERROR);
     } else {
-      suppressedInGeneratedCode =
-          errorProneOptions.disableWarningsInGeneratedCode()
-              && severityMap().get(suppressible.canonicalName()) != SeverityLevel.ERROR;
+      return errorProneOptions.disableWarningsInGeneratedCode()
+          && severityMap().get(suppressible.canonicalName()) != SeverityLevel.ERROR;
     }
-
-    return currentSuppressions.suppressedState(suppressible, suppressedInGeneratedCode, state);
   }
 
   /**
@@ -36,6 +36,7 @@ import com.sun.source.util.TreePath;
 import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.parser.Tokens.Comment;
 import com.sun.tools.javac.parser.Tokens.TokenKind;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Position.LineMap;
 import java.util.Iterator;
 import java.util.List;
@@ -53,11 +54,8 @@ public class Comments {
    * param1 /* c1 *&#47;, /* c2 *&#47; param2)} will attach the comment c1 to {@code param1} and the
    * comment c2 to {@code param2}.
    *
-   * <p>Warning: this is expensive to compute as it involves re-tokenizing the source for this node.
-   *
-   * <p>Currently this method will only tokenize the source code of the method call itself. However,
-   * the source positions in the returned {@code Comment} objects are adjusted so that they are
-   * relative to the whole file.
+   * <p>Only the tokens of the constructor call itself are considered. The source positions in the
+   * returned {@code Comment} objects are relative to the whole file.
    */
   public static ImmutableList<Commented<ExpressionTree>> findCommentsForArguments(
       NewClassTree newClassTree, VisitorState state) {
@@ -71,11 +69,8 @@ public class Comments {
    * *&#47;, /* c2 *&#47; param2)} will attach the comment c1 to {@code param1} and the comment c2
    * to {@code param2}.
    *
-   * <p>Warning: this is expensive to compute as it involves re-tokenizing the source for this node
-   *
-   * <p>Currently this method will only tokenize the source code of the method call itself. However,
-   * the source positions in the returned {@code Comment} objects are adjusted so that they are
-   * relative to the whole file.
+   * <p>Only the tokens of the method call itself are considered. The source positions in the
+   * returned {@code Comment} objects are relative to the whole file.
    */
   public static ImmutableList<Commented<ExpressionTree>> findCommentsForArguments(
       MethodInvocationTree methodInvocationTree, VisitorState state) {
@@ -127,23 +122,17 @@ public class Comments {
     }
 
     // The token position of the end of the method invocation
-    int invocationEnd = state.getEndPosition(tree) - invocationStart;
+    int invocationEnd = state.getEndPosition(tree);
 
     // Ignore comments nested inside arguments.
     TreeRangeSet<Integer> exclude = TreeRangeSet.create();
     arguments.forEach(
-        arg ->
-            exclude.add(
-                Range.closed(
-                    getStartPosition(arg) - invocationStart,
-                    state.getEndPosition(arg) - invocationStart)));
-
-    ErrorProneTokens errorProneTokens = new ErrorProneTokens(source.toString(), state.context);
-    ImmutableList<ErrorProneToken> tokens = errorProneTokens.getTokens();
-    LineMap lineMap = errorProneTokens.getLineMap();
-
-    ArgumentTracker argumentTracker =
-        new ArgumentTracker(arguments, invocationStart, state, lineMap);
+        arg -> exclude.add(Range.closed(getStartPosition(arg), state.getEndPosition(arg))));
+
+    List<ErrorProneToken> tokens = state.getOffsetTokens(invocationStart, endPosition.get());
+    LineMap lineMap = ((JCCompilationUnit) state.getPath().getCompilationUnit()).getLineMap();
+
+    ArgumentTracker argumentTracker = new ArgumentTracker(arguments, state, lineMap);
     TokenTracker tokenTracker = new TokenTracker(lineMap);
 
     argumentTracker.advance();
@@ -392,7 +381,6 @@ public class Comments {
 
     private final VisitorState state;
     private final Iterator<? extends ExpressionTree> argumentsIterator;
-    private final int offset;
     private final LineMap lineMap;
 
     private Commented.Builder<ExpressionTree> currentCommentedResultBuilder = null;
@@ -405,12 +393,8 @@ public class Comments {
     private int previousArgumentEndPosition = -1;
 
     ArgumentTracker(
-        Iterable<? extends ExpressionTree> arguments,
-        int offset,
-        VisitorState state,
-        LineMap lineMap) {
+        Iterable<? extends ExpressionTree> arguments, VisitorState state, LineMap lineMap) {
       this.state = state;
-      this.offset = offset;
       this.argumentsIterator = arguments.iterator();
       this.lineMap = lineMap;
     }
@@ -418,9 +402,9 @@ public class Comments {
     void advance() {
       ExpressionTree nextArgument = argumentsIterator.next();
 
-      currentArgumentEndPosition = state.getEndPosition(nextArgument) - offset;
+      currentArgumentEndPosition = state.getEndPosition(nextArgument);
       previousArgumentEndPosition = currentArgumentStartPosition;
-      currentArgumentStartPosition = getStartPosition(nextArgument) - offset;
+      currentArgumentStartPosition = getStartPosition(nextArgument);
 
       if (previousCommentedResultBuilder != null) {
         resultBuilder.add(previousCommentedResultBuilder.build());
@@ -443,21 +427,23 @@ public class Comments {
     }
 
     boolean isPreviousArgumentOnPreviousLine() {
-      return lineMap.getLineNumber(previousArgumentEndPosition)
-          == lineMap.getLineNumber(currentArgumentStartPosition) - 1;
+      // There is no previous argument before the first one has been passed.
+      return previousCommentedResultBuilder != null
+          && lineMap.getLineNumber(previousArgumentEndPosition)
+              == lineMap.getLineNumber(currentArgumentStartPosition) - 1;
     }
 
     void addCommentToPreviousArgument(Comment c, Position position) {
-      previousCommentedResultBuilder.addComment(c, previousArgumentEndPosition, offset, position);
+      previousCommentedResultBuilder.addComment(c, previousArgumentEndPosition, 0, position);
     }
 
     void addCommentToCurrentArgument(Comment c, Position position) {
-      currentCommentedResultBuilder.addComment(c, currentArgumentStartPosition, offset, position);
+      currentCommentedResultBuilder.addComment(c, currentArgumentStartPosition, 0, position);
     }
 
     void addAllCommentsToCurrentArgument(Iterable<Comment> comments, Position position) {
       currentCommentedResultBuilder.addAllComment(
-          comments, currentArgumentStartPosition, offset, position);
+          comments, currentArgumentStartPosition, 0, position);
     }
 
     boolean hasMoreArguments() {
@@ -25,15 +25,47 @@ import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.util.Name;
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /** Wraps a javac {@link Token} to return comments in declaration order. */
 public class ErrorProneToken {
   private final int offset;
   private final Token token;
+  private final int pos;
+  private final int endPos;
+  /** The comments of the token, in the reverse declaration order in which javac stores them. */
+  @Nullable private final List<Comment> comments;
 
   ErrorProneToken(Token token, int offset) {
+    this(token, offset, token.pos, token.endPos, token.comments);
+  }
+
+  private ErrorProneToken(
+      Token token, int offset, int pos, int endPos, @Nullable List<Comment> comments) {
     this.token = token;
     this.offset = offset;
+    this.pos = pos;
+    this.endPos = endPos;
+    this.comments = comments;
+  }
+
+  /** Returns this token with its positions and those of its comments offset by {@code offset}. */
+  ErrorProneToken withOffset(int offset) {
+    return new ErrorProneToken(token, this.offset + offset, pos, endPos, comments);
+  }
+
+  /**
+   * Returns a copy of this token at the given positions, with the given comments in reverse
+   * declaration order.
+   */
+  ErrorProneToken copy(int pos, int endPos, @Nullable List<Comment> comments) {
+    return new ErrorProneToken(token, offset, pos - offset, endPos - offset, comments);
+  }
+
+  /** The comments of the token in reverse declaration order, or null if it has none. */
+  @Nullable
+  List<Comment> reversedComments() {
+    return comments;
   }
 
   public TokenKind kind() {
@@ -41,24 +73,24 @@ public class ErrorProneToken {
   }
 
   public int pos() {
-    return offset + token.pos;
+    return offset + pos;
   }
 
   public int endPos() {
-    return offset + token.endPos;
+    return offset + endPos;
   }
 
   public List<Comment> comments() {
     // javac stores the comments in reverse declaration order because appending to linked
     // lists is expensive
-    if (token.comments == null) {
+    if (comments == null) {
       return Collections.emptyList();
     }
     if (offset == 0) {
-      return Lists.reverse(token.comments);
+      return Lists.reverse(comments);
     }
     return Lists.reverse(
-        token.comments.stream().map(c -> new OffsetComment(c, offset)).collect(toList()));
+        comments.stream().map(c -> new OffsetComment(c, offset)).collect(toList()));
   }
 
   public Name name() {
@@ -28,6 +28,7 @@ import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.parser.UnicodeReader;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Position.LineMap;
+import java.util.Arrays;
 
 /** A utility for tokenizing and preserving comments. */
 public class ErrorProneTokens {
@@ -76,34 +77,22 @@ public class ErrorProneTokens {
 
   /** A {@link JavaTokenizer} that saves comments. */
   static class CommentSavingTokenizer extends JavaTokenizer {
+    /** The source being tokenized, which the raw text of comments is copied from. */
+    private final char[] buffer;
+
     CommentSavingTokenizer(ScannerFactory fac, char[] buffer, int length) {
       super(fac, buffer, length);
+      this.buffer = buffer;
     }
 
     @Override
     protected Comment processComment(int pos, int endPos, CommentStyle style) {
-      char[] buf = getRawCharactersReflectively(pos, endPos);
+      // The same raw characters the tokenizer's reader would return from getRawCharacters, without
+      // looking up that method reflectively for each comment.
+      char[] buf = Arrays.copyOfRange(buffer, pos, endPos);
       return new CommentWithTextAndPosition(
           pos, endPos, new AccessibleReader(fac, buf, buf.length), style);
     }
-
-    private char[] getRawCharactersReflectively(int beginIndex, int endIndex) {
-      Object instance;
-      try {
-        instance = JavaTokenizer.class.getDeclaredField("reader").get(this);
-      } catch (ReflectiveOperationException e) {
-        instance = this;
-      }
-      try {
-        return (char[])
-            instance
-                .getClass()
-                .getMethod("getRawCharacters", int.class, int.class)
-                .invoke(instance, beginIndex, endIndex);
-      } catch (ReflectiveOperationException e) {
-        throw new LinkageError(e.getMessage(), e);
-      }
-    }
   }
 
   /** A {@link Comment} that saves its text and start position. */
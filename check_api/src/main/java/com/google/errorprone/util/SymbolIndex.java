@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.errorprone.util.ASTHelpers.getSymbol;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.code.Symbol;
+
+/**
+ * The declarations and references of symbols in a compilation unit, collected in a single pass.
+ *
+ * <p>Checks that need to relate the declarations in a file to their uses (e.g. to find unused
+ * members) should query the index of the compilation unit being analyzed, via {@link
+ * com.google.errorprone.VisitorState#symbolIndex()}, rather than scanning the whole unit again.
+ * The index is shared by all the checks analyzing a unit, and discarded along with it.
+ */
+public final class SymbolIndex {
+
+  private final CompilationUnitTree compilationUnit;
+  private final ImmutableList<TreePath> declarations;
+  private final ImmutableListMultimap<Symbol, TreePath> references;
+
+  private SymbolIndex(
+      CompilationUnitTree compilationUnit,
+      ImmutableList<TreePath> declarations,
+      ImmutableListMultimap<Symbol, TreePath> references) {
+    this.compilationUnit = compilationUnit;
+    this.declarations = declarations;
+    this.references = references;
+  }
+
+  /** Scans the given compilation unit and indexes its declarations and references. */
+  public static SymbolIndex create(CompilationUnitTree compilationUnit) {
+    ImmutableList.Builder<TreePath> declarations = ImmutableList.builder();
+    ImmutableListMultimap.Builder<Symbol, TreePath> references = ImmutableListMultimap.builder();
+    new TreePathScanner<Void, Void>() {
+      @Override
+      public Void visitClass(ClassTree tree, Void unused) {
+        declarations.add(getCurrentPath());
+        return super.visitClass(tree, null);
+      }
+
+      @Override
+      public Void visitMethod(MethodTree tree, Void unused) {
+        declarations.add(getCurrentPath());
+        return super.visitMethod(tree, null);
+      }
+
+      @Override
+      public Void visitVariable(VariableTree tree, Void unused) {
+        declarations.add(getCurrentPath());
+        return super.visitVariable(tree, null);
+      }
+
+      @Override
+      public Void visitIdentifier(IdentifierTree tree, Void unused) {
+        addReference(getSymbol(tree));
+        return super.visitIdentifier(tree, null);
+      }
+
+      @Override
+      public Void visitMemberSelect(MemberSelectTree tree, Void unused) {
+        addReference(getSymbol(tree));
+        return super.visitMemberSelect(tree, null);
+      }
+
+      @Override
+      public Void visitMemberReference(MemberReferenceTree tree, Void unused) {
+        addReference(getSymbol(tree));
+        return super.visitMemberReference(tree, null);
+      }
+
+      private void addReference(Symbol symbol) {
+        if (symbol != null) {
+          references.put(symbol, getCurrentPath());
+        }
+      }
+    }.scan(new TreePath(compilationUnit), null);
+    return new SymbolIndex(compilationUnit, declarations.build(), references.build());
+  }
+
+  /** The compilation unit this index was built from. */
+  public CompilationUnitTree compilationUnit() {
+    return compilationUnit;
+  }
+
+  /**
+   * The paths to all class, method and variable declarations in the compilation unit, in source
+   * order. Enclosing declarations come before the declarations they contain.
+   */
+  public ImmutableList<TreePath> declarations() {
+    return declarations;
+  }
+
+  /** The paths to the declarations of the given kind, in source order. */
+  public ImmutableList<TreePath> declarations(Tree.Kind kind) {
+    return declarations.stream()
+        .filter(p -> p.getLeaf().getKind() == kind)
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /**
+   * All identifiers, member selects and member references in the compilation unit that resolve to
+   * a symbol, keyed by that symbol. Method invocations are referenced through their method select,
+   * and the references to a symbol are in source order.
+   */
+  public ImmutableListMultimap<Symbol, TreePath> references() {
+    return references;
+  }
+
+  /** The paths to the references to the given symbol, in source order. */
+  public ImmutableList<TreePath> references(Symbol symbol) {
+    return references.get(symbol);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.util.ErrorProneTokens.CommentWithTextAndPosition;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import com.sun.tools.javac.parser.Tokens.Comment.CommentStyle;
+import com.sun.tools.javac.util.Context;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * The tokens of a compilation unit, including comments, lexed in a single pass.
+ *
+ * <p>Checks and fixes that need the tokens of part of a file should use {@link
+ * com.google.errorprone.VisitorState#getOffsetTokens} and the related methods, which query the
+ * index of the compilation unit being analyzed rather than lexing the source again. The index is
+ * shared by all the checks analyzing a unit, and discarded along with it.
+ */
+public final class TokenIndex {
+
+  private final CompilationUnitTree compilationUnit;
+  private final String source;
+  /** The tokens of the compilation unit, ending with its EOF token. */
+  private final ImmutableList<ErrorProneToken> tokens;
+  /** The start and end positions of each token, for binary searches. */
+  private final int[] starts;
+  private final int[] ends;
+
+  private TokenIndex(
+      CompilationUnitTree compilationUnit, String source, ImmutableList<ErrorProneToken> tokens) {
+    this.compilationUnit = compilationUnit;
+    this.source = source;
+    this.tokens = tokens;
+    this.starts = new int[tokens.size()];
+    this.ends = new int[tokens.size()];
+    for (int i = 0; i < tokens.size(); i++) {
+      starts[i] = tokens.get(i).pos();
+      ends[i] = tokens.get(i).endPos();
+    }
+  }
+
+  /** Lexes the source of the given compilation unit. */
+  public static TokenIndex create(
+      CompilationUnitTree compilationUnit, CharSequence source, Context context) {
+    String text = source == null ? "" : source.toString();
+    return new TokenIndex(compilationUnit, text, ErrorProneTokens.getTokens(text, context));
+  }
+
+  /** The compilation unit this index was built from. */
+  public CompilationUnitTree compilationUnit() {
+    return compilationUnit;
+  }
+
+  /**
+   * Returns the tokens for the source code between the given positions, as if that source had been
+   * lexed on its own, but with positions relative to the whole file.
+   *
+   * <p>That is, the tokens that lie entirely between the positions, followed by an EOF token.
+   * Comments are only returned if they lie between the positions too: comments before the first
+   * token that start before {@code start} are dropped, and comments after the last token are
+   * attached to the EOF token. Like javac's lexer, this ignores a trailing whitespace character
+   * when placing the EOF token, and drops a line comment that runs up to the end.
+   */
+  public ImmutableList<ErrorProneToken> tokens(int start, int end) {
+    checkPositionIndexes(start, end, source.length());
+    // The last token is the EOF token of the whole file, which is never part of a range.
+    int last = tokens.size() - 1;
+    int first = lowerBound(starts, last, start);
+    int limit = Math.max(first, lowerBound(ends, last, end + 1));
+    ImmutableList.Builder<ErrorProneToken> result = ImmutableList.builder();
+    if (first < limit) {
+      result.add(clip(tokens.get(first), start, end));
+      result.addAll(tokens.subList(first + 1, limit));
+    }
+    int endOfInput =
+        end > start && Character.isWhitespace(source.charAt(end - 1)) ? end - 1 : end;
+    // Comments after the last token belong to the next one, and end up on the EOF token instead.
+    List<Comment> trailingComments = new ArrayList<>();
+    for (Comment comment : commentsBetween(tokens.get(limit), start, end)) {
+      if (comment.getStyle() != CommentStyle.LINE
+          || ((CommentWithTextAndPosition) comment).getEndPos() < endOfInput) {
+        trailingComments.add(comment);
+      }
+    }
+    result.add(tokens.get(last).copy(endOfInput, endOfInput, nullIfEmpty(trailingComments)));
+    return result.build();
+  }
+
+  /**
+   * Returns the tokens for the source code between the given positions, as {@link #tokens} does,
+   * but with positions relative to {@code start}.
+   */
+  public ImmutableList<ErrorProneToken> relativeTokens(int start, int end) {
+    ImmutableList<ErrorProneToken> tokens = tokens(start, end);
+    if (start == 0) {
+      return tokens;
+    }
+    ImmutableList.Builder<ErrorProneToken> result =
+        ImmutableList.builderWithExpectedSize(tokens.size());
+    for (ErrorProneToken token : tokens) {
+      result.add(token.withOffset(-start));
+    }
+    return result.build();
+  }
+
+  /** Returns the token, without the comments that don't lie between the given positions. */
+  private static ErrorProneToken clip(ErrorProneToken token, int start, int end) {
+    List<Comment> comments = token.reversedComments();
+    if (comments == null) {
+      return token;
+    }
+    List<Comment> clipped = commentsBetween(token, start, end);
+    if (clipped.size() == comments.size()) {
+      return token;
+    }
+    return token.copy(token.pos(), token.endPos(), nullIfEmpty(clipped));
+  }
+
+  /** Returns the comments of the token between the given positions, in reverse order. */
+  private static List<Comment> commentsBetween(ErrorProneToken token, int start, int end) {
+    List<Comment> comments = token.reversedComments();
+    if (comments == null) {
+      return ImmutableList.of();
+    }
+    List<Comment> result = new ArrayList<>(comments.size());
+    for (Comment comment : comments) {
+      CommentWithTextAndPosition c = (CommentWithTextAndPosition) comment;
+      if (start <= c.getPos() && c.getEndPos() <= end) {
+        result.add(comment);
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private static List<Comment> nullIfEmpty(List<Comment> comments) {
+    return comments.isEmpty() ? null : comments;
+  }
+
+  /** Returns the first index below {@code size} with a value of at least {@code key}, or size. */
+  private static int lowerBound(int[] values, int size, int key) {
+    int index = Arrays.binarySearch(values, 0, size, key);
+    if (index < 0) {
+      return -index - 1;
+    }
+    // Several empty tokens can share a position.
+    while (index > 0 && values[index - 1] == key) {
+      index--;
+    }
+    return index;
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CodeTransformerBundle}. */
+@RunWith(JUnit4.class)
+public class CodeTransformerBundleTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /** A serializable transformer that does nothing, identified by its name. */
+  private static final class NamedTransformer implements CodeTransformer, Serializable {
+    private final String name;
+
+    NamedTransformer(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void apply(TreePath path, Context context, DescriptionListener listener) {}
+
+    @Override
+    public ImmutableClassToInstanceMap<Annotation> annotations() {
+      return ImmutableClassToInstanceMap.of();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof NamedTransformer && ((NamedTransformer) obj).name.equals(name);
+    }
+
+    @Override
+    public int hashCode() {
+      return name.hashCode();
+    }
+  }
+
+  private Path writeBundle(Path path, CodeTransformer... transformers) throws IOException {
+    try (OutputStream out = Files.newOutputStream(path)) {
+      CodeTransformerBundle.write(ImmutableList.copyOf(transformers), out);
+    }
+    return path;
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    Path path =
+        writeBundle(
+            temporaryFolder.newFile().toPath(),
+            new NamedTransformer("a"),
+            new NamedTransformer("b"),
+            new NamedTransformer("c"));
+
+    CodeTransformer loaded = CodeTransformerBundle.load(path);
+
+    assertThat(loaded).isInstanceOf(CodeTransformerBundle.class);
+    assertThat(((CodeTransformerBundle) loaded).transformers())
+        .containsExactly(
+            new NamedTransformer("a"), new NamedTransformer("b"), new NamedTransformer("c"))
+        .inOrder();
+  }
+
+  @Test
+  public void cachedUntilModified() throws IOException {
+    Path path = writeBundle(temporaryFolder.newFile().toPath(), new NamedTransformer("a"));
+    CodeTransformer first = CodeTransformerBundle.load(path);
+
+    assertThat(CodeTransformerBundle.load(path)).isSameInstanceAs(first);
+
+    FileTime lastModified = Files.getLastModifiedTime(path);
+    writeBundle(path, new NamedTransformer("b"));
+    Files.setLastModifiedTime(path, FileTime.fromMillis(lastModified.toMillis() + 1000));
+    CodeTransformer second = CodeTransformerBundle.load(path);
+
+    assertThat(second).isNotSameInstanceAs(first);
+    assertThat(((CodeTransformerBundle) second).transformers())
+        .containsExactly(new NamedTransformer("b"));
+  }
+
+  @Test
+  public void loadsSerializedTransformer() throws IOException {
+    Path path = temporaryFolder.newFile().toPath();
+    try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(path))) {
+      out.writeObject(new NamedTransformer("a"));
+    }
+
+    assertThat(CodeTransformerBundle.load(path)).isEqualTo(new NamedTransformer("a"));
+  }
+
+  @Test
+  public void rejectsUnknownVersion() throws IOException {
+    Path path = temporaryFolder.newFile().toPath();
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+      out.writeInt(0x45505242);
+      out.writeInt(99);
+      out.writeInt(0);
+    }
+
+    assertThrows(IOException.class, () -> CodeTransformerBundle.load(path));
+  }
+
+  @Test
+  public void rejectsTruncatedBundle() throws IOException {
+    Path path = writeBundle(temporaryFolder.newFile().toPath(), new NamedTransformer("a"));
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+    assertThrows(IOException.class, () -> CodeTransformerBundle.load(path));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.testing.SerializableTester;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CompositeCodeTransformer}. */
+@RunWith(JUnit4.class)
+public class CompositeCodeTransformerTest {
+  private static final List<String> applied = new ArrayList<>();
+
+  @Before
+  public void clearApplied() {
+    applied.clear();
+  }
+
+  /** A transformer that records its name when applied. */
+  private static class NamedTransformer implements CodeTransformer, Serializable {
+    final String name;
+
+    NamedTransformer(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void apply(TreePath path, Context context, DescriptionListener listener) {
+      applied.add(name);
+    }
+
+    @Override
+    public ImmutableClassToInstanceMap<Annotation> annotations() {
+      return ImmutableClassToInstanceMap.of();
+    }
+  }
+
+  /** A transformer that can be fused into one recording the names of all the fused ones. */
+  private static final class FusibleTransformer extends NamedTransformer
+      implements FusibleCodeTransformer {
+    FusibleTransformer(String name) {
+      super(name);
+    }
+
+    @Override
+    public CodeTransformer fuse(ImmutableList<CodeTransformer> transformers) {
+      List<String> names = new ArrayList<>();
+      for (CodeTransformer transformer : transformers) {
+        names.add(((NamedTransformer) transformer).name);
+      }
+      return new NamedTransformer(String.join("+", names));
+    }
+  }
+
+  @Test
+  public void fusesTransformersOfTheSameClass() {
+    CompositeCodeTransformer.compose(new FusibleTransformer("a"), new FusibleTransformer("b"))
+        .apply(null, null, null);
+
+    assertThat(applied).containsExactly("a+b");
+  }
+
+  @Test
+  public void appliesOtherTransformersInTurn() {
+    CompositeCodeTransformer.compose(new FusibleTransformer("a"), new NamedTransformer("b"))
+        .apply(null, null, null);
+
+    assertThat(applied).containsExactly("a", "b").inOrder();
+  }
+
+  @Test
+  public void fusesAfterDeserialization() {
+    CodeTransformer transformer =
+        SerializableTester.reserialize(
+            CompositeCodeTransformer.compose(
+                new FusibleTransformer("a"), new FusibleTransformer("b")));
+    transformer.apply(null, null, null);
+
+    assertThat(applied).containsExactly("a+b");
+  }
+}
@@ -276,4 +276,5 @@ public class ErrorProneOptionsTest {
         InvalidCommandLineOptionException.class,
         () -> ErrorProneOptions.processArgs(new String[] {"-XepNoSuchFlag"}));
   }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.errorprone.ErrorProneTimings.CacheCounters;
+import com.google.errorprone.ErrorProneTimings.CheckTiming;
+import com.google.errorprone.ErrorProneTimings.Profiler;
+import com.google.errorprone.ErrorProneTimings.Totals;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.util.Context;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ErrorProneTimings}. */
+@RunWith(JUnit4.class)
+public class ErrorProneTimingsTest {
+
+  private final ErrorProneTimings timings = ErrorProneTimings.instance(new Context());
+
+  @Test
+  public void ordinals() {
+    int outer = timings.ordinal("Outer");
+    int inner = timings.ordinal("Inner");
+
+    assertThat(inner).isNotEqualTo(outer);
+    assertThat(timings.ordinal("Outer")).isEqualTo(outer);
+  }
+
+  @Test
+  public void countsInvocationsAndHits() {
+    int ordinal = timings.ordinal("Check");
+    Profiler profiler = timings.profiler();
+    for (int i = 0; i < 3; i++) {
+      profiler.enter(ordinal);
+      profiler.exit();
+    }
+    profiler.hit(ordinal);
+
+    CheckTiming timing = timings.checkTimings().get("Check");
+    assertThat(timing.invocations()).isEqualTo(3);
+    assertThat(timing.hits()).isEqualTo(1);
+  }
+
+  @Test
+  public void nestedSpans() throws InterruptedException {
+    int outer = timings.ordinal("Outer");
+    int inner = timings.ordinal("Inner");
+    Profiler profiler = timings.profiler();
+    profiler.enter(outer);
+    profiler.enter(inner);
+    Thread.sleep(20);
+    profiler.exit();
+    profiler.exit();
+
+    Map<String, CheckTiming> checkTimings = timings.checkTimings();
+    CheckTiming outerTiming = checkTimings.get("Outer");
+    CheckTiming innerTiming = checkTimings.get("Inner");
+    assertThat(outerTiming.total()).isAtLeast(innerTiming.total());
+    assertThat(outerTiming.self()).isLessThan(innerTiming.self());
+    assertThat(outerTiming.self().plus(innerTiming.self())).isEqualTo(outerTiming.total());
+  }
+
+  @Test
+  public void recursiveSpansCountedOnce() throws InterruptedException {
+    int ordinal = timings.ordinal("Check");
+    Profiler profiler = timings.profiler();
+    profiler.enter(ordinal);
+    profiler.enter(ordinal);
+    Thread.sleep(20);
+    profiler.exit();
+    profiler.exit();
+
+    CheckTiming timing = timings.checkTimings().get("Check");
+    assertThat(timing.invocations()).isEqualTo(2);
+    assertThat(timing.self()).isEqualTo(timing.total());
+  }
+
+  @Test
+  public void spansOfSeveralCalls() {
+    int ordinal = timings.ordinal("Check");
+    for (int i = 0; i < 2; i++) {
+      timings.profiler().enter(ordinal);
+      timings.profiler().exit();
+    }
+
+    assertThat(timings.profiler()).isSameInstanceAs(timings.profiler());
+    assertThat(timings.checkTimings().get("Check").invocations()).isEqualTo(2);
+    assertThat(timings.timings()).containsKey("Check");
+  }
+
+  @Test
+  public void kindTimings() {
+    int ordinal = timings.ordinal("Check");
+    Profiler profiler = timings.profiler();
+    profiler.enter(ordinal, Tree.Kind.METHOD_INVOCATION);
+    profiler.enter(ordinal, Tree.Kind.IDENTIFIER);
+    profiler.exit();
+    profiler.exit();
+    profiler.enter(ordinal, Tree.Kind.METHOD_INVOCATION);
+    profiler.exit();
+    profiler.enter(ordinal);
+    profiler.exit();
+
+    Map<Tree.Kind, Totals> kindTimings = timings.kindTimings();
+    assertThat(kindTimings.keySet())
+        .containsExactly(Tree.Kind.METHOD_INVOCATION, Tree.Kind.IDENTIFIER);
+    assertThat(kindTimings.get(Tree.Kind.METHOD_INVOCATION).invocations()).isEqualTo(2);
+    assertThat(kindTimings.get(Tree.Kind.IDENTIFIER).invocations()).isEqualTo(1);
+    assertThat(timings.checkTimings().get("Check").invocations()).isEqualTo(4);
+  }
+
+  @Test
+  public void cacheCounters() {
+    CacheCounters counters = timings.cacheCounters("Cache");
+    counters.recordMiss();
+    counters.recordHit();
+    counters.recordRebuild();
+    counters.recordMiss(42);
+    timings.cacheCounters("Unused");
+
+    assertThat(timings.allCacheCounters().keySet()).containsExactly("Cache");
+    assertThat(timings.cacheCounters("Cache").hits()).isEqualTo(1);
+    assertThat(timings.cacheCounters("Cache").misses()).isEqualTo(3);
+    assertThat(timings.cacheCounters("Cache").rebuilds()).isEqualTo(1);
+    assertThat(timings.cacheCounters("Cache").missTime().toNanos()).isEqualTo(42);
+  }
+
+  @Test
+  public void prunedSubtrees() {
+    timings.recordPrunedSubtree(Tree.Kind.CLASS);
+    timings.recordPrunedSubtree(Tree.Kind.METHOD);
+    timings.recordPrunedSubtree(Tree.Kind.METHOD);
+
+    assertThat(timings.prunedSubtrees())
+        .containsExactly(Tree.Kind.CLASS, 1L, Tree.Kind.METHOD, 2L);
+  }
+
+  @Test
+  public void unbalancedExit() {
+    assertThrows(IllegalStateException.class, () -> timings.profiler().exit());
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.apply;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.Range;
+import com.google.errorprone.apply.DiffApplier.LatencyHistogram;
+import com.google.errorprone.apply.DiffApplier.Stage;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DiffApplier}. */
+@RunWith(JUnit4.class)
+public class DiffApplierTest {
+
+  private final Map<String, String> written = new ConcurrentHashMap<>();
+  private final FileSource source = path -> new SourceFile(path, "class " + path + " {}");
+  private final FileDestination destination =
+      new FileDestination() {
+        @Override
+        public void writeFile(SourceFile file) {
+          written.put(file.getPath(), file.getSourceText());
+        }
+
+        @Override
+        public void flush() {}
+      };
+
+  private static Diff prependFinal(String path) {
+    return new Diff() {
+      @Override
+      public String getRelevantFileName() {
+        return path;
+      }
+
+      @Override
+      public void applyDifferences(SourceFile sourceFile) {
+        sourceFile.replaceChars(0, 0, "final ");
+      }
+    };
+  }
+
+  @Test
+  public void workStealingPool() throws Exception {
+    DiffApplier applier = DiffApplier.withWorkStealingPool(4, source, destination);
+    applier.startAsync().awaitRunning();
+    for (int i = 0; i < 200; i++) {
+      applier.put(prependFinal("C" + i));
+    }
+    assertThat(applier.put(prependFinal("C0"))).isNull();
+    applier.stopAsync().awaitTerminated(10, TimeUnit.SECONDS);
+
+    assertThat(written).hasSize(200);
+    assertThat(written.get("C42")).isEqualTo("final class C42 {}");
+    for (Stage stage : Stage.values()) {
+      assertThat(applier.latency(stage).count()).isEqualTo(200);
+    }
+    assertThat(applier.queueDepth()).isEqualTo(0);
+    assertThat(applier.maxQueueDepth()).isAtLeast(1);
+  }
+
+  @Test
+  public void latencyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.percentile(50)).isEqualTo(Duration.ZERO);
+    for (int i = 0; i < 90; i++) {
+      histogram.record(100);
+    }
+    for (int i = 0; i < 10; i++) {
+      histogram.record(5000);
+    }
+    histogram.record(0);
+
+    assertThat(histogram.count()).isEqualTo(101);
+    assertThat(histogram.total().toNanos()).isEqualTo(90 * 100 + 10 * 5000);
+    assertThat(histogram.percentile(50).toNanos()).isIn(Range.closed(100L, 200L));
+    assertThat(histogram.percentile(99).toNanos()).isIn(Range.closed(5000L, 10000L));
+  }
+}
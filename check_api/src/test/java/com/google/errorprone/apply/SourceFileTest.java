@@ -17,6 +17,7 @@
 package com.google.errorprone.apply;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
 
 import java.util.Arrays;
 import java.util.List;
@@ -78,6 +79,41 @@ public class SourceFileTest {
         .isEqualTo("// Sasquatch ipsum dolor sit amet, consectetur adipisicing elit, sed do");
   }
 
+  @Test
+  public void replaceChars_descending() {
+    sourceFile.replaceChars(SOURCE_TEXT.length() - 9, SOURCE_TEXT.length() - 2, "");
+    sourceFile.replaceChars(3, 8, "Sasquatch");
+    sourceFile.replaceChars(3, 3, "<");
+    sourceFile.replaceChars(0, 2, "");
+    assertThat(sourceFile.getSourceText())
+        .isEqualTo(
+            SOURCE_TEXT.substring(2).replace("Lorem", "<Sasquatch").replace("laborum.", "."));
+  }
+
+  @Test
+  public void replaceChars_anyOrder() {
+    sourceFile.replaceChars(0, 2, "");
+    sourceFile.replaceChars(1, 6, "Sasquatch");
+    sourceFile.replaceChars(0, 0, "//");
+    assertThat(sourceFile.getLines().get(0))
+        .isEqualTo("// Sasquatch ipsum dolor sit amet, consectetur adipisicing elit, sed do");
+    sourceFile.replaceChars(SOURCE_TEXT.length() + 4, SOURCE_TEXT.length() + 10, "");
+    assertThat(sourceFile.getSourceText()).isEqualTo(SOURCE_TEXT.replace("Lorem", "Sasquatch"));
+  }
+
+  @Test
+  public void replaceChars_outOfBounds() {
+    assertThrows(IndexOutOfBoundsException.class, () -> sourceFile.replaceChars(-1, 2, ""));
+    assertThrows(IndexOutOfBoundsException.class, () -> sourceFile.replaceChars(4, 2, ""));
+  }
+
+  @Test
+  public void getLines_lineTerminators() {
+    sourceFile.setSourceText("a\r\nb\rc\n\nd");
+    assertThat(sourceFile.getLines()).containsExactly("a", "b", "c", "", "d").inOrder();
+    assertThat(sourceFile.getFragmentByLines(2, 3)).isEqualTo("b\nc\n");
+  }
+
   @Test
   public void replaceLines() {
     sourceFile.replaceLines(Arrays.asList("Line1", "Line2"));
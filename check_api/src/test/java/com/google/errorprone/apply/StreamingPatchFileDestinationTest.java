@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.apply;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link StreamingPatchFileDestination}. */
+@RunWith(JUnit4.class)
+public class StreamingPatchFileDestinationTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void writesDiffsInOrder() throws Exception {
+    Path baseDir = temporaryFolder.getRoot().toPath();
+    Path patchFile = baseDir.resolve("patches/error-prone.patch");
+    StreamingPatchFileDestination destination =
+        new StreamingPatchFileDestination(baseDir, baseDir, patchFile);
+    for (int i = 0; i < 20; i++) {
+      SourceFile file = new SourceFile("F" + i + ".java", "class F" + i + " {}\n");
+      file.replaceChars(0, 0, "final ");
+      destination.writeFile(file, "class F" + i + " {}\n");
+    }
+    destination.writeFile(new SourceFile("Same.java", "class Same {}\n"), "class Same {}\n");
+    destination.flush();
+
+    List<String> headers =
+        Files.readAllLines(patchFile, UTF_8).stream()
+            .filter(l -> l.startsWith("--- "))
+            .collect(Collectors.toList());
+    assertThat(headers).hasSize(20);
+    for (int i = 0; i < 20; i++) {
+      assertThat(headers.get(i)).isEqualTo("--- F" + i + ".java");
+    }
+    assertThat(Files.readAllLines(patchFile, UTF_8)).contains("+final class F7 {}");
+  }
+
+  @Test
+  public void diffsTheSourceAsOfWriteFile() throws Exception {
+    Path baseDir = temporaryFolder.getRoot().toPath();
+    Path patchFile = baseDir.resolve("error-prone.patch");
+    StreamingPatchFileDestination destination =
+        new StreamingPatchFileDestination(baseDir, baseDir, patchFile);
+    SourceFile file = new SourceFile("F.java", "class F {}\n");
+    file.replaceChars(0, 0, "final ");
+    destination.writeFile(file, "class F {}\n");
+    file.setSourceText("class G {}\n");
+    destination.flush();
+
+    List<String> lines = Files.readAllLines(patchFile, UTF_8);
+    assertThat(lines).contains("+final class F {}");
+    assertThat(lines).doesNotContain("+class G {}");
+  }
+
+  @Test
+  public void noChanges() throws Exception {
+    Path baseDir = temporaryFolder.getRoot().toPath();
+    Path patchFile = baseDir.resolve("error-prone.patch");
+    StreamingPatchFileDestination destination =
+        new StreamingPatchFileDestination(baseDir, baseDir, patchFile);
+    destination.writeFile(new SourceFile("Same.java", "class Same {}\n"), "class Same {}\n");
+    destination.flush();
+
+    assertThat(Files.exists(patchFile)).isFalse();
+  }
+
+  @Test
+  public void reportsFailuresFromFlushAndKeepsWriting() throws Exception {
+    Path baseDir = temporaryFolder.getRoot().toPath();
+    Path patchFile = baseDir.resolve("error-prone.patch");
+    StreamingPatchFileDestination destination =
+        new StreamingPatchFileDestination(baseDir, baseDir, patchFile);
+    // The patch file can't be opened while a directory is in its place.
+    Files.createDirectory(patchFile);
+    SourceFile first = new SourceFile("F.java", "class F {}\n");
+    first.replaceChars(0, 0, "final ");
+    destination.writeFile(first, "class F {}\n");
+
+    assertThrows(IOException.class, destination::flush);
+
+    Files.delete(patchFile);
+    SourceFile second = new SourceFile("G.java", "class G {}\n");
+    second.replaceChars(0, 0, "final ");
+    destination.writeFile(second, "class G {}\n");
+    destination.flush();
+
+    assertThat(Files.readAllLines(patchFile, UTF_8)).contains("+final class G {}");
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.descriptionlistener;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BaseErrorProneJavaCompiler;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.ClassTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.sun.source.tree.ClassTree;
+import com.sun.tools.javac.util.Context;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link LifecycleDescriptionListener}s, as created by the {@link RecordingFactory}
+ * registered in {@code META-INF/services}.
+ */
+@RunWith(JUnit4.class)
+public class LifecycleDescriptionListenerTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /** The events seen by the listeners of {@link RecordingFactory}, or null if not recording. */
+  @Nullable private static volatile List<String> events;
+
+  /** Creates listeners that record their events while a test is running. */
+  public static final class RecordingFactory implements LifecycleDescriptionListenerFactory {
+    @Override
+    public LifecycleDescriptionListener create(Context context, boolean useErrors) {
+      List<String> events = LifecycleDescriptionListenerTest.events;
+      if (events == null) {
+        return (resources, description) -> {};
+      }
+      events.add("create");
+      return new LifecycleDescriptionListener() {
+        @Override
+        public void onCompilationUnitStarted(DescriptionListenerResources resources) {
+          events.add("started " + fileName(resources));
+        }
+
+        @Override
+        public void onDescribed(DescriptionListenerResources resources, Description description) {
+          events.add("described " + fileName(resources) + " " + description.checkName);
+        }
+
+        @Override
+        public void onCompilationUnitFinished(DescriptionListenerResources resources) {
+          events.add("finished " + fileName(resources));
+        }
+
+        @Override
+        public void onCompilationFinished() {
+          events.add("compilation finished");
+        }
+      };
+    }
+
+    private static String fileName(DescriptionListenerResources resources) {
+      String name = resources.getCompilation().getSourceFile().getName();
+      return name.substring(name.lastIndexOf('/') + 1);
+    }
+  }
+
+  /** Reports every class. */
+  @BugPattern(name = "EveryClass", summary = "Reports every class", severity = WARNING)
+  public static class EveryClass extends BugChecker implements ClassTreeMatcher {
+    @Override
+    public Description matchClass(ClassTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+
+  @After
+  public void stopRecording() {
+    events = null;
+  }
+
+  private static JavaFileObject source(String name, String content) {
+    return new SimpleJavaFileObject(URI.create("string:///" + name), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return content;
+      }
+    };
+  }
+
+  private void compile(JavaFileObject... sources) {
+    Boolean result =
+        new BaseErrorProneJavaCompiler(ScannerSupplier.fromBugCheckerClasses(EveryClass.class))
+            .getTask(
+                null,
+                null,
+                diagnostic -> {},
+                ImmutableList.of("-d", temporaryFolder.getRoot().getPath()),
+                null,
+                ImmutableList.copyOf(sources))
+            .call();
+    assertThat(result).isTrue();
+  }
+
+  @Test
+  public void eventsOfOneInvocation() {
+    events = Collections.synchronizedList(new ArrayList<>());
+
+    compile(source("A.java", "class A {} class A2 {}"), source("B.java", "class B {}"));
+
+    assertThat(events)
+        .containsExactly(
+            "create",
+            "started A.java",
+            "described A.java EveryClass",
+            "described A.java EveryClass",
+            "finished A.java",
+            "started B.java",
+            "described B.java EveryClass",
+            "finished B.java",
+            "compilation finished")
+        .inOrder();
+  }
+
+  @Test
+  public void createdOncePerInvocation() {
+    events = Collections.synchronizedList(new ArrayList<>());
+
+    compile(source("A.java", "class A {}"), source("B.java", "class B {}"));
+    compile(source("C.java", "class C {}"));
+
+    assertThat(events.stream().filter("create"::equals).count()).isEqualTo(2);
+    assertThat(events.stream().filter("compilation finished"::equals).count()).isEqualTo(2);
+    assertThat(events.stream().filter(e -> e.startsWith("started ")).count()).isEqualTo(3);
+    assertThat(events.stream().filter(e -> e.startsWith("finished ")).count()).isEqualTo(3);
+  }
+}
@@ -119,6 +119,31 @@ public class AppliedFixTest {
     assertThat(fix.getNewCodeSnippet().toString()).isEqualTo("int three3tres;");
   }
 
+  @Test
+  public void shouldRenderEachFixFromTheSameSource() {
+    AppliedFix.Applier applier =
+        AppliedFix.fromSource("class Foo {\r\n  int a;\r\n  int b; // b\n}", endPositions);
+
+    assertThat(applier.apply(SuggestedFix.replace(19, 20, "x")).getNewCodeSnippet().toString())
+        .isEqualTo("int x;");
+    assertThat(applier.apply(SuggestedFix.replace(29, 30, "y")).getNewCodeSnippet().toString())
+        .isEqualTo("int y;");
+    assertThat(applier.apply(SuggestedFix.replace(0, 5, "enum")).getNewCodeSnippet().toString())
+        .isEqualTo("enum Foo {");
+  }
+
+  @Test
+  public void shouldOnlyRenderTheFirstModifiedLine() {
+    AppliedFix fix =
+        AppliedFix.fromSource("class Foo {\n  int a;\n  int b;\n}", endPositions)
+            .apply(
+                SuggestedFix.builder()
+                    .replace(27, 28, "z")
+                    .replace(18, 19, "x, y;\n  long")
+                    .build());
+    assertThat(fix.getNewCodeSnippet().toString()).isEqualTo("int x, y;");
+  }
+
   @Test
   public void shouldReturnNullOnEmptyFix() {
     AppliedFix fix =
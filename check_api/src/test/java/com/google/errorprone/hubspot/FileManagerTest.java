@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.hubspot;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+public class FileManagerTest {
+  private static final JavaType COUNTS_TYPE =
+      JsonUtils.getTypeFactory().constructMapType(HashMap.class, String.class, Long.class);
+
+  @Test
+  public void itMergesConcurrentUpdates() throws Exception {
+    Path path = Files.createTempDirectory("file-manager-test").resolve("counts.json");
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      futures.add(
+          executor.submit(() -> FileManager.merge(path, COUNTS_TYPE, FileManagerTest::increment)));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    Map<String, Long> counts = JsonUtils.getMapper().readValue(path.toFile(), COUNTS_TYPE);
+    assertThat(counts).containsExactly("count", 200L);
+    try (Stream<Path> files = Files.list(path.getParent())) {
+      assertThat(files.map(p -> p.getFileName().toString()).collect(Collectors.toList()))
+          .containsExactly("counts.json", "counts.json.lock");
+    }
+  }
+
+  private static Map<String, Long> increment(Map<String, Long> existing) {
+    Map<String, Long> res = existing == null ? new HashMap<>() : new HashMap<>(existing);
+    res.merge("count", 1L, Long::sum);
+    return res;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.hubspot;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+public class GeneratedSourcesMatcherTest {
+
+  @Test
+  public void singleGlob() {
+    GeneratedSourcesMatcher matcher =
+        GeneratedSourcesMatcher.compile("glob:**/target/generated-sources/**");
+
+    assertThat(matcher.matches("/repo/target/generated-sources/annotations/A.java")).isTrue();
+    assertThat(matcher.matches("/repo/src/main/java/A.java")).isFalse();
+  }
+
+  @Test
+  public void severalPatterns() {
+    GeneratedSourcesMatcher matcher =
+        GeneratedSourcesMatcher.compile(
+            "glob:**/generated/{proto,jooq}/**, regex:.*/Immutable[A-Z]\\w*\\.java,glob:**/*.pb.java");
+
+    assertThat(matcher.matches("/repo/generated/proto/a/B.java")).isTrue();
+    assertThat(matcher.matches("/repo/generated/jooq/Tables.java")).isTrue();
+    assertThat(matcher.matches("/repo/generated/other/B.java")).isFalse();
+    assertThat(matcher.matches("/repo/src/ImmutableFoo.java")).isTrue();
+    assertThat(matcher.matches("/repo/src/Foo.pb.java")).isTrue();
+    assertThat(matcher.matches("/repo/src/Foo.java")).isFalse();
+  }
+
+  @Test
+  public void globsMatchLikeTheDefaultFileSystem() {
+    String[] globs = {
+      "**/*.java", "*.java", "/repo/?.java", "/repo/[a-c].java", "/repo/[!a-c].java", "**/{A,B}.java"
+    };
+    String[] paths = {"/repo/A.java", "/repo/a.java", "/repo/d.java", "A.java", "/repo/x/B.java"};
+    for (String glob : globs) {
+      PathMatcher expected = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+      GeneratedSourcesMatcher actual = GeneratedSourcesMatcher.compile("glob:" + glob);
+      for (String path : paths) {
+        assertThat(actual.matches(path)).isEqualTo(expected.matches(Paths.get(path)));
+      }
+    }
+  }
+
+  @Test
+  public void commasWithinAPattern() {
+    GeneratedSourcesMatcher matcher = GeneratedSourcesMatcher.compile("regex:.*/A,B\\.java");
+
+    assertThat(matcher.matches("/repo/A,B.java")).isTrue();
+    assertThat(matcher.matches("/repo/B.java")).isFalse();
+  }
+
+  @Test
+  public void globsUseTheGivenSeparator() {
+    GeneratedSourcesMatcher matcher =
+        GeneratedSourcesMatcher.compile("glob:**/gen/*.java,glob:**/[a-c]?.java", '\\');
+
+    assertThat(matcher.matches("C:\\repo\\gen\\A.java")).isTrue();
+    assertThat(matcher.matches("C:/repo/gen/A.java")).isTrue();
+    assertThat(matcher.matches("C:\\repo\\gen\\x\\A.java")).isFalse();
+    assertThat(matcher.matches("C:\\repo\\ab.java")).isTrue();
+    assertThat(matcher.matches("C:\\repo\\a\\.java")).isFalse();
+  }
+
+  @Test
+  public void invalidPatterns() {
+    assertThrows(IllegalArgumentException.class, () -> GeneratedSourcesMatcher.compile("foo"));
+    assertThrows(
+        UnsupportedOperationException.class, () -> GeneratedSourcesMatcher.compile("re:foo"));
+    assertThrows(
+        IllegalArgumentException.class, () -> GeneratedSourcesMatcher.compile("glob:{a,{b}}"));
+  }
+}
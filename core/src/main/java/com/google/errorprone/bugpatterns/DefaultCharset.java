@@ -31,6 +31,7 @@ import com.google.common.collect.Iterables;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.StandardTags;
 import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.NewClassTreeMatcher;
 import com.google.errorprone.fixes.Fix;
@@ -77,7 +78,7 @@ import java.util.Scanner;
     severity = WARNING,
     tags = StandardTags.FRAGILE_CODE)
 public class DefaultCharset extends BugChecker
-    implements MethodInvocationTreeMatcher, NewClassTreeMatcher {
+    implements MethodInvocationTreeMatcher, MethodInvocationRules, NewClassTreeMatcher {
 
   enum CharsetFix {
     UTF_8_FIX("UTF_8", "Specify UTF-8") {
@@ -189,6 +190,11 @@ public class DefaultCharset extends BugChecker
               .forClass(Scanner.class.getName())
               .withParameters(ReadableByteChannel.class.getName()));
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(STRING_GET_BYTES, FILE_NEW_WRITER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (state.isAndroidCompatible()) { // Android's default platform Charset is always UTF-8
@@ -31,19 +31,15 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker.CompilationUnitTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFixes;
 import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.SymbolIndex;
 import com.sun.source.tree.AnnotationTree;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.IdentifierTree;
-import com.sun.source.tree.MemberReferenceTree;
-import com.sun.source.tree.MemberSelectTree;
-import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.Tree.Kind;
 import com.sun.source.util.TreePath;
-import com.sun.source.util.TreePathScanner;
-import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Symbol.TypeSymbol;
@@ -52,10 +48,9 @@ import com.sun.tools.javac.tree.JCTree.JCAnnotation;
 import com.sun.tools.javac.tree.JCTree.JCAssign;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.Name;
@@ -91,147 +86,35 @@ public final class UnusedMethod extends BugChecker implements CompilationUnitTre
 
   @Override
   public Description matchCompilationUnit(CompilationUnitTree tree, VisitorState state) {
-    // Map of symbols to method declarations. Initially this is a map of all of the methods. As we
-    // go we remove those variables which are used.
-    Map<Symbol, TreePath> unusedMethods = new HashMap<>();
+    SymbolIndex index = state.symbolIndex();
 
     // We will skip reporting on the whole compilation if there are any native methods found.
-    // Use a TreeScanner to find all local variables and fields.
-    if (hasNativeMethods(tree)) {
+    if (hasNativeMethods(index)) {
       return Description.NO_MATCH;
     }
-    AtomicBoolean ignoreUnusedMethods = new AtomicBoolean(false);
-
-    class MethodFinder extends TreePathScanner<Void, Void> {
-      @Override
-      public Void visitClass(ClassTree tree, Void unused) {
-        if (isSuppressed(tree) || exemptedBySuperType(getType(tree), state)) {
-          return null;
-        }
-        return super.visitClass(tree, null);
-      }
-
-      private boolean exemptedBySuperType(Type type, VisitorState state) {
-        return EXEMPTING_SUPER_TYPES.stream()
-            .anyMatch(t -> isSubtype(type, typeFromString(t).get(state), state));
-      }
-
-      @Override
-      public Void visitMethod(MethodTree tree, Void unused) {
-        if (hasJUnitParamsParametersForMethodAnnotation(tree.getModifiers().getAnnotations())) {
-          // Since this method uses @Parameters, there will be another method that appears to
-          // be unused. Don't warn about unusedMethods at all in this case.
-          ignoreUnusedMethods.set(true);
-        }
-
-        if (isSuppressed(tree)) {
-          // @SuppressWarnings("unused") applies to the entire AST, not just the symbol it's bound
-          // to.  Skip the whole method.
-          return null;
-        }
 
-        if (isMethodSymbolEligibleForChecking(tree)) {
-          unusedMethods.put(getSymbol(tree), getCurrentPath());
-        }
-        return super.visitMethod(tree, unused);
+    // Map of symbols to method declarations. Initially this is a map of all of the methods. As we
+    // go we remove those methods which are used.
+    Map<Symbol, TreePath> unusedMethods = new LinkedHashMap<>();
+    for (TreePath path : index.declarations(Kind.METHOD)) {
+      if (isWithinIgnoredDeclaration(path.getParentPath(), state)) {
+        continue;
       }
-
-      private boolean hasJUnitParamsParametersForMethodAnnotation(
-          Collection<? extends AnnotationTree> annotations) {
-        for (AnnotationTree tree : annotations) {
-          JCAnnotation annotation = (JCAnnotation) tree;
-          if (annotation.getAnnotationType().type != null
-              && annotation
-                  .getAnnotationType()
-                  .type
-                  .toString()
-                  .equals(JUNIT_PARAMS_ANNOTATION_TYPE)) {
-            if (annotation.getArguments().isEmpty()) {
-              // @Parameters, which uses implicit provider methods
-              return true;
-            }
-            for (JCExpression arg : annotation.getArguments()) {
-              if (arg.getKind() != Kind.ASSIGNMENT) {
-                // Implicit value annotation, e.g. @Parameters({"1"}); no exemption required.
-                return false;
-              }
-              JCExpression var = ((JCAssign) arg).getVariable();
-              if (var.getKind() == Kind.IDENTIFIER) {
-                // Anything that is not @Parameters(value = ...), e.g.
-                // @Parameters(source = ...) or @Parameters(method = ...)
-                if (!((IdentifierTree) var).getName().contentEquals(JUNIT_PARAMS_VALUE)) {
-                  return true;
-                }
-              }
-            }
-          }
-        }
-        return false;
+      MethodTree method = (MethodTree) path.getLeaf();
+      if (hasJUnitParamsParametersForMethodAnnotation(method.getModifiers().getAnnotations())) {
+        // Since this method uses @Parameters, there will be another method that appears to
+        // be unused. Don't warn about unusedMethods at all in this case.
+        return Description.NO_MATCH;
       }
-
-      private boolean isMethodSymbolEligibleForChecking(MethodTree tree) {
-        if (exemptedByName(tree.getName())) {
-          return false;
-        }
-        // Assume the method is called if annotated with a called-reflectively annotation.
-        if (exemptedByAnnotation(tree.getModifiers().getAnnotations(), state)) {
-          return false;
-        }
-        // Skip constructors and special methods.
-        MethodSymbol methodSymbol = getSymbol(tree);
-        if (methodSymbol == null
-            || methodSymbol.getKind() == ElementKind.CONSTRUCTOR
-            || SERIALIZATION_METHODS.matches(tree, state)) {
-          return false;
-        }
-
-        // Ignore this method if the last parameter is a GWT JavaScriptObject.
-        if (!tree.getParameters().isEmpty()) {
-          Type lastParamType = getType(getLast(tree.getParameters()));
-          if (lastParamType != null && lastParamType.toString().equals(GWT_JAVASCRIPT_OBJECT)) {
-            return false;
-          }
-        }
-
-        return tree.getModifiers().getFlags().contains(Modifier.PRIVATE);
+      // @SuppressWarnings("unused") applies to the entire AST, not just the symbol it's bound
+      // to, so methods within a suppressed method are skipped too.
+      if (!isSuppressed(method) && isMethodSymbolEligibleForChecking(method, state)) {
+        unusedMethods.put(getSymbol(method), path);
       }
     }
-    new MethodFinder().scan(state.getPath(), null);
 
-    class FilterUsedMethods extends TreePathScanner<Void, Void> {
-      @Override
-      public Void visitMemberSelect(MemberSelectTree memberSelectTree, Void unused) {
-        Symbol symbol = getSymbol(memberSelectTree);
-        unusedMethods.remove(symbol);
-        return super.visitMemberSelect(memberSelectTree, null);
-      }
-
-      @Override
-      public Void visitMemberReference(MemberReferenceTree tree, Void unused) {
-        super.visitMemberReference(tree, null);
-        MethodSymbol symbol = getSymbol(tree);
-        unusedMethods.remove(symbol);
-        if (symbol != null) {
-          symbol.getParameters().forEach(unusedMethods::remove);
-        }
-        return null;
-      }
-
-      @Override
-      public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
-        Symbol methodSymbol = getSymbol(tree);
-        if (methodSymbol != null) {
-          unusedMethods.remove(methodSymbol);
-        }
-        super.visitMethodInvocation(tree, null);
-        return null;
-      }
-    }
-
-    new FilterUsedMethods().scan(state.getPath(), null);
-
-    if (ignoreUnusedMethods.get()) {
-      return Description.NO_MATCH;
+    for (Symbol symbol : index.references().keySet()) {
+      unusedMethods.remove(symbol);
     }
 
     for (TreePath unusedPath : unusedMethods.values()) {
@@ -247,18 +130,89 @@ public final class UnusedMethod extends BugChecker implements CompilationUnitTre
     return Description.NO_MATCH;
   }
 
-  static boolean hasNativeMethods(CompilationUnitTree tree) {
-    AtomicBoolean hasAnyNativeMethods = new AtomicBoolean(false);
-    new TreeScanner<Void, Void>() {
-      @Override
-      public Void visitMethod(MethodTree tree, Void unused) {
-        if (tree.getModifiers().getFlags().contains(Modifier.NATIVE)) {
-          hasAnyNativeMethods.set(true);
+  /**
+   * Whether the declaration at the given path is within a suppressed method or class, or within a
+   * class exempted by one of its super types.
+   */
+  private boolean isWithinIgnoredDeclaration(TreePath path, VisitorState state) {
+    for (Tree enclosing : path) {
+      if (enclosing instanceof ClassTree) {
+        ClassTree classTree = (ClassTree) enclosing;
+        if (isSuppressed(classTree) || exemptedBySuperType(getType(classTree), state)) {
+          return true;
         }
-        return null;
+      } else if (enclosing instanceof MethodTree && isSuppressed((MethodTree) enclosing)) {
+        return true;
       }
-    }.scan(tree, null);
-    return hasAnyNativeMethods.get();
+    }
+    return false;
+  }
+
+  private static boolean exemptedBySuperType(Type type, VisitorState state) {
+    return EXEMPTING_SUPER_TYPES.stream()
+        .anyMatch(t -> isSubtype(type, typeFromString(t).get(state), state));
+  }
+
+  private static boolean hasJUnitParamsParametersForMethodAnnotation(
+      Collection<? extends AnnotationTree> annotations) {
+    for (AnnotationTree tree : annotations) {
+      JCAnnotation annotation = (JCAnnotation) tree;
+      if (annotation.getAnnotationType().type != null
+          && annotation.getAnnotationType().type.toString().equals(JUNIT_PARAMS_ANNOTATION_TYPE)) {
+        if (annotation.getArguments().isEmpty()) {
+          // @Parameters, which uses implicit provider methods
+          return true;
+        }
+        for (JCExpression arg : annotation.getArguments()) {
+          if (arg.getKind() != Kind.ASSIGNMENT) {
+            // Implicit value annotation, e.g. @Parameters({"1"}); no exemption required.
+            return false;
+          }
+          JCExpression var = ((JCAssign) arg).getVariable();
+          if (var.getKind() == Kind.IDENTIFIER) {
+            // Anything that is not @Parameters(value = ...), e.g.
+            // @Parameters(source = ...) or @Parameters(method = ...)
+            if (!((IdentifierTree) var).getName().contentEquals(JUNIT_PARAMS_VALUE)) {
+              return true;
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isMethodSymbolEligibleForChecking(MethodTree tree, VisitorState state) {
+    if (exemptedByName(tree.getName())) {
+      return false;
+    }
+    // Assume the method is called if annotated with a called-reflectively annotation.
+    if (exemptedByAnnotation(tree.getModifiers().getAnnotations(), state)) {
+      return false;
+    }
+    // Skip constructors and special methods.
+    MethodSymbol methodSymbol = getSymbol(tree);
+    if (methodSymbol == null
+        || methodSymbol.getKind() == ElementKind.CONSTRUCTOR
+        || SERIALIZATION_METHODS.matches(tree, state)) {
+      return false;
+    }
+
+    // Ignore this method if the last parameter is a GWT JavaScriptObject.
+    if (!tree.getParameters().isEmpty()) {
+      Type lastParamType = getType(getLast(tree.getParameters()));
+      if (lastParamType != null && lastParamType.toString().equals(GWT_JAVASCRIPT_OBJECT)) {
+        return false;
+      }
+    }
+
+    return tree.getModifiers().getFlags().contains(Modifier.PRIVATE);
+  }
+
+  private static boolean hasNativeMethods(SymbolIndex index) {
+    return index.declarations(Kind.METHOD).stream()
+        .anyMatch(
+            p -> ((MethodTree) p.getLeaf()).getModifiers().getFlags().contains(Modifier.NATIVE));
   }
 
   /**
@@ -26,19 +26,15 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker.CompilationUnitTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFixes;
 import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.SymbolIndex;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
-import com.sun.source.tree.IdentifierTree;
-import com.sun.source.tree.MemberSelectTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
-import com.sun.source.util.TreePathScanner;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
 /** Bugpattern to detect unused nested classes. */
 @BugPattern(
@@ -51,14 +47,22 @@ public final class UnusedNestedClass extends BugChecker implements CompilationUn
 
   @Override
   public Description matchCompilationUnit(CompilationUnitTree tree, VisitorState state) {
-    PrivateNestedClassScanner privateNestedClassScanner = new PrivateNestedClassScanner(state);
-    privateNestedClassScanner.scan(state.getPath(), null);
-
-    Map<ClassSymbol, TreePath> privateNestedClasses = privateNestedClassScanner.classes;
+    SymbolIndex index = state.symbolIndex();
+
+    Map<ClassSymbol, TreePath> privateNestedClasses = new LinkedHashMap<>();
+    for (TreePath path : index.declarations()) {
+      if (path.getLeaf() instanceof ClassTree && !ignoreUnusedClass(path)) {
+        ClassSymbol symbol = getSymbol((ClassTree) path.getLeaf());
+        if (symbol != null && symbol.isPrivate()) {
+          privateNestedClasses.put(symbol, path);
+        }
+      }
+    }
+    if (privateNestedClasses.isEmpty()) {
+      return NO_MATCH;
+    }
 
-    ClassUsageScanner classUsageScanner = new ClassUsageScanner();
-    classUsageScanner.scan(state.getPath(), null);
-    privateNestedClasses.keySet().removeAll(classUsageScanner.usedClasses);
+    index.references().forEach((symbol, path) -> markUsed(symbol, path, privateNestedClasses));
     for (TreePath path : privateNestedClasses.values()) {
       state.reportMatch(
           describeMatch(path.getLeaf(), SuggestedFixes.replaceIncludingComments(path, "", state)));
@@ -66,68 +70,35 @@ public final class UnusedNestedClass extends BugChecker implements CompilationUn
     return NO_MATCH;
   }
 
-  private final class PrivateNestedClassScanner extends TreePathScanner<Void, Void> {
-    private final Map<ClassSymbol, TreePath> classes = new HashMap<>();
-    private final VisitorState state;
-
-    private PrivateNestedClassScanner(VisitorState state) {
-      this.state = state;
-    }
-
-    @Override
-    public Void visitClass(ClassTree classTree, Void unused) {
-      if (ignoreUnusedClass(classTree)) {
-        return null;
-      }
-      ClassSymbol symbol = getSymbol(classTree);
-      if (symbol != null && symbol.isPrivate()) {
-        classes.put(symbol, getCurrentPath());
-      }
-      return super.visitClass(classTree, null);
-    }
-
-    private boolean ignoreUnusedClass(ClassTree classTree) {
-      if (isSuppressed(classTree)) {
+  /** Whether the class at the given path, or any class enclosing it, is suppressed. */
+  private boolean ignoreUnusedClass(TreePath path) {
+    for (Tree enclosing : path) {
+      if (enclosing instanceof ClassTree && isSuppressed((ClassTree) enclosing)) {
         return true;
       }
-      return false;
     }
+    return false;
   }
 
-  private static final class ClassUsageScanner extends TreePathScanner<Void, Void> {
-    private final Set<ClassSymbol> withinClasses = new HashSet<>();
-    private final Set<ClassSymbol> usedClasses = new HashSet<>();
-
-    @Override
-    public Void visitClass(ClassTree classTree, Void unused) {
-      ClassSymbol symbol = getSymbol(classTree);
-      if (symbol == null) {
-        return super.visitClass(classTree, null);
+  /**
+   * Removes the classes used by a reference to the given symbol: the symbol itself if it is a
+   * class, and the classes enclosing it, unless the reference is within that class.
+   */
+  private static void markUsed(
+      Symbol referenced, TreePath reference, Map<ClassSymbol, TreePath> unusedClasses) {
+    for (Symbol symbol = referenced; symbol != null; symbol = enclosingClass(symbol)) {
+      if (unusedClasses.containsKey(symbol) && !isWithin(reference, symbol)) {
+        unusedClasses.remove(symbol);
       }
-      withinClasses.add(symbol);
-      super.visitClass(classTree, null);
-      withinClasses.remove(symbol);
-      return null;
-    }
-
-    @Override
-    public Void visitMemberSelect(MemberSelectTree memberSelectTree, Void unused) {
-      handle(memberSelectTree);
-      return super.visitMemberSelect(memberSelectTree, null);
-    }
-
-    @Override
-    public Void visitIdentifier(IdentifierTree identifierTree, Void unused) {
-      handle(identifierTree);
-      return super.visitIdentifier(identifierTree, null);
     }
+  }
 
-    private void handle(Tree node) {
-      for (Symbol symbol = getSymbol(node); symbol != null; symbol = enclosingClass(symbol)) {
-        if (symbol instanceof ClassSymbol && !withinClasses.contains(symbol)) {
-          usedClasses.add((ClassSymbol) symbol);
-        }
+  private static boolean isWithin(TreePath path, Symbol classSymbol) {
+    for (Tree enclosing : path) {
+      if (enclosing instanceof ClassTree && getSymbol((ClassTree) enclosing) == classSymbol) {
+        return true;
       }
     }
+    return false;
   }
 }
@@ -21,9 +21,11 @@ import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static com.google.errorprone.matchers.Description.NO_MATCH;
 import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.bugpatterns.formatstring.FormatStringValidation;
 import com.google.errorprone.bugpatterns.formatstring.FormatStringValidation.ValidationResult;
@@ -45,7 +47,8 @@ import edu.umd.cs.findbugs.formatStringChecker.ExtraFormatArgumentsException;
     altNames = "FormatString",
     summary = "Invalid printf-style format string",
     severity = ERROR)
-public class FloggerFormatString extends BugChecker implements MethodInvocationTreeMatcher {
+public class FloggerFormatString extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
 
   private static final Matcher<ExpressionTree> FORMAT_METHOD =
       instanceMethod().onDescendantOf("com.google.common.flogger.LoggingApi").named("log");
@@ -53,6 +56,11 @@ public class FloggerFormatString extends BugChecker implements MethodInvocationT
   private static final Matcher<ExpressionTree> WITH_CAUSE =
       instanceMethod().onDescendantOf("com.google.common.flogger.LoggingApi").named("withCause");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(FORMAT_METHOD);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!FORMAT_METHOD.matches(tree, state)) {
@@ -23,15 +23,18 @@ import static com.google.errorprone.matchers.Matchers.argument;
 import static com.google.errorprone.matchers.Matchers.isSameType;
 import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFixes;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.suppliers.Suppliers;
 import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.MethodTree;
 
@@ -40,13 +43,22 @@ import com.sun.source.tree.MethodTree;
     name = "FloggerLogVarargs",
     summary = "logVarargs should be used to pass through format strings and arguments.",
     severity = ERROR)
-public final class FloggerLogVarargs extends BugChecker implements MethodInvocationTreeMatcher {
+public final class FloggerLogVarargs extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
+  private static final Matcher<ExpressionTree> LOG =
+      instanceMethod().onDescendantOf("com.google.common.flogger.LoggingApi").named("log");
+
   private static final Matcher<MethodInvocationTree> MATCHER =
       allOf(
-          instanceMethod().onDescendantOf("com.google.common.flogger.LoggingApi").named("log"),
+          LOG,
           argument(0, isSameType(Suppliers.STRING_TYPE)),
           argument(1, isSameType(Suppliers.arrayOf(Suppliers.OBJECT_TYPE))));
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(LOG);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
@@ -20,9 +20,11 @@ import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 import static com.google.errorprone.matchers.Description.NO_MATCH;
 import static com.google.errorprone.matchers.Matchers.instanceMethod;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
@@ -41,13 +43,19 @@ import java.util.regex.Pattern;
         "Flogger uses printf-style format specifiers, such as %s and %d. Message format-style"
             + " specifiers like {0} don't work.",
     severity = WARNING)
-public class FloggerMessageFormat extends BugChecker implements MethodInvocationTreeMatcher {
+public class FloggerMessageFormat extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
 
   private static final Matcher<ExpressionTree> LOG_MATCHER =
       instanceMethod().onDescendantOf("com.google.common.flogger.LoggingApi").named("log");
 
   private static final Pattern MESSAGE_FORMAT_SPECIFIER = Pattern.compile("\\{[0-9]\\}");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(LOG_MATCHER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!LOG_MATCHER.matches(tree, state)) {
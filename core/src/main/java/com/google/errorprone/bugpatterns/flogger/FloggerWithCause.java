@@ -27,6 +27,7 @@ import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.LinkType;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.fixes.SuggestedFix;
@@ -57,7 +58,8 @@ import java.util.Optional;
     linkType = LinkType.CUSTOM,
     link = "https://google.github.io/flogger/best_practice#stack-trace",
     severity = WARNING)
-public class FloggerWithCause extends BugChecker implements MethodInvocationTreeMatcher {
+public class FloggerWithCause extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
 
   private static final String STACK_SIZE_MEDIUM_IMPORT =
       "com.google.common.flogger.StackSize.MEDIUM";
@@ -87,6 +89,11 @@ public class FloggerWithCause extends BugChecker implements MethodInvocationTree
           instanceMethod().onDescendantOf("java.lang.Throwable").named("getMessage"),
           instanceMethod().onDescendantOf("java.lang.Throwable").named("toString"));
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(WITH_CAUSE_MATCHER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!WITH_CAUSE_MATCHER.matches(tree, state)) {
@@ -18,10 +18,12 @@ package com.google.errorprone.bugpatterns.flogger;
 
 import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
@@ -42,7 +44,7 @@ import javax.lang.model.type.TypeKind;
     summary = "Use withCause to associate Exceptions with log statements",
     severity = BugPattern.SeverityLevel.WARNING)
 public class FloggerWithoutCause extends BugChecker
-    implements BugChecker.MethodInvocationTreeMatcher {
+    implements BugChecker.MethodInvocationTreeMatcher, MethodInvocationRules {
 
   private static final Matcher<ExpressionTree> LOG_METHOD =
       instanceMethod().onDescendantOf("com.google.common.flogger.LoggingApi").named("log");
@@ -50,6 +52,11 @@ public class FloggerWithoutCause extends BugChecker
   private static final Matcher<ExpressionTree> WITH_CAUSE =
       instanceMethod().onDescendantOf("com.google.common.flogger.LoggingApi").named("withCause");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(LOG_METHOD);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, final VisitorState state) {
     if (!LOG_METHOD.matches(tree, state)) {
@@ -21,10 +21,12 @@ import static com.google.errorprone.matchers.Matchers.not;
 import static com.google.errorprone.matchers.Matchers.packageStartsWith;
 import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.fixes.SuggestedFixes;
@@ -45,17 +47,26 @@ import com.sun.source.tree.MethodInvocationTree;
             + "field is copied directly). Use Duration.ofSeconds(duration.getSeconds(), nanos) "
             + "instead.",
     severity = WARNING)
-public final class JavaDurationWithNanos extends BugChecker implements MethodInvocationTreeMatcher {
+public final class JavaDurationWithNanos extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
+
+  private static final Matcher<ExpressionTree> WITH_NANOS =
+      Matchers.instanceMethod()
+          .onExactClass("java.time.Duration")
+          .named("withNanos")
+          .withParameters("int");
 
   private static final Matcher<ExpressionTree> MATCHER =
       allOf(
-          Matchers.instanceMethod()
-              .onExactClass("java.time.Duration")
-              .named("withNanos")
-              .withParameters("int"),
+          WITH_NANOS,
           // Allow usage by java.time itself
           not(packageStartsWith("java.time")));
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(WITH_NANOS);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
@@ -17,10 +17,12 @@ package com.google.errorprone.bugpatterns.time;
 
 import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.fixes.SuggestedFixes;
@@ -42,16 +44,24 @@ import com.sun.source.tree.MethodInvocationTree;
             + "duration.getNano()) instead.",
     severity = WARNING)
 public final class JavaDurationWithSeconds extends BugChecker
-    implements MethodInvocationTreeMatcher {
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
+  private static final Matcher<ExpressionTree> WITH_SECONDS =
+      Matchers.instanceMethod()
+          .onExactClass("java.time.Duration")
+          .named("withSeconds")
+          .withParameters("long");
+
   private static final Matcher<ExpressionTree> MATCHER =
       Matchers.allOf(
-          Matchers.instanceMethod()
-              .onExactClass("java.time.Duration")
-              .named("withSeconds")
-              .withParameters("long"),
+          WITH_SECONDS,
           // Allow usage by java.time itself
           Matchers.not(Matchers.packageStartsWith("java.time")));
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(WITH_SECONDS);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
@@ -18,10 +18,12 @@ package com.google.errorprone.bugpatterns.time;
 import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.fixes.SuggestedFixes;
@@ -46,16 +48,24 @@ import com.sun.source.tree.MethodInvocationTree;
             + "standardHours(long), or standardDays(long) instead.",
     severity = WARNING)
 public final class JodaDurationWithMillis extends BugChecker
-    implements MethodInvocationTreeMatcher {
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
+  private static final Matcher<ExpressionTree> WITH_MILLIS =
+      Matchers.instanceMethod()
+          .onExactClass("org.joda.time.Duration")
+          .named("withMillis")
+          .withParameters("long");
+
   private static final Matcher<ExpressionTree> MATCHER =
       Matchers.allOf(
-          Matchers.instanceMethod()
-              .onExactClass("org.joda.time.Duration")
-              .named("withMillis")
-              .withParameters("long"),
+          WITH_MILLIS,
           // Allow usage by JodaTime itself
           Matchers.not(Matchers.packageStartsWith("org.joda.time")));
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(WITH_MILLIS);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
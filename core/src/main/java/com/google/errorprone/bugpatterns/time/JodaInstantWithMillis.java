@@ -18,10 +18,12 @@ package com.google.errorprone.bugpatterns.time;
 import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.fixes.SuggestedFixes;
@@ -41,16 +43,25 @@ import com.sun.source.tree.MethodInvocationTree;
             + "doesn't mutate the current instance but rather returns a new immutable Instant "
             + "instance. Please use new Instant(long) instead.",
     severity = WARNING)
-public final class JodaInstantWithMillis extends BugChecker implements MethodInvocationTreeMatcher {
+public final class JodaInstantWithMillis extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
+  private static final Matcher<ExpressionTree> WITH_MILLIS =
+      Matchers.instanceMethod()
+          .onExactClass("org.joda.time.Instant")
+          .named("withMillis")
+          .withParameters("long");
+
   private static final Matcher<ExpressionTree> MATCHER =
       Matchers.allOf(
-          Matchers.instanceMethod()
-              .onExactClass("org.joda.time.Instant")
-              .named("withMillis")
-              .withParameters("long"),
+          WITH_MILLIS,
           // Allow usage by JodaTime itself
           Matchers.not(Matchers.packageStartsWith("org.joda.time")));
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(WITH_MILLIS);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
@@ -17,10 +17,12 @@ package com.google.errorprone.bugpatterns.time;
 
 import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.fixes.SuggestedFixes;
@@ -31,8 +33,6 @@ import com.google.errorprone.matchers.method.MethodMatchers;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Check for calls to JodaTime's {@code type.plus(long)} and {@code type.minus(long)} where {@code
@@ -49,16 +49,19 @@ import java.util.List;
             + "because the units of the parameters are ambiguous. Please use "
             + "type.plus(Duration.millis(long)) or type.minus(Duration.millis(long)) instead.",
     severity = WARNING)
-public final class JodaPlusMinusLong extends BugChecker implements MethodInvocationTreeMatcher {
+public final class JodaPlusMinusLong extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
 
   private static final ImmutableSet<String> TYPES =
       ImmutableSet.of("DateMidnight", "DateTime", "Duration", "Instant");
 
   private static final ImmutableSet<String> METHODS = ImmutableSet.of("plus", "minus");
 
+  private static final ImmutableList<Matcher<ExpressionTree>> PLUS_MINUS_LONG = buildMatchers();
+
   private static final Matcher<ExpressionTree> MATCHER =
       Matchers.allOf(
-          buildMatcher(),
+          Matchers.anyOf(PLUS_MINUS_LONG),
           // Allow usage by JodaTime itself
           Matchers.not(Matchers.packageStartsWith("org.joda.time")));
 
@@ -67,8 +70,8 @@ public final class JodaPlusMinusLong extends BugChecker implements MethodInvocat
           .onDescendantOf("org.joda.time.ReadableDuration")
           .named("getMillis");
 
-  private static Matcher<ExpressionTree> buildMatcher() {
-    List<Matcher<ExpressionTree>> matchers = new ArrayList<>();
+  private static ImmutableList<Matcher<ExpressionTree>> buildMatchers() {
+    ImmutableList.Builder<Matcher<ExpressionTree>> matchers = ImmutableList.builder();
     for (String type : TYPES) {
       for (String method : METHODS) {
         matchers.add(
@@ -78,7 +81,12 @@ public final class JodaPlusMinusLong extends BugChecker implements MethodInvocat
                 .withParameters("long"));
       }
     }
-    return Matchers.anyOf(matchers);
+    return matchers.build();
+  }
+
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return PLUS_MINUS_LONG;
   }
 
   @Override
@@ -22,9 +22,11 @@ import static com.google.errorprone.matchers.Matchers.instanceMethod;
 import static com.google.errorprone.matchers.Matchers.not;
 import static com.google.errorprone.matchers.Matchers.packageStartsWith;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.fixes.SuggestedFixes;
@@ -51,23 +53,26 @@ import com.sun.source.tree.MethodInvocationTree;
             + "type.withDurationAdded(Duration.millis(long), int) instead.",
     severity = WARNING)
 public final class JodaWithDurationAddedLong extends BugChecker
-    implements MethodInvocationTreeMatcher {
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
+
+  private static final ImmutableList<Matcher<ExpressionTree>> WITH_DURATION_ADDED =
+      ImmutableList.of(
+          instanceMethod()
+              .onExactClass("org.joda.time.DateTime")
+              .named("withDurationAdded")
+              .withParameters("long", "int"),
+          instanceMethod()
+              .onExactClass("org.joda.time.Duration")
+              .named("withDurationAdded")
+              .withParameters("long", "int"),
+          instanceMethod()
+              .onExactClass("org.joda.time.Instant")
+              .named("withDurationAdded")
+              .withParameters("long", "int"));
 
   private static final Matcher<ExpressionTree> MATCHER =
       allOf(
-          anyOf(
-              instanceMethod()
-                  .onExactClass("org.joda.time.DateTime")
-                  .named("withDurationAdded")
-                  .withParameters("long", "int"),
-              instanceMethod()
-                  .onExactClass("org.joda.time.Duration")
-                  .named("withDurationAdded")
-                  .withParameters("long", "int"),
-              instanceMethod()
-                  .onExactClass("org.joda.time.Instant")
-                  .named("withDurationAdded")
-                  .withParameters("long", "int")),
+          anyOf(WITH_DURATION_ADDED),
           // Allow usage by JodaTime itself
           not(packageStartsWith("org.joda.time")));
 
@@ -76,6 +81,11 @@ public final class JodaWithDurationAddedLong extends BugChecker
           .onDescendantOf("org.joda.time.ReadableDuration")
           .named("getMillis");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return WITH_DURATION_ADDED;
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
@@ -24,9 +24,11 @@ import static com.google.errorprone.matchers.Matchers.packageStartsWith;
 import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
 import static com.google.errorprone.util.ASTHelpers.constValue;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
@@ -46,14 +48,23 @@ import com.sun.source.tree.MethodInvocationTree;
         "Avoid the magic constant (ZoneId.of(\"Z\")) in favor of a more descriptive API: "
             + " ZoneOffset.UTC",
     severity = ERROR)
-public final class ZoneIdOfZ extends BugChecker implements MethodInvocationTreeMatcher {
+public final class ZoneIdOfZ extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationRules {
   private static final String ZONE_OFFSET = "java.time.ZoneOffset";
 
+  private static final Matcher<ExpressionTree> OF =
+      staticMethod().onClass("java.time.ZoneId").named("of");
+
   private static final Matcher<ExpressionTree> ZONE_ID_OF =
       allOf(
-          staticMethod().onClass("java.time.ZoneId").named("of"),
+          OF,
           not(anyOf(packageStartsWith("java."), packageStartsWith("tck.java."))));
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+    return ImmutableList.of(OF);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (ZONE_ID_OF.matches(tree, state)) {
@@ -17,21 +17,28 @@
 package com.google.errorprone.refaster;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
  * A type-safe map from objects of type {@code Bindings.Key<V>}, which consist of a {@code String}
  * key and a {@code Bindings.Key} subclass, to values of type {@code V}.
  *
+ * <p>Bindings are stored in a persistent hash trie, so copying them with {@link
+ * #create(Bindings)}, as {@link Unifier#fork} does for every alternative it tries, shares the
+ * entries instead of copying them.
+ *
  * @author Louis Wasserman
  */
 public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
@@ -76,7 +83,11 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
     }
   }
 
-  private final Map<Key<?>, Object> contents;
+  /** The bindings, which copies share until one of them is modified. */
+  private final Contents contents;
+
+  /** {@link #contents}, or an unmodifiable view of it. */
+  private final Map<Key<?>, Object> delegate;
 
   public static Bindings create() {
     return new Bindings();
@@ -95,25 +106,31 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
     return result;
   }
 
+  /** Returns a copy of the given bindings. Copying takes constant time. */
   public static Bindings create(Bindings bindings) {
     return new Bindings(bindings);
   }
 
   private Bindings() {
-    this(new HashMap<>());
+    this(new Contents(HashTrieMap.empty()));
   }
 
   Bindings(Bindings bindings) {
-    this(Maps.newHashMap(bindings.contents));
+    this(new Contents(bindings.contents.trie));
+  }
+
+  private Bindings(Contents contents) {
+    this(contents, contents);
   }
 
-  private Bindings(Map<Key<?>, Object> contents) {
+  private Bindings(Contents contents, Map<Key<?>, Object> delegate) {
     this.contents = contents;
+    this.delegate = delegate;
   }
 
   @Override
   protected Map<Key<?>, Object> delegate() {
-    return contents;
+    return delegate;
   }
 
   @SuppressWarnings("unchecked")
@@ -141,6 +158,88 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
   }
 
   public Bindings unmodifiable() {
-    return new Bindings(Collections.unmodifiableMap(contents));
+    return new Bindings(contents, Collections.unmodifiableMap(contents));
+  }
+
+  /**
+   * A map backed by a {@link HashTrieMap}. Modifying it replaces the trie, so any other map that
+   * was copied from it keeps the trie it was copied from.
+   */
+  private static final class Contents extends AbstractMap<Key<?>, Object> {
+    private HashTrieMap<Key<?>, Object> trie;
+
+    Contents(HashTrieMap<Key<?>, Object> trie) {
+      this.trie = trie;
+    }
+
+    @Override
+    public int size() {
+      return trie.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return trie.get(key) != null;
+    }
+
+    @Override
+    public Object get(Object key) {
+      return trie.get(key);
+    }
+
+    @Override
+    public Object put(Key<?> key, Object value) {
+      Object previous = trie.get(key);
+      trie = trie.with(key, value);
+      return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+      Object previous = trie.get(key);
+      trie = trie.without(key);
+      return previous;
+    }
+
+    @Override
+    public void clear() {
+      trie = HashTrieMap.empty();
+    }
+
+    @Override
+    public Set<Entry<Key<?>, Object>> entrySet() {
+      return new AbstractSet<Entry<Key<?>, Object>>() {
+        @Override
+        public int size() {
+          return trie.size();
+        }
+
+        @Override
+        public Iterator<Entry<Key<?>, Object>> iterator() {
+          Iterator<Entry<Key<?>, Object>> entries = trie.entries().iterator();
+          return new Iterator<Entry<Key<?>, Object>>() {
+            @Nullable private Entry<Key<?>, Object> last;
+
+            @Override
+            public boolean hasNext() {
+              return entries.hasNext();
+            }
+
+            @Override
+            public Entry<Key<?>, Object> next() {
+              last = entries.next();
+              return last;
+            }
+
+            @Override
+            public void remove() {
+              checkState(last != null, "no element to remove");
+              Contents.this.remove(last.getKey());
+              last = null;
+            }
+          };
+        }
+      };
+    }
   }
 }
@@ -28,6 +28,7 @@ import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.refaster.UStatement.UnifierWithUnconsumedStatements;
 import com.google.errorprone.refaster.annotation.UseImportPolicy;
 import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree.Kind;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCBlock;
 import com.sun.tools.javac.tree.JCTree.JCStatement;
@@ -105,6 +106,11 @@ public abstract class BlockTemplate extends Template<BlockTemplateMatch> {
     return ImmutableList.of();
   }
 
+  @Override
+  TemplateRoot root() {
+    return TemplateRoot.of(Kind.BLOCK);
+  }
+
   private Choice<List<BlockTemplateMatch>> matchesStartingAtBeginning(
       final JCBlock block,
       final int offset,
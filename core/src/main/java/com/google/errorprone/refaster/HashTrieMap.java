@@ -0,0 +1,298 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable hash array mapped trie. Adding or removing an entry returns a new map that shares
+ * all but the path to that entry with this one, so copies are free and updates are cheap.
+ *
+ * <p>Neither keys nor values may be null.
+ */
+final class HashTrieMap<K, V> {
+  private static final HashTrieMap<Object, Object> EMPTY = new HashTrieMap<>(BitmapNode.EMPTY, 0);
+
+  @SuppressWarnings("unchecked") // the empty map contains no keys or values
+  static <K, V> HashTrieMap<K, V> empty() {
+    return (HashTrieMap<K, V>) EMPTY;
+  }
+
+  private final Node root;
+  private final int size;
+
+  private HashTrieMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Returns the value of the given key, or null if there is none. */
+  @Nullable
+  @SuppressWarnings("unchecked") // only values of type V are added
+  V get(@Nullable Object key) {
+    return key == null ? null : (V) root.get(key, hash(key), 0);
+  }
+
+  /** Returns a map with the entries of this one, but with {@code key} mapped to {@code value}. */
+  HashTrieMap<K, V> with(K key, V value) {
+    checkNotNull(key, "key");
+    checkNotNull(value, "value");
+    int hash = hash(key);
+    Object previous = root.get(key, hash, 0);
+    if (previous == value) {
+      return this;
+    }
+    return new HashTrieMap<>(root.with(key, value, hash, 0), previous == null ? size + 1 : size);
+  }
+
+  /** Returns a map with the entries of this one, except that of {@code key}. */
+  HashTrieMap<K, V> without(@Nullable Object key) {
+    if (get(key) == null) {
+      return this;
+    }
+    Node root = this.root.without(key, hash(key), 0);
+    return root == null ? empty() : new HashTrieMap<>(root, size - 1);
+  }
+
+  /** Returns the entries of this map, in no particular order. */
+  @SuppressWarnings("unchecked") // only keys of type K and values of type V are added
+  ImmutableList<Map.Entry<K, V>> entries() {
+    ImmutableList.Builder<Map.Entry<K, V>> entries = ImmutableList.builderWithExpectedSize(size);
+    root.forEach((k, v) -> entries.add(new SimpleImmutableEntry<>((K) k, (V) v)));
+    return entries.build();
+  }
+
+  private static int hash(Object key) {
+    int hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  private abstract static class Node {
+    @Nullable
+    abstract Object get(Object key, int hash, int shift);
+
+    abstract Node with(Object key, Object value, int hash, int shift);
+
+    /** Returns this node without the given key, or null if that leaves it empty. */
+    @Nullable
+    abstract Node without(Object key, int hash, int shift);
+
+    abstract void forEach(BiConsumer<Object, Object> action);
+  }
+
+  /**
+   * A node holding up to 32 slots, one for each value of 5 bits of the hash, of which only the
+   * occupied ones are stored. Each occupied slot either holds a key and its value, or a null key
+   * and the child node holding all keys whose hashes share those bits.
+   */
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    private final int bitmap;
+    private final Object[] array;
+
+    BitmapNode(int bitmap, Object[] array) {
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    private static int bit(int hash, int shift) {
+      return 1 << ((hash >>> shift) & 31);
+    }
+
+    /** Returns the index in {@link #array} of the key in the slot of the given bit. */
+    private int index(int bit) {
+      return 2 * Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Object get(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+      int i = index(bit);
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) {
+        return ((Node) v).get(key, hash, shift + 5);
+      }
+      return key.equals(k) ? v : null;
+    }
+
+    @Override
+    Node with(Object key, Object value, int hash, int shift) {
+      int bit = bit(hash, shift);
+      int i = index(bit);
+      if ((bitmap & bit) == 0) {
+        Object[] array = new Object[this.array.length + 2];
+        System.arraycopy(this.array, 0, array, 0, i);
+        array[i] = key;
+        array[i + 1] = value;
+        System.arraycopy(this.array, i, array, i + 2, this.array.length - i);
+        return new BitmapNode(bitmap | bit, array);
+      }
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) {
+        Node child = ((Node) v).with(key, value, hash, shift + 5);
+        return child == v ? this : replace(i, null, child);
+      }
+      if (key.equals(k)) {
+        return v == value ? this : replace(i, key, value);
+      }
+      return replace(i, null, pair(k, v, hash(k), key, value, hash, shift + 5));
+    }
+
+    private BitmapNode replace(int i, @Nullable Object key, Object value) {
+      Object[] array = this.array.clone();
+      array[i] = key;
+      array[i + 1] = value;
+      return new BitmapNode(bitmap, array);
+    }
+
+    private static Node pair(
+        Object key1, Object value1, int hash1, Object key2, Object value2, int hash2, int shift) {
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+      }
+      return EMPTY.with(key1, value1, hash1, shift).with(key2, value2, hash2, shift);
+    }
+
+    @Override
+    Node without(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int i = index(bit);
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) {
+        Node child = ((Node) v).without(key, hash, shift + 5);
+        if (child == v) {
+          return this;
+        } else if (child != null) {
+          return replace(i, null, child);
+        }
+      } else if (!key.equals(k)) {
+        return this;
+      }
+      if (bitmap == bit) {
+        return null;
+      }
+      Object[] array = new Object[this.array.length - 2];
+      System.arraycopy(this.array, 0, array, 0, i);
+      System.arraycopy(this.array, i + 2, array, i, array.length - i);
+      return new BitmapNode(bitmap & ~bit, array);
+    }
+
+    @Override
+    void forEach(BiConsumer<Object, Object> action) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (array[i] == null) {
+          ((Node) array[i + 1]).forEach(action);
+        } else {
+          action.accept(array[i], array[i + 1]);
+        }
+      }
+    }
+  }
+
+  /** A node holding the keys and values of distinct keys whose hashes are all equal. */
+  private static final class CollisionNode extends Node {
+    private final int hash;
+    private final Object[] array;
+
+    CollisionNode(int hash, Object[] array) {
+      this.hash = hash;
+      this.array = array;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Object get(Object key, int hash, int shift) {
+      if (hash != this.hash) {
+        return null;
+      }
+      int i = indexOf(key);
+      return i < 0 ? null : array[i + 1];
+    }
+
+    @Override
+    Node with(Object key, Object value, int hash, int shift) {
+      if (hash != this.hash) {
+        return new BitmapNode(BitmapNode.bit(this.hash, shift), new Object[] {null, this})
+            .with(key, value, hash, shift);
+      }
+      int i = indexOf(key);
+      if (i < 0) {
+        Object[] array = Arrays.copyOf(this.array, this.array.length + 2);
+        array[this.array.length] = key;
+        array[this.array.length + 1] = value;
+        return new CollisionNode(hash, array);
+      }
+      if (array[i + 1] == value) {
+        return this;
+      }
+      Object[] array = this.array.clone();
+      array[i + 1] = value;
+      return new CollisionNode(hash, array);
+    }
+
+    @Override
+    Node without(Object key, int hash, int shift) {
+      int i = hash == this.hash ? indexOf(key) : -1;
+      if (i < 0) {
+        return this;
+      }
+      if (array.length == 2) {
+        return null;
+      }
+      Object[] array = new Object[this.array.length - 2];
+      System.arraycopy(this.array, 0, array, 0, i);
+      System.arraycopy(this.array, i + 2, array, i, array.length - i);
+      return new CollisionNode(hash, array);
+    }
+
+    @Override
+    void forEach(BiConsumer<Object, Object> action) {
+      for (int i = 0; i < array.length; i += 2) {
+        action.accept(array[i], array[i + 1]);
+      }
+    }
+  }
+}
@@ -23,11 +23,14 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ascii;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableClassToInstanceMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.CodeTransformer;
 import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.FusibleCodeTransformer;
 import com.google.errorprone.SubContext;
 import com.sun.source.util.TreePath;
 import com.sun.tools.javac.code.Symbol.PackageSymbol;
@@ -50,7 +53,7 @@ import javax.tools.JavaFileManager;
  */
 @AutoValue
 public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M>>
-    implements CodeTransformer, Serializable {
+    implements FusibleCodeTransformer, Serializable {
   public static RefasterRule<?, ?> create(
       String qualifiedTemplateClass,
       Collection<? extends Template<?>> beforeTemplates,
@@ -115,11 +118,32 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
   @Override
   public abstract ImmutableClassToInstanceMap<Annotation> annotations();
 
+  private final transient Supplier<RefasterRuleSet> ruleSet =
+      Suppliers.memoize(() -> new RefasterRuleSet(ImmutableList.of(this)));
+
+  /** Replaces a deserialized instance with a new one, whose transient fields are initialized. */
+  Object readResolve() {
+    return create(
+        qualifiedTemplateClass(),
+        typeVariables(),
+        beforeTemplates(),
+        afterTemplates(),
+        annotations());
+  }
+
   @Override
   public void apply(TreePath path, Context context, DescriptionListener listener) {
-    RefasterScanner.create(this, listener)
-        .scan(
-            path.getLeaf(), prepareContext(context, (JCCompilationUnit) path.getCompilationUnit()));
+    ruleSet.get().apply(path, context, listener);
+  }
+
+  /** Fuses the given rules into one transformer that applies them all in a single pass. */
+  @Override
+  public CodeTransformer fuse(ImmutableList<CodeTransformer> transformers) {
+    ImmutableList.Builder<RefasterRule<?, ?>> rules = ImmutableList.builder();
+    for (CodeTransformer transformer : transformers) {
+      rules.add((RefasterRule<?, ?>) transformer);
+    }
+    return new RefasterRuleSet(rules.build());
   }
 
   boolean rejectMatchesWithComments() {
@@ -128,7 +152,7 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
 
   static final Context.Key<ImmutableList<UTypeVar>> RULE_TYPE_VARS = new Context.Key<>();
 
-  private Context prepareContext(Context baseContext, JCCompilationUnit compilationUnit) {
+  Context prepareContext(Context baseContext, JCCompilationUnit compilationUnit) {
     Context context = new SubContext(baseContext);
     if (context.get(JavaFileManager.class) == null) {
       JavacFileManager.preRegister(context);
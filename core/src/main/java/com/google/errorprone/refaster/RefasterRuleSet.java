@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.DescriptionListener;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+/**
+ * {@link RefasterRule}s that are applied together, in a single pass over the tree.
+ *
+ * <p>The before templates of every rule are indexed by their {@link TemplateRoot}s, so each tree is
+ * only offered to the templates that could match it. The descriptions are reported in the same
+ * order as if each rule had been applied in turn.
+ */
+final class RefasterRuleSet implements CodeTransformer {
+  /** A before template, and the rule that declares it. */
+  static final class Candidate<M extends TemplateMatch, T extends Template<M>> {
+    /** The index of the rule in {@link RefasterRuleSet#rules}. */
+    final int ruleIndex;
+
+    final RefasterRule<M, T> rule;
+    final T template;
+
+    Candidate(int ruleIndex, RefasterRule<M, T> rule, T template) {
+      this.ruleIndex = ruleIndex;
+      this.rule = rule;
+      this.template = template;
+    }
+  }
+
+  private final ImmutableList<RefasterRule<?, ?>> rules;
+  private final TemplateRoot.Index<Candidate<?, ?>> candidates;
+  private final ImmutableListMultimap<String, Integer> rulesByTemplateClass;
+
+  RefasterRuleSet(List<? extends RefasterRule<?, ?>> rules) {
+    this.rules = ImmutableList.copyOf(rules);
+    ImmutableList.Builder<Candidate<?, ?>> candidates = ImmutableList.builder();
+    ImmutableListMultimap.Builder<String, Integer> rulesByTemplateClass =
+        ImmutableListMultimap.builder();
+    for (int i = 0; i < this.rules.size(); i++) {
+      addCandidates(i, this.rules.get(i), candidates);
+      rulesByTemplateClass.put(this.rules.get(i).qualifiedTemplateClass(), i);
+    }
+    this.candidates = new TemplateRoot.Index<>(candidates.build(), c -> c.template.root());
+    this.rulesByTemplateClass = rulesByTemplateClass.build();
+  }
+
+  private static <M extends TemplateMatch, T extends Template<M>> void addCandidates(
+      int ruleIndex, RefasterRule<M, T> rule, ImmutableList.Builder<Candidate<?, ?>> candidates) {
+    for (T template : rule.beforeTemplates()) {
+      candidates.add(new Candidate<>(ruleIndex, rule, template));
+    }
+  }
+
+  ImmutableList<RefasterRule<?, ?>> rules() {
+    return rules;
+  }
+
+  /**
+   * Returns the before templates that could match the given tree, grouped by rule in the order of
+   * {@link #rules}, and in the order they were declared within each rule.
+   */
+  ImmutableList<Candidate<?, ?>> candidatesFor(Tree tree) {
+    return candidates.get(tree);
+  }
+
+  /** Returns the indices of the rules declared by the class with the given name. */
+  ImmutableList<Integer> rulesDeclaredBy(String qualifiedClassName) {
+    return rulesByTemplateClass.get(qualifiedClassName);
+  }
+
+  @Override
+  public void apply(TreePath path, Context context, DescriptionListener listener) {
+    RefasterScanner scanner =
+        new RefasterScanner(this, context, (JCCompilationUnit) path.getCompilationUnit(), listener);
+    scanner.scan(path.getLeaf(), null);
+    scanner.flush();
+  }
+
+  @Override
+  public ImmutableClassToInstanceMap<Annotation> annotations() {
+    return ImmutableClassToInstanceMap.of();
+  }
+}
@@ -16,7 +16,7 @@
 
 package com.google.errorprone.refaster;
 
-import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.DescriptionListener;
 import com.google.errorprone.fixes.SuggestedFix;
@@ -43,82 +43,150 @@ import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.ListBuffer;
 import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Scanner that outputs suggested fixes generated by a {@code RefasterMatcher}.
+ * Scanner that outputs suggested fixes generated by the rules of a {@link RefasterRuleSet}.
+ *
+ * <p>The descriptions of the first rule are reported as soon as they are found. Those of the other
+ * rules are buffered until {@link #flush}, so that they are reported in the same order as if each
+ * rule had been applied in turn.
  *
  * @author lowasser@google.com (Louis Wasserman)
  */
-@AutoValue
-abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
-    extends TreeScanner<Void, Context> {
-  static <M extends TemplateMatch, T extends Template<M>> RefasterScanner<M, T> create(
-      RefasterRule<M, T> rule, DescriptionListener listener) {
-    return new AutoValue_RefasterScanner<>(rule, listener);
-  }
+final class RefasterScanner extends TreeScanner<Void, Void> {
+  private final RefasterRuleSet ruleSet;
+  private final Context context;
+  private final JCCompilationUnit compilationUnit;
+  private final DescriptionListener listener;
 
-  abstract RefasterRule<M, T> rule();
+  /** The context of each rule, prepared when a tree is first offered to one of its templates. */
+  private final Context[] ruleContexts;
 
-  abstract DescriptionListener listener();
+  /** The descriptions reported by each rule but the first, in the order they were found. */
+  private final List<List<Description>> buffered;
+
+  /**
+   * The number of enclosing classes that declare each rule. Rules aren't applied to their own
+   * templates.
+   */
+  private final int[] suppressions;
+
+  /** The number of rules with no suppressions. */
+  private int activeRules;
+
+  RefasterScanner(
+      RefasterRuleSet ruleSet,
+      Context context,
+      JCCompilationUnit compilationUnit,
+      DescriptionListener listener) {
+    this.ruleSet = ruleSet;
+    this.context = context;
+    this.compilationUnit = compilationUnit;
+    this.listener = listener;
+    int rules = ruleSet.rules().size();
+    this.ruleContexts = new Context[rules];
+    this.buffered = new ArrayList<>(rules);
+    for (int i = 0; i < rules; i++) {
+      buffered.add(new ArrayList<>());
+    }
+    this.suppressions = new int[rules];
+    this.activeRules = rules;
+  }
+
+  /** Reports the buffered descriptions. */
+  void flush() {
+    for (List<Description> descriptions : buffered) {
+      descriptions.forEach(listener::onDescribed);
+      descriptions.clear();
+    }
+  }
 
   @Override
-  public Void visitClass(ClassTree node, Context context) {
+  public Void visitClass(ClassTree node, Void v) {
     Symbol sym = ASTHelpers.getSymbol(node);
-    if (sym == null || !sym.getQualifiedName().contentEquals(rule().qualifiedTemplateClass())) {
+    ImmutableList<Integer> declared =
+        sym == null
+            ? ImmutableList.of()
+            : ruleSet.rulesDeclaredBy(sym.getQualifiedName().toString());
+    for (int rule : declared) {
+      if (suppressions[rule]++ == 0) {
+        activeRules--;
+      }
+    }
+    if (activeRules > 0) {
       ListBuffer<JCStatement> statements = new ListBuffer<>();
       for (Tree tree : node.getMembers()) {
         if (tree instanceof JCStatement) {
           statements.append((JCStatement) tree);
         } else {
-          tree.accept(this, context);
+          tree.accept(this, null);
         }
       }
-      scan(TreeMaker.instance(context).Block(0, statements.toList()), context);
+      scan(TreeMaker.instance(context).Block(0, statements.toList()), null);
+    }
+    for (int rule : declared) {
+      if (--suppressions[rule] == 0) {
+        activeRules++;
+      }
     }
     return null;
   }
 
   @Override
-  public Void scan(Tree tree, Context context) {
+  public Void scan(Tree tree, Void v) {
     if (tree == null) {
       return null;
     }
-    JCCompilationUnit compilationUnit = context.get(JCCompilationUnit.class);
-    for (T beforeTemplate : rule().beforeTemplates()) {
-      matchLoop:
-      for (M match : beforeTemplate.match((JCTree) tree, context)) {
-        if (rule().rejectMatchesWithComments()) {
-          String matchContents = match.getRange(compilationUnit);
-          JavaTokenizer tokenizer =
-              new JavaTokenizer(
-                  ScannerFactory.instance(context), CharBuffer.wrap(matchContents)) {};
-          for (Token token = tokenizer.readToken();
-              token.kind != TokenKind.EOF;
-              token = tokenizer.readToken()) {
-            if (token.comments != null && !token.comments.isEmpty()) {
-              continue matchLoop;
-            }
+    for (RefasterRuleSet.Candidate<?, ?> candidate : ruleSet.candidatesFor(tree)) {
+      if (suppressions[candidate.ruleIndex] == 0) {
+        describeMatches(candidate, tree);
+      }
+    }
+    return super.scan(tree, v);
+  }
+
+  private <M extends TemplateMatch, T extends Template<M>> void describeMatches(
+      RefasterRuleSet.Candidate<M, T> candidate, Tree tree) {
+    RefasterRule<M, T> rule = candidate.rule;
+    Context ruleContext = ruleContexts[candidate.ruleIndex];
+    if (ruleContext == null) {
+      ruleContext = rule.prepareContext(context, compilationUnit);
+      ruleContexts[candidate.ruleIndex] = ruleContext;
+    }
+    matchLoop:
+    for (M match : candidate.template.match((JCTree) tree, ruleContext)) {
+      if (rule.rejectMatchesWithComments()) {
+        String matchContents = match.getRange(compilationUnit);
+        JavaTokenizer tokenizer =
+            new JavaTokenizer(
+                ScannerFactory.instance(ruleContext), CharBuffer.wrap(matchContents)) {};
+        for (Token token = tokenizer.readToken();
+            token.kind != TokenKind.EOF;
+            token = tokenizer.readToken()) {
+          if (token.comments != null && !token.comments.isEmpty()) {
+            continue matchLoop;
           }
         }
-        Description.Builder builder =
-            Description.builder(
-                match.getLocation(),
-                rule().qualifiedTemplateClass(),
-                "",
-                SeverityLevel.WARNING,
-                "");
-
-        if (rule().afterTemplates().isEmpty()) {
-          builder.addFix(SuggestedFix.prefixWith(match.getLocation(), "/* match found */ "));
-        } else {
-          for (T afterTemplate : rule().afterTemplates()) {
-            builder.addFix(afterTemplate.replace(match));
-          }
+      }
+      Description.Builder builder =
+          Description.builder(
+              match.getLocation(), rule.qualifiedTemplateClass(), "", SeverityLevel.WARNING, "");
+
+      if (rule.afterTemplates().isEmpty()) {
+        builder.addFix(SuggestedFix.prefixWith(match.getLocation(), "/* match found */ "));
+      } else {
+        for (T afterTemplate : rule.afterTemplates()) {
+          builder.addFix(afterTemplate.replace(match));
         }
-        listener().onDescribed(builder.build());
+      }
+      if (candidate.ruleIndex == 0) {
+        listener.onDescribed(builder.build());
+      } else {
+        buffered.get(candidate.ruleIndex).add(builder.build());
       }
     }
-    return super.scan(tree, context);
   }
 
   private static final SimpleTreeVisitor<Tree, Void> SKIP_PARENS =
@@ -140,31 +208,31 @@ abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
    */
 
   @Override
-  public Void visitDoWhileLoop(DoWhileLoopTree node, Context context) {
-    scan(node.getStatement(), context);
-    scan(SKIP_PARENS.visit(node.getCondition(), null), context);
+  public Void visitDoWhileLoop(DoWhileLoopTree node, Void v) {
+    scan(node.getStatement(), v);
+    scan(SKIP_PARENS.visit(node.getCondition(), null), v);
     return null;
   }
 
   @Override
-  public Void visitWhileLoop(WhileLoopTree node, Context context) {
-    scan(SKIP_PARENS.visit(node.getCondition(), null), context);
-    scan(node.getStatement(), context);
+  public Void visitWhileLoop(WhileLoopTree node, Void v) {
+    scan(SKIP_PARENS.visit(node.getCondition(), null), v);
+    scan(node.getStatement(), v);
     return null;
   }
 
   @Override
-  public Void visitSynchronized(SynchronizedTree node, Context context) {
-    scan(SKIP_PARENS.visit(node.getExpression(), null), context);
-    scan(node.getBlock(), context);
+  public Void visitSynchronized(SynchronizedTree node, Void v) {
+    scan(SKIP_PARENS.visit(node.getExpression(), null), v);
+    scan(node.getBlock(), v);
     return null;
   }
 
   @Override
-  public Void visitIf(IfTree node, Context context) {
-    scan(SKIP_PARENS.visit(node.getCondition(), null), context);
-    scan(node.getThenStatement(), context);
-    scan(node.getElseStatement(), context);
+  public Void visitIf(IfTree node, Void v) {
+    scan(SKIP_PARENS.visit(node.getCondition(), null), v);
+    scan(node.getThenStatement(), v);
+    scan(node.getElseStatement(), v);
     return null;
   }
 }
@@ -97,6 +97,14 @@ public abstract class Template<M extends TemplateMatch> implements Serializable
 
   public abstract Iterable<M> match(JCTree tree, Context context);
 
+  /**
+   * Returns a necessary condition on the trees {@link #match} can match, which is cheap to check
+   * before attempting to unify a tree with this template.
+   */
+  TemplateRoot root() {
+    return TemplateRoot.ANY;
+  }
+
   public abstract Fix replace(M match);
 
   Iterable<UTypeVar> typeVariables(Context context) {
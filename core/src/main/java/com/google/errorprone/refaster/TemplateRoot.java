@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.Tree.Kind;
+import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * A cheap necessary condition on the root of the trees a {@link Template} can match: the kinds of
+ * tree it can match and, for method invocations, the names of the methods it can match.
+ *
+ * <p>Roots are derived conservatively from the template's structure. Whenever a part of a template
+ * could unify with trees of arbitrary kinds (e.g. a placeholder or a free identifier), the root
+ * places no constraint on it.
+ */
+@AutoValue
+abstract class TemplateRoot {
+  static final TemplateRoot ANY = create(ImmutableSet.of(), ImmutableSet.of());
+
+  private static TemplateRoot create(ImmutableSet<Kind> kinds, ImmutableSet<String> methodNames) {
+    return new AutoValue_TemplateRoot(kinds, methodNames);
+  }
+
+  static TemplateRoot of(Kind kind) {
+    return create(ImmutableSet.of(kind), ImmutableSet.of());
+  }
+
+  /** The kinds of tree that can be matched, or empty if any kind can be matched. */
+  abstract ImmutableSet<Kind> kinds();
+
+  /**
+   * The names of the methods that matched method invocations can invoke, or empty if they can
+   * invoke any method. Only applies to trees of kind {@link Kind#METHOD_INVOCATION}.
+   */
+  abstract ImmutableSet<String> methodNames();
+
+  /** Returns the root of the trees the given template expression can match. */
+  static TemplateRoot of(UExpression expression) {
+    if (expression instanceof UMethodInvocation) {
+      return methodNameOf(((UMethodInvocation) expression).getMethodSelect())
+          .map(name -> create(ImmutableSet.of(Kind.METHOD_INVOCATION), ImmutableSet.of(name)))
+          .orElse(of(Kind.METHOD_INVOCATION));
+    } else if (expression instanceof UBinary
+        || expression instanceof UUnary
+        || expression instanceof UNewClass) {
+      return of(expression.getKind());
+    } else if (expression instanceof UAnyOf) {
+      // anyOf strips the parentheses around the target before unifying it with its alternatives.
+      ImmutableSet.Builder<Kind> kinds = ImmutableSet.<Kind>builder().add(Kind.PARENTHESIZED);
+      ImmutableSet.Builder<String> methodNames = ImmutableSet.builder();
+      boolean anyMethod = false;
+      for (UExpression alternative : ((UAnyOf) expression).expressions()) {
+        TemplateRoot root = of(alternative);
+        if (root.kinds().isEmpty()) {
+          return ANY;
+        }
+        kinds.addAll(root.kinds());
+        if (root.kinds().contains(Kind.METHOD_INVOCATION)) {
+          anyMethod |= root.methodNames().isEmpty();
+          methodNames.addAll(root.methodNames());
+        }
+      }
+      return create(kinds.build(), anyMethod ? ImmutableSet.of() : methodNames.build());
+    }
+    return ANY;
+  }
+
+  private static Optional<String> methodNameOf(UExpression methodSelect) {
+    if (methodSelect instanceof UMemberSelect) {
+      return Optional.of(((UMemberSelect) methodSelect).getIdentifier().contents());
+    } else if (methodSelect instanceof UStaticIdent) {
+      return Optional.of(((UStaticIdent) methodSelect).getName().contents());
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the name of the method invoked by the given tree, as written in the source, or null if
+   * it can't be determined syntactically.
+   */
+  @Nullable
+  static String methodNameOf(JCMethodInvocation tree) {
+    if (tree.meth instanceof JCFieldAccess) {
+      return ((JCFieldAccess) tree.meth).name.toString();
+    } else if (tree.meth instanceof JCIdent) {
+      return ((JCIdent) tree.meth).name.toString();
+    }
+    return null;
+  }
+
+  /**
+   * Templates indexed by their roots. Looking up a tree returns, in their original order, the
+   * templates whose roots allow them to match it.
+   *
+   * @param <T> the type of the indexed entries, each of which stands for one template
+   */
+  static final class Index<T> {
+    private final ImmutableList<T> anyKind;
+    private final ImmutableMap<Kind, ImmutableList<T>> byKind;
+    private final ImmutableList<T> anyMethodName;
+    private final ImmutableMap<String, ImmutableList<T>> byMethodName;
+
+    /** Indexes the given entries by the roots of the templates they stand for. */
+    Index(List<T> templates, Function<? super T, TemplateRoot> root) {
+      ImmutableList<TemplateRoot> roots = templates.stream().map(root).collect(toImmutableList());
+      anyKind = select(templates, roots, r -> r.kinds().isEmpty());
+
+      ImmutableMap.Builder<Kind, ImmutableList<T>> byKind = ImmutableMap.builder();
+      roots.stream()
+          .flatMap(r -> r.kinds().stream())
+          .distinct()
+          .forEach(
+              kind ->
+                  byKind.put(
+                      kind,
+                      select(
+                          templates, roots, r -> r.kinds().isEmpty() || r.kinds().contains(kind))));
+      this.byKind = byKind.build();
+
+      Predicate<TemplateRoot> anyMethod =
+          r ->
+              r.kinds().isEmpty()
+                  || (r.kinds().contains(Kind.METHOD_INVOCATION) && r.methodNames().isEmpty());
+      anyMethodName = select(templates, roots, anyMethod);
+      ImmutableMap.Builder<String, ImmutableList<T>> byMethodName = ImmutableMap.builder();
+      roots.stream()
+          .flatMap(r -> r.methodNames().stream())
+          .distinct()
+          .forEach(
+              name ->
+                  byMethodName.put(
+                      name,
+                      select(
+                          templates,
+                          roots,
+                          anyMethod.or(
+                              r ->
+                                  r.kinds().contains(Kind.METHOD_INVOCATION)
+                                      && r.methodNames().contains(name)))));
+      this.byMethodName = byMethodName.build();
+    }
+
+    private static <T> ImmutableList<T> select(
+        List<T> templates, List<TemplateRoot> roots, Predicate<TemplateRoot> predicate) {
+      ImmutableList.Builder<T> result = ImmutableList.builder();
+      for (int i = 0; i < templates.size(); i++) {
+        if (predicate.test(roots.get(i))) {
+          result.add(templates.get(i));
+        }
+      }
+      return result.build();
+    }
+
+    /** Returns the templates that could match the given tree. */
+    ImmutableList<T> get(Tree tree) {
+      if (tree instanceof JCMethodInvocation && !byMethodName.isEmpty()) {
+        String name = methodNameOf((JCMethodInvocation) tree);
+        if (name != null) {
+          return byMethodName.getOrDefault(name, anyMethodName);
+        }
+      }
+      return byKind.getOrDefault(tree.getKind(), anyKind);
+    }
+  }
+}
@@ -19,7 +19,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.errorprone.SubContext;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Types;
 import com.sun.tools.javac.tree.JCTree;
@@ -47,13 +46,16 @@ public final class Unifier {
   }
 
   private Unifier(Context context, Bindings bindings) {
-    this.context = new SubContext(context);
+    this.context = context;
     this.bindings = Bindings.create(bindings);
   }
 
   /**
    * Returns a {@code Unifier} containing all the bindings from this {@code Unifier}, but which can
    * succeed or fail independently of this {@code Unifier}.
+   *
+   * <p>Forking is cheap: the fork shares this unifier's context, and shares its bindings until
+   * either of them is modified.
    */
   public Unifier fork() {
     return new Unifier(context, bindings);
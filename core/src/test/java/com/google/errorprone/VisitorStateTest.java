@@ -16,8 +16,30 @@
 
 package com.google.errorprone;
 
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.errorprone.FileObjects.forSourceLines;
+import static org.junit.Assert.assertThrows;
 
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.ErrorProneTimings.CacheCounters;
+import com.google.errorprone.SuppressionInfo.SuppressedState;
+import com.google.errorprone.suppliers.Supplier;
+import com.google.errorprone.util.ErrorProneToken;
+import com.google.errorprone.util.ErrorProneTokens;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -51,4 +73,143 @@ public class VisitorStateTest {
     assertThat(VisitorState.inferBinaryName("com.google.RegularClass.Nested"))
         .isEqualTo("com.google.RegularClass$Nested");
   }
+
+  @Test
+  public void symbolCache_sharedAcrossVisitorStates() throws IOException {
+    Context context = newContext();
+    VisitorState first = VisitorState.createForUtilityPurposes(context);
+    VisitorState second = VisitorState.createForUtilityPurposes(context);
+
+    Type type = first.getTypeFromString("java.lang.Object");
+    assertThat(type).isNotNull();
+    assertThat(second.getTypeFromString("java.lang.Object")).isSameInstanceAs(type);
+    assertThat(second.getTypeFromString("does.not.Exist")).isNull();
+    assertThat(first.getTypeFromString("does.not.Exist")).isNull();
+
+    CacheCounters counters = ErrorProneTimings.instance(context).cacheCounters("symbols");
+    assertThat(counters.hits()).isEqualTo(1);
+    assertThat(counters.misses()).isEqualTo(3);
+  }
+
+  @Test
+  public void memoize_keepsValuesForTheInvocation() throws IOException {
+    AtomicInteger computations = new AtomicInteger();
+    Supplier<Object> supplier =
+        VisitorState.memoize(
+            state -> {
+              computations.incrementAndGet();
+              return new Object();
+            });
+    Context context = newContext();
+    Object value = supplier.get(VisitorState.createForUtilityPurposes(context));
+
+    assertThat(supplier.get(VisitorState.createForUtilityPurposes(context)))
+        .isSameInstanceAs(value);
+    assertThat(computations.get()).isEqualTo(1);
+
+    // The invocation still holds on to the value once the cache's own reference is gone.
+    VisitorState.clearWeakReference(supplier);
+    assertThat(supplier.get(VisitorState.createForUtilityPurposes(context)))
+        .isSameInstanceAs(value);
+
+    assertThat(supplier.get(VisitorState.createForUtilityPurposes(newContext())))
+        .isNotSameInstanceAs(value);
+  }
+
+  @Test
+  public void cursor_movesInPlace() throws IOException {
+    VisitorState state = parse("class A {}", "class B {}");
+    CompilationUnitTree unit = state.getPath().getCompilationUnit();
+    TreePath a = new TreePath(new TreePath(unit), unit.getTypeDecls().get(0));
+    TreePath b = new TreePath(new TreePath(unit), unit.getTypeDecls().get(1));
+
+    VisitorState cursor = state.cursor();
+    assertThat(cursor.cursor()).isSameInstanceAs(cursor);
+    assertThat(cursor.moveTo(a)).isSameInstanceAs(cursor);
+    VisitorState snapshot = cursor.snapshot();
+    cursor.moveTo(b).setSuppression(SuppressedState.SUPPRESSED);
+
+    assertThat(cursor.getPath()).isSameInstanceAs(b);
+    assertThat(snapshot.getPath()).isSameInstanceAs(a);
+    assertThat(snapshot.snapshot()).isSameInstanceAs(snapshot);
+    assertThat(cursor.withSuppression(SuppressedState.SUPPRESSED)).isNotSameInstanceAs(cursor);
+    assertThrows(IllegalStateException.class, () -> snapshot.moveTo(b));
+    assertThrows(
+        IllegalStateException.class, () -> state.setSuppression(SuppressedState.SUPPRESSED));
+  }
+
+  @Test
+  public void offsetTokens_matchLexingTheRangeOnItsOwn() throws IOException {
+    VisitorState state =
+        parse(
+            "/** Javadoc. */",
+            "class A { // trailing",
+            "  int f(int a /* a */, int b) {",
+            "    /* before */ return a // after",
+            "        + b;",
+            "  }",
+            "}",
+            "// before B",
+            "class B {}");
+    Context context = state.context;
+    String text = state.getSourceCode().toString();
+    // Ranges can start and end anywhere but inside a token or a comment.
+    BitSet inside = new BitSet();
+    for (ErrorProneToken token : ErrorProneTokens.getTokens(text, context)) {
+      inside.set(token.pos() + 1, Math.max(token.pos() + 1, token.endPos()));
+      for (Comment comment : token.comments()) {
+        int pos = comment.getSourcePos(0);
+        inside.set(pos + 1, pos + comment.getText().length());
+      }
+    }
+
+    for (int start = 0; start <= text.length(); start = inside.nextClearBit(start + 1)) {
+      for (int end = start; end <= text.length(); end = inside.nextClearBit(end + 1)) {
+        List<ErrorProneToken> expected =
+            ErrorProneTokens.getTokens(text.substring(start, end), start, context);
+        assertThat(describe(state.getOffsetTokens(start, end))).isEqualTo(describe(expected));
+      }
+    }
+  }
+
+  private static List<String> describe(List<ErrorProneToken> tokens) {
+    List<String> result = new ArrayList<>();
+    for (ErrorProneToken token : tokens) {
+      result.add(String.format("%s@%d-%d", token.kind(), token.pos(), token.endPos()));
+      for (Comment comment : token.comments()) {
+        result.add(String.format("  %s@%d", comment.getText(), comment.getSourcePos(0)));
+      }
+    }
+    return result;
+  }
+
+  /** Parses a source file, without analyzing it, and returns a state at its compilation unit. */
+  private static VisitorState parse(String... lines) throws IOException {
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                null,
+                null,
+                null,
+                ImmutableList.of(),
+                null,
+                ImmutableList.of(forSourceLines("A.java", lines)));
+    CompilationUnitTree unit = getOnlyElement(task.parse());
+    return VisitorState.createForUtilityPurposes(((BasicJavacTask) task).getContext())
+        .withPath(new TreePath(unit));
+  }
+
+  private static Context newContext() throws IOException {
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                null,
+                null,
+                null,
+                ImmutableList.of(),
+                null,
+                ImmutableList.of(forSourceLines("Test.java", "class Test {}")));
+    task.analyze();
+    return ((BasicJavacTask) task).getContext();
+  }
 }
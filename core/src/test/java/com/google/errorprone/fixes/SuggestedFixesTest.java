@@ -1248,6 +1248,41 @@ public class SuggestedFixesTest {
         .doTest();
   }
 
+  @Test
+  public void compilesWithFix_otherCompilationUnits() {
+    BugCheckerRefactoringTestHelper.newInstance(new CompilesWithFixChecker(), getClass())
+        .addInputLines(
+            "in/A.java",
+            "class A {",
+            "  int used = 0;",
+            "  private int unused = 0;",
+            "  void f() {",
+            "    B b = new B();",
+            "    int y = B.CONSTANT;",
+            "    System.err.println(b);",
+            "  }",
+            "}")
+        .addOutputLines(
+            "out/A.java",
+            "class A {",
+            "  int used = 0;",
+            "  void f() {",
+            "    B b = new B();",
+            "    System.err.println(b);",
+            "  }",
+            "}")
+        .addInputLines(
+            "in/B.java",
+            "class B {",
+            "  static final int CONSTANT = 1;",
+            "  int read(A a) {",
+            "    return a.used;",
+            "  }",
+            "}")
+        .expectUnchanged()
+        .doTest();
+  }
+
   @Test
   public void compilesWithFix_releaseFlag() {
     assumeTrue(RuntimeVersion.isAtLeast9());
@@ -16,6 +16,9 @@
 
 package com.google.errorprone.refaster;
 
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
 import com.google.common.testing.EqualsTester;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -53,4 +56,26 @@ public class BindingsTest {
         .addEqualityGroup(new OtherKey("foo"))
         .testEquals();
   }
+
+  @Test
+  public void testCopiesAreIndependent() {
+    Bindings original = Bindings.create(new Key("foo"), "a");
+    Bindings copy = Bindings.create(original);
+    copy.putBinding(new Key("bar"), "b");
+    original.putBinding(new Key("foo"), "c");
+
+    assertThat(original).containsExactly(new Key("foo"), "c");
+    assertThat(copy).containsExactly(new Key("foo"), "a", new Key("bar"), "b");
+  }
+
+  @Test
+  public void testUnmodifiableIsAView() {
+    Bindings bindings = Bindings.create();
+    Bindings unmodifiable = bindings.unmodifiable();
+    bindings.putBinding(new Key("foo"), "a");
+
+    assertThat(unmodifiable).containsExactly(new Key("foo"), "a");
+    assertThrows(UnsupportedOperationException.class, () -> unmodifiable.put(new Key("bar"), "b"));
+    assertThat(Bindings.create(unmodifiable)).isEqualTo(bindings);
+  }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link HashTrieMap}. */
+@RunWith(JUnit4.class)
+public class HashTrieMapTest {
+  /** A key whose hash code is chosen by the test, so that keys can be made to collide. */
+  private static final class HashedKey {
+    private final String name;
+    private final int hash;
+
+    HashedKey(String name, int hash) {
+      this.name = name;
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof HashedKey && ((HashedKey) obj).name.equals(name);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private static <K, V> void assertSameEntries(HashTrieMap<K, V> trie, Map<K, V> expected) {
+    assertThat(trie.size()).isEqualTo(expected.size());
+    for (Map.Entry<K, V> entry : expected.entrySet()) {
+      assertThat(trie.get(entry.getKey())).isEqualTo(entry.getValue());
+    }
+    assertThat(trie.entries()).containsExactlyElementsIn(expected.entrySet());
+  }
+
+  @Test
+  public void updatesLeaveOriginalUnchanged() {
+    HashTrieMap<String, Integer> empty = HashTrieMap.empty();
+    HashTrieMap<String, Integer> one = empty.with("a", 1);
+    HashTrieMap<String, Integer> two = one.with("b", 2);
+    HashTrieMap<String, Integer> replaced = two.with("a", 3);
+    HashTrieMap<String, Integer> removed = replaced.without("b");
+
+    assertThat(empty.size()).isEqualTo(0);
+    assertThat(one.get("a")).isEqualTo(1);
+    assertThat(one.get("b")).isNull();
+    assertThat(two.get("a")).isEqualTo(1);
+    assertThat(replaced.get("a")).isEqualTo(3);
+    assertThat(replaced.size()).isEqualTo(2);
+    assertThat(removed.get("b")).isNull();
+    assertThat(removed.size()).isEqualTo(1);
+    assertThat(removed.without("missing")).isSameInstanceAs(removed);
+    assertThat(removed.get(null)).isNull();
+  }
+
+  @Test
+  public void collidingHashes() {
+    HashedKey a = new HashedKey("a", 42);
+    HashedKey b = new HashedKey("b", 42);
+    HashedKey c = new HashedKey("c", 42);
+    HashedKey d = new HashedKey("d", 42 + (1 << 20));
+    HashTrieMap<HashedKey, String> trie =
+        HashTrieMap.<HashedKey, String>empty().with(a, "a").with(b, "b").with(d, "d").with(c, "c");
+
+    Map<HashedKey, String> expected = new HashMap<>();
+    expected.put(a, "a");
+    expected.put(b, "b");
+    expected.put(c, "c");
+    expected.put(d, "d");
+    assertSameEntries(trie, expected);
+
+    trie = trie.without(b).without(a);
+    expected.remove(b);
+    expected.remove(a);
+    assertSameEntries(trie, expected);
+    assertSameEntries(trie.without(c).without(d), new HashMap<>());
+  }
+
+  @Test
+  public void randomOperationsMatchHashMap() {
+    Random random = new Random(0);
+    HashTrieMap<HashedKey, Integer> trie = HashTrieMap.empty();
+    Map<HashedKey, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 10000; i++) {
+      int name = random.nextInt(500);
+      // Few distinct hashes, so that some keys collide and others share a prefix of their hash.
+      HashedKey key = new HashedKey(Integer.toString(name), name % 97 * 0x01010101);
+      if (random.nextInt(3) == 0) {
+        trie = trie.without(key);
+        expected.remove(key);
+      } else {
+        trie = trie.with(key, i);
+        expected.put(key, i);
+      }
+    }
+    assertSameEntries(trie, expected);
+  }
+}
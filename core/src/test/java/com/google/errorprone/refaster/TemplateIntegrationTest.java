@@ -27,11 +27,16 @@ import static org.junit.Assume.assumeFalse;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.fixes.Fix;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import java.io.IOException;
 import javax.tools.JavaFileObject;
 import org.junit.Test;
@@ -365,4 +370,54 @@ public class TemplateIntegrationTest extends CompilerBasedTest {
   public void staticImportClassToken() throws IOException {
     runTest("StaticImportClassTokenTemplate");
   }
+
+  @Test
+  public void compositeRulesReportDescriptionsInRuleOrder() throws IOException {
+    ImmutableList<String> testNames =
+        ImmutableList.of(
+            "BinaryTemplate",
+            "ParenthesesOptionalTemplate",
+            "MethodInvocationTemplate",
+            "AnyOfTemplate",
+            "VarargTemplate");
+    ImmutableList.Builder<CodeTransformer> rules = ImmutableList.builder();
+    for (String testName : testNames) {
+      rules.add(
+          extractRefasterRule(forResource(String.format("%s/%s.java", TEMPLATE_DIR, testName))));
+    }
+    CodeTransformer composite = CompositeCodeTransformer.compose(rules.build());
+
+    int described = 0;
+    for (String testName : testNames) {
+      JavaFileObject input = forResource(String.format("%s/%sExample.java", INPUT_DIR, testName));
+      ImmutableList.Builder<String> expected = ImmutableList.builder();
+      for (CodeTransformer rule : rules.build()) {
+        expected.addAll(describe(rule, input));
+      }
+      ImmutableList<String> actual = describe(composite, input);
+      assertThat(actual).containsExactlyElementsIn(expected.build()).inOrder();
+      described += actual.size();
+    }
+    assertThat(described).isGreaterThan(0);
+  }
+
+  private ImmutableList<String> describe(CodeTransformer transformer, JavaFileObject input) {
+    compile(input);
+    JCCompilationUnit compilationUnit = Iterables.getOnlyElement(compilationUnits);
+    ImmutableList.Builder<String> descriptions = ImmutableList.builder();
+    transformer.apply(
+        new TreePath(compilationUnit),
+        context,
+        description -> {
+          StringBuilder result =
+              new StringBuilder(description.checkName)
+                  .append('@')
+                  .append(description.position.getStartPosition());
+          for (Fix fix : description.fixes) {
+            result.append(": ").append(fix.toString(compilationUnit));
+          }
+          descriptions.add(result.toString());
+        });
+    return descriptions.build();
+  }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.sun.source.tree.Tree.Kind;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link TemplateRoot}. */
+@RunWith(JUnit4.class)
+public class TemplateRootTest extends AbstractUTreeTest {
+  private static final UType INT_TO_INT =
+      UMethodType.create(UPrimitiveType.INT, UPrimitiveType.INT);
+
+  private static ExpressionTemplate template(UExpression expression) {
+    return ExpressionTemplate.create(expression, UPrimitiveType.INT);
+  }
+
+  private static ExpressionTemplate invocation(String name) {
+    return template(
+        UMethodInvocation.create(
+            UMemberSelect.create(UFreeIdent.create("x"), name, INT_TO_INT),
+            UFreeIdent.create("y")));
+  }
+
+  @Test
+  public void roots() {
+    assertThat(invocation("foo").root().kinds()).containsExactly(Kind.METHOD_INVOCATION);
+    assertThat(invocation("foo").root().methodNames()).containsExactly("foo");
+    assertThat(
+            TemplateRoot.of(
+                    UBinary.create(Kind.PLUS, UFreeIdent.create("a"), UFreeIdent.create("b")))
+                .kinds())
+        .containsExactly(Kind.PLUS);
+    assertThat(template(UFreeIdent.create("a")).root()).isEqualTo(TemplateRoot.ANY);
+    assertThat(
+            TemplateRoot.of(
+                UAnyOf.create(
+                    invocation("foo").expression(),
+                    UUnary.create(Kind.UNARY_MINUS, UFreeIdent.create("a")))))
+        .isNotEqualTo(TemplateRoot.ANY);
+    assertThat(
+            TemplateRoot.of(UAnyOf.create(invocation("foo").expression(), UFreeIdent.create("a"))))
+        .isEqualTo(TemplateRoot.ANY);
+  }
+
+  @Test
+  public void index() {
+    ExpressionTemplate foo = invocation("foo");
+    ExpressionTemplate bar = invocation("bar");
+    ExpressionTemplate any = template(UFreeIdent.create("a"));
+    ExpressionTemplate plus =
+        template(UBinary.create(Kind.PLUS, UFreeIdent.create("a"), UFreeIdent.create("b")));
+    TemplateRoot.Index<ExpressionTemplate> index =
+        new TemplateRoot.Index<>(ImmutableList.of(foo, any, bar, plus), Template::root);
+
+    assertThat(index.get(parseExpression("x.foo(1)"))).containsExactly(foo, any).inOrder();
+    assertThat(index.get(parseExpression("bar(1)"))).containsExactly(any, bar).inOrder();
+    assertThat(index.get(parseExpression("x.baz(1)"))).containsExactly(any);
+    assertThat(index.get(parseExpression("1 + 2"))).containsExactly(any, plus).inOrder();
+    assertThat(index.get(parseExpression("1 - 2"))).containsExactly(any);
+  }
+}
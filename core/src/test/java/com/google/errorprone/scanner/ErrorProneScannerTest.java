@@ -0,0 +1,292 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.scanner;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
+import static com.google.errorprone.FileObjects.forSourceLines;
+import static com.google.errorprone.matchers.Description.NO_MATCH;
+import static com.google.errorprone.matchers.method.MethodMatchers.constructor;
+import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
+import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.BinaryTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IdentifierTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationRules;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.NewClassTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ErrorProneScanner}. */
+@RunWith(JUnit4.class)
+public class ErrorProneScannerTest {
+
+  @Test
+  public void matcherCountsByKind() {
+    ErrorProneScanner scanner =
+        new ErrorProneScanner(new IdentifierAndBinaryChecker(), new BinaryChecker());
+
+    assertThat(scanner.matcherCountsByKind()).containsEntry(Tree.Kind.IDENTIFIER, 1);
+    assertThat(scanner.matcherCountsByKind()).containsEntry(Tree.Kind.PLUS, 2);
+    assertThat(scanner.matcherCountsByKind()).containsEntry(Tree.Kind.CONDITIONAL_AND, 2);
+    assertThat(scanner.matcherCountsByKind()).doesNotContainKey(Tree.Kind.METHOD_INVOCATION);
+    assertThat(scanner.matcherCountsByKind()).doesNotContainKey(Tree.Kind.MEMBER_SELECT);
+  }
+
+  @Test
+  public void dispatchesByKind() {
+    CompilationTestHelper.newInstance(BinaryChecker.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  int f(int a, int b) {",
+            "    // BUG: Diagnostic contains: BinaryChecker",
+            "    int c = a + b;",
+            "    // BUG: Diagnostic contains: BinaryChecker",
+            "    return c * 2;",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void dispatchesMethodInvocationsByRule() {
+    CompilationTestHelper.newInstance(StringValueOfChecker.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  void f() {",
+            "    // BUG: Diagnostic contains: StringValueOfChecker",
+            "    String.valueOf(1);",
+            "    Integer.valueOf(1);",
+            "    \"a\".length();",
+            "    // BUG: Diagnostic contains: StringValueOfChecker",
+            "    new StringBuilder();",
+            "    new Object();",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  private JavacTask task;
+
+  /** Parses and attributes a single compilation unit made of the given lines. */
+  private CompilationUnitTree analyze(String... lines) throws IOException {
+    task =
+        JavacTool.create()
+            .getTask(
+                null,
+                null,
+                null,
+                ImmutableList.of(),
+                null,
+                ImmutableList.of(forSourceLines("Test.java", lines)));
+    CompilationUnitTree unit = getOnlyElement(task.parse());
+    task.analyze();
+    return unit;
+  }
+
+  @Test
+  public void skipsSubtreesWhereEveryCheckIsSuppressed() throws IOException {
+    CompilationUnitTree unit =
+        analyze(
+            "class Test {",
+            "  int f(int a) {",
+            "    return a;",
+            "  }",
+            "  @SuppressWarnings(\"IdentifierAndBinaryChecker\")",
+            "  int g(int b) {",
+            "    return b;",
+            "  }",
+            "  @SuppressWarnings(\"unchecked\")",
+            "  int h(int c) {",
+            "    return c;",
+            "  }",
+            "}");
+    Context context = ((BasicJavacTask) task).getContext();
+    List<String> identifiers = new ArrayList<>();
+    ErrorProneScanner scanner =
+        new ErrorProneScanner(new IdentifierAndBinaryChecker()) {
+          @Override
+          public Void visitIdentifier(IdentifierTree tree, VisitorState state) {
+            identifiers.add(tree.getName().toString());
+            return super.visitIdentifier(tree, state);
+          }
+        };
+
+    scanner.scan(new TreePath(unit), VisitorState.createForUtilityPurposes(context));
+
+    assertThat(identifiers).containsExactly("a", "SuppressWarnings", "value", "c").inOrder();
+    assertThat(ErrorProneTimings.instance(context).prunedSubtrees())
+        .containsExactly(Tree.Kind.METHOD, 1L);
+  }
+
+  @Test
+  public void indexesRulesNamingNestedClassesByBinaryName() throws IOException {
+    CompilationUnitTree unit =
+        analyze(
+            "import java.util.AbstractMap;",
+            "class Test {",
+            "  void f(AbstractMap.SimpleEntry<String, String> e) {",
+            "    e.getKey();",
+            "    e.getValue();",
+            "  }",
+            "}");
+    List<MethodInvocationTree> invocations = new ArrayList<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+        // Skip the implicit super() call of the default constructor.
+        if (tree.getMethodSelect().getKind() == Tree.Kind.MEMBER_SELECT) {
+          invocations.add(tree);
+        }
+        return super.visitMethodInvocation(tree, null);
+      }
+    }.scan(unit, null);
+    VisitorState state =
+        VisitorState.createForUtilityPurposes(((BasicJavacTask) task).getContext());
+
+    MethodInvocationIndex index =
+        MethodInvocationIndex.create(ImmutableList.of(new SimpleEntryGetKeyChecker()));
+
+    assertThat(index.candidates(invocations.get(0), state).get(0)).isTrue();
+    assertThat(index.candidates(invocations.get(1), state).get(0)).isFalse();
+  }
+
+  @Test
+  public void matchersCanKeepTheirState() throws IOException {
+    CompilationUnitTree unit =
+        analyze(
+            "class Test {", //
+            "  int f(int a, int b) {",
+            "    return a + b;",
+            "  }",
+            "}");
+    StateKeepingChecker checker = new StateKeepingChecker();
+
+    new ErrorProneScanner(checker)
+        .scan(
+            new TreePath(unit),
+            VisitorState.createForUtilityPurposes(((BasicJavacTask) task).getContext()));
+
+    assertThat(checker.trees).hasSize(2);
+    for (int i = 0; i < checker.trees.size(); i++) {
+      assertThat(checker.states.get(i).getPath().getLeaf()).isSameInstanceAs(checker.trees.get(i));
+    }
+  }
+
+  /** Declares a rule naming a nested class by its binary name. */
+  @BugPattern(name = "SimpleEntryGetKeyChecker", summary = "", severity = WARNING)
+  public static class SimpleEntryGetKeyChecker extends BugChecker
+      implements MethodInvocationTreeMatcher, MethodInvocationRules {
+    @Override
+    public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+      return ImmutableList.of(
+          instanceMethod().onExactClass("java.util.AbstractMap$SimpleEntry").named("getKey"));
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+
+  /** Keeps the state of every identifier it matches. */
+  @BugPattern(name = "StateKeepingChecker", summary = "", severity = WARNING)
+  public static class StateKeepingChecker extends BugChecker implements IdentifierTreeMatcher {
+    final List<Tree> trees = new ArrayList<>();
+    final List<VisitorState> states = new ArrayList<>();
+
+    @Override
+    public Description matchIdentifier(IdentifierTree tree, VisitorState state) {
+      trees.add(tree);
+      states.add(state);
+      return NO_MATCH;
+    }
+  }
+
+  @BugPattern(name = "IdentifierAndBinaryChecker", summary = "", severity = WARNING)
+  public static class IdentifierAndBinaryChecker extends BugChecker
+      implements IdentifierTreeMatcher, BinaryTreeMatcher {
+    @Override
+    public Description matchIdentifier(IdentifierTree tree, VisitorState state) {
+      return NO_MATCH;
+    }
+
+    @Override
+    public Description matchBinary(BinaryTree tree, VisitorState state) {
+      return NO_MATCH;
+    }
+  }
+
+  /** Reports every invocation it is dispatched, relying on the scanner to filter them. */
+  @BugPattern(name = "StringValueOfChecker", summary = "", severity = WARNING)
+  public static class StringValueOfChecker extends BugChecker
+      implements MethodInvocationTreeMatcher, NewClassTreeMatcher, MethodInvocationRules {
+    @Override
+    public ImmutableList<Matcher<ExpressionTree>> methodInvocationRules() {
+      return ImmutableList.of(
+          staticMethod().onClass("java.lang.String").named("valueOf"),
+          constructor().forClass("java.lang.StringBuilder"));
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+
+    @Override
+    public Description matchNewClass(NewClassTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+
+  @BugPattern(name = "BinaryChecker", summary = "", severity = WARNING)
+  public static class BinaryChecker extends BugChecker implements BinaryTreeMatcher {
+    @Override
+    public Description matchBinary(BinaryTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+}
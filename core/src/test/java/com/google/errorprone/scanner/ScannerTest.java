@@ -99,6 +99,36 @@ public class ScannerTest {
         .doTest();
   }
 
+  @Test
+  public void suppressedInGeneratedSources() {
+    compilationHelper
+        .addSourceLines(
+            "gen/proto/Test.java",
+            "import com.google.errorprone.scanner.ScannerTest.Foo;",
+            "class Test {",
+            "  Foo foo;",
+            "}")
+        .addSourceLines(
+            "src/Other.java",
+            "import com.google.errorprone.scanner.ScannerTest.Foo;",
+            "class Other {",
+            "  // BUG: Diagnostic contains: ShouldNotUseFoo",
+            "  Foo foo;",
+            "}")
+        .addSourceLines(
+            "src/GeneratedOther.java",
+            "import com.google.errorprone.scanner.ScannerTest.Foo;",
+            "class GeneratedOther {",
+            "  Foo foo;",
+            "}")
+        .setArgs(
+            ImmutableList.of(
+                "-XepOpt:hubspot:generated-code-inspection=true",
+                "-XepOpt:hubspot:generated-sources-pattern=glob:**/gen/{proto,jooq}/**,"
+                    + "regex:.*/Generated[^/]*"))
+        .doTest();
+  }
+
   @OkToUseFoo // Foo can use itself. But this shouldn't suppress errors on *usages* of Foo.
   public static final class Foo<T> {}
 
@@ -20,6 +20,7 @@ import static com.google.errorprone.FileObjects.forResources;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
+import com.google.errorprone.CompilationTestHelper;
 import com.google.errorprone.ErrorProneTestCompiler;
 import com.google.errorprone.bugpatterns.DeadException;
 import com.google.errorprone.bugpatterns.EmptyIfStatement;
@@ -55,4 +56,32 @@ public class SuppressWarningsTest {
     List<JavaFileObject> sources = forResources(getClass(), "SuppressWarningsNegativeCases.java");
     assertThat(compiler.compile(sources), is(Result.OK));
   }
+
+  @Test
+  public void sameSuppressionsOnSeveralSymbols() {
+    CompilationTestHelper.newInstance(SelfAssignment.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  int x;",
+            "  @SuppressWarnings(\"SelfAssignment\")",
+            "  void a() {",
+            "    x = x;",
+            "  }",
+            "  @SuppressWarnings({\"unchecked\", \"SelfAssignment\"})",
+            "  void b() {",
+            "    x = x;",
+            "  }",
+            "  @SuppressWarnings(\"unchecked\")",
+            "  void c() {",
+            "    // BUG: Diagnostic contains: SelfAssignment",
+            "    x = x;",
+            "  }",
+            "  @SuppressWarnings(\"SelfAssignment\")",
+            "  void d() {",
+            "    x = x;",
+            "  }",
+            "}")
+        .doTest();
+  }
 }
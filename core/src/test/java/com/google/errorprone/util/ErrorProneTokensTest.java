@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import com.sun.tools.javac.parser.Tokens.Comment.CommentStyle;
+import com.sun.tools.javac.util.Context;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ErrorProneTokens}. */
+@RunWith(JUnit4.class)
+public class ErrorProneTokensTest {
+
+  private final Context context =
+      ((BasicJavacTask)
+              JavacTool.create()
+                  .getTask(null, null, null, ImmutableList.of(), null, ImmutableList.of()))
+          .getContext();
+
+  @Test
+  public void commentsKeepTheirRawText() {
+    String source =
+        String.join(
+            "\n",
+            "/** Javadoc with an escape: \\u0041. */",
+            "class A {",
+            "  // line",
+            "  /* block */ int x;",
+            "}");
+    List<ErrorProneToken> tokens = ErrorProneTokens.getTokens(source, context);
+
+    List<Comment> classComments = tokens.get(0).comments();
+    assertThat(classComments).hasSize(1);
+    assertThat(classComments.get(0).getText()).isEqualTo("/** Javadoc with an escape: \\u0041. */");
+    assertThat(classComments.get(0).getStyle()).isEqualTo(CommentStyle.JAVADOC);
+    assertThat(classComments.get(0).getSourcePos(0)).isEqualTo(0);
+
+    List<Comment> fieldComments = tokens.get(3).comments();
+    assertThat(fieldComments).hasSize(2);
+    assertThat(fieldComments.get(0).getText()).isEqualTo("// line");
+    assertThat(fieldComments.get(0).getStyle()).isEqualTo(CommentStyle.LINE);
+    assertThat(fieldComments.get(1).getText()).isEqualTo("/* block */");
+    assertThat(fieldComments.get(1).getSourcePos(0)).isEqualTo(source.indexOf("/* block */"));
+  }
+
+  @Test
+  public void manyComments() {
+    StringBuilder source = new StringBuilder("class A {\n");
+    for (int i = 0; i < 1000; i++) {
+      source.append("  /** Field ").append(i).append(". */\n  int f").append(i).append(";\n");
+    }
+    source.append("}\n");
+    List<ErrorProneToken> tokens = ErrorProneTokens.getTokens(source.toString(), context);
+
+    int comments = 0;
+    for (ErrorProneToken token : tokens) {
+      for (Comment comment : token.comments()) {
+        assertThat(comment.getText()).isEqualTo("/** Field " + comments + ". */");
+        comments++;
+      }
+    }
+    assertThat(comments).isEqualTo(1000);
+  }
+}
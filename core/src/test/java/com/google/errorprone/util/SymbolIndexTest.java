@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.errorprone.FileObjects.forSourceLines;
+import static com.google.errorprone.util.ASTHelpers.getSymbol;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.VisitorState;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Symbol;
+import java.io.IOException;
+import java.util.List;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SymbolIndex}. */
+@RunWith(JUnit4.class)
+public class SymbolIndexTest {
+
+  private JavacTask task;
+
+  private ImmutableList<CompilationUnitTree> compile(JavaFileObject... sources) throws IOException {
+    task =
+        JavacTool.create()
+            .getTask(null, null, null, ImmutableList.of(), null, ImmutableList.copyOf(sources));
+    ImmutableList<CompilationUnitTree> units = ImmutableList.copyOf(task.parse());
+    task.analyze();
+    return units;
+  }
+
+  private static ImmutableList<String> names(List<TreePath> paths) {
+    return paths.stream()
+        .map(p -> getSymbol(p.getLeaf()).getSimpleName().toString())
+        .collect(toImmutableList());
+  }
+
+  private static ImmutableList<Tree.Kind> kinds(List<TreePath> paths) {
+    return paths.stream().map(p -> p.getLeaf().getKind()).collect(toImmutableList());
+  }
+
+  @Test
+  public void declarationsInSourceOrder() throws IOException {
+    CompilationUnitTree unit =
+        getOnlyElement(
+            compile(
+                forSourceLines(
+                    "A.java",
+                    "class A {",
+                    "  A() {}",
+                    "  int x;",
+                    "  void f(int p) {",
+                    "    int y;",
+                    "  }",
+                    "  interface B {",
+                    "    void g();",
+                    "  }",
+                    "}")));
+
+    SymbolIndex index = SymbolIndex.create(unit);
+
+    assertThat(index.compilationUnit()).isSameInstanceAs(unit);
+    assertThat(names(index.declarations()))
+        .containsExactly("A", "<init>", "x", "f", "p", "y", "B", "g")
+        .inOrder();
+    assertThat(names(index.declarations(Tree.Kind.METHOD)))
+        .containsExactly("<init>", "f", "g")
+        .inOrder();
+    assertThat(names(index.declarations(Tree.Kind.INTERFACE))).containsExactly("B");
+  }
+
+  @Test
+  public void referencesThroughIdentifiersMemberSelectsAndMemberReferences() throws IOException {
+    CompilationUnitTree unit =
+        getOnlyElement(
+            compile(
+                forSourceLines(
+                    "A.java",
+                    "import java.util.function.IntSupplier;",
+                    "class A {",
+                    "  A() {}",
+                    "  int x;",
+                    "  int f() {",
+                    "    return x;",
+                    "  }",
+                    "  int g(A a) {",
+                    "    return a.x + this.f();",
+                    "  }",
+                    "  IntSupplier h() {",
+                    "    return this::f;",
+                    "  }",
+                    "}")));
+
+    SymbolIndex index = SymbolIndex.create(unit);
+    Symbol x = getSymbol(index.declarations(Tree.Kind.VARIABLE).get(0).getLeaf());
+    Symbol f = getSymbol(index.declarations(Tree.Kind.METHOD).get(1).getLeaf());
+
+    assertThat(kinds(index.references(x)))
+        .containsExactly(Tree.Kind.IDENTIFIER, Tree.Kind.MEMBER_SELECT)
+        .inOrder();
+    assertThat(kinds(index.references(f)))
+        .containsExactly(Tree.Kind.MEMBER_SELECT, Tree.Kind.MEMBER_REFERENCE)
+        .inOrder();
+    assertThat(index.references().get(f)).isEqualTo(index.references(f));
+  }
+
+  @Test
+  public void visitorStateReusesTheIndexOfTheCurrentUnit() throws IOException {
+    ImmutableList<CompilationUnitTree> units =
+        compile(forSourceLines("A.java", "class A {}"), forSourceLines("B.java", "class B {}"));
+    CompilationUnitTree a = units.get(0);
+    CompilationUnitTree b = units.get(1);
+    VisitorState state =
+        VisitorState.createForUtilityPurposes(((BasicJavacTask) task).getContext());
+
+    SymbolIndex index = state.withPath(new TreePath(a)).symbolIndex();
+
+    TreePath classA = new TreePath(new TreePath(a), a.getTypeDecls().get(0));
+    assertThat(index.compilationUnit()).isSameInstanceAs(a);
+    assertThat(state.withPath(classA).symbolIndex()).isSameInstanceAs(index);
+
+    SymbolIndex other = state.withPath(new TreePath(b)).symbolIndex();
+
+    assertThat(other).isNotSameInstanceAs(index);
+    assertThat(other.compilationUnit()).isSameInstanceAs(b);
+    assertThat(names(other.declarations())).containsExactly("B", "<init>").inOrder();
+  }
+}